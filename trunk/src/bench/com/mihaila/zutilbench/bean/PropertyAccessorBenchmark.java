@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.bean;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.bean.IPropertyAccessor;
+import com.mihaila.zutil.bean.PropertyAccessorManager;
+
+/**
+ * Compares reading and writing a bean property (as a mapping layer does for
+ * every row) through the generated accessor, the reflection accessor,
+ * <code>Method.invoke()</code> and <code>MethodHandle</code> objects, with
+ * direct calls as baseline.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PropertyAccessorBenchmark {
+
+	public static class Row {
+
+		private int m_id;
+
+		private String m_name;
+
+		public int getId() {
+			return m_id;
+		}
+
+		public void setId(int id) {
+			m_id = id;
+		}
+
+		public String getName() {
+			return m_name;
+		}
+
+		public void setName(String name) {
+			m_name = name;
+		}
+	}
+
+	private static final MethodHandle GET_ID;
+
+	private static final MethodHandle SET_ID;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			GET_ID = lookup.findVirtual(Row.class, "getId", MethodType
+					.methodType(int.class));
+			SET_ID = lookup.findVirtual(Row.class, "setId", MethodType
+					.methodType(void.class, int.class));
+		} catch (Exception e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private Row m_row;
+
+	private Integer m_id;
+
+	private IPropertyAccessor<Row> m_generatedAccessor;
+
+	private IPropertyAccessor<Row> m_reflectionAccessor;
+
+	private int m_idIndex;
+
+	private Method m_getId;
+
+	private Method m_setId;
+
+	private MethodHandle m_getIdHandle;
+
+	private MethodHandle m_setIdHandle;
+
+	@Setup
+	public void setup() throws Exception {
+		m_row = new Row();
+		m_id = Integer.valueOf(12345);
+		m_generatedAccessor = PropertyAccessorManager.getAccessor(Row.class);
+		m_reflectionAccessor = PropertyAccessorManager
+				.newReflectionAccessor(Row.class);
+		m_idIndex = m_generatedAccessor.getPropertyIndex("id");
+		m_getId = Row.class.getMethod("getId");
+		m_setId = Row.class.getMethod("setId", int.class);
+		// the generic (Object) signature a mapping layer would use
+		m_getIdHandle = GET_ID.asType(MethodType.methodType(Object.class,
+				Object.class));
+		m_setIdHandle = SET_ID.asType(MethodType.methodType(void.class,
+				Object.class, Object.class));
+	}
+
+	@Benchmark
+	public Object generatedAccessor() {
+		m_generatedAccessor.setValue(m_row, m_idIndex, m_id);
+		return m_generatedAccessor.getValue(m_row, m_idIndex);
+	}
+
+	@Benchmark
+	public Object generatedAccessorByName() {
+		m_generatedAccessor.setValue(m_row, "id", m_id);
+		return m_generatedAccessor.getValue(m_row, "id");
+	}
+
+	@Benchmark
+	public Object reflectionAccessor() {
+		m_reflectionAccessor.setValue(m_row, m_idIndex, m_id);
+		return m_reflectionAccessor.getValue(m_row, m_idIndex);
+	}
+
+	@Benchmark
+	public Object reflection() throws Exception {
+		m_setId.invoke(m_row, m_id);
+		return m_getId.invoke(m_row);
+	}
+
+	@Benchmark
+	public Object methodHandle() throws Throwable {
+		m_setIdHandle.invokeExact((Object) m_row, (Object) m_id);
+		return (Object) m_getIdHandle.invokeExact((Object) m_row);
+	}
+
+	@Benchmark
+	public Object staticMethodHandle() throws Throwable {
+		SET_ID.invokeExact(m_row, m_id.intValue());
+		return Integer.valueOf((int) GET_ID.invokeExact(m_row));
+	}
+
+	@Benchmark
+	public Object baseline() {
+		m_row.setId(m_id.intValue());
+		return Integer.valueOf(m_row.getId());
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.factory;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.factory.FactoryManager;
+import com.mihaila.zutil.factory.IFactory;
+
+/**
+ * Compares the creation of a bound interface implementation through a
+ * megamorphic <code>IFactory.newInstance()</code> call site, through the
+ * dedicated binding factory and through the binding invoker cached in a
+ * <code>static final</code> field.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BindingBenchmark {
+
+	public interface Service {
+
+		int getValue();
+	}
+
+	public static class ServiceImpl implements Service {
+
+		public int getValue() {
+			return 1;
+		}
+	}
+
+	public static class Other1 {
+
+	}
+
+	public static class Other2 {
+
+	}
+
+	public static class Other3 {
+
+	}
+
+	private static final MethodHandle NEW_SERVICE = FactoryManager.bind(
+			Service.class, ServiceImpl.class).getInvoker();
+
+	private IFactory<?>[] m_factories;
+
+	private IFactory<? extends Service> m_bindingFactory;
+
+	@Setup
+	public void setup() {
+		m_factories = new IFactory<?>[] {
+				FactoryManager.getFactory(Service.class),
+				FactoryManager.getFactoryAuto(Other1.class),
+				FactoryManager.getFactoryAuto(Other2.class),
+				FactoryManager.getFactoryAuto(Other3.class) };
+		// make the shared call site megamorphic
+		for (int i = 0; i < 100000; i++) {
+			newInstance(m_factories[i % m_factories.length]);
+		}
+		m_bindingFactory = FactoryManager.getBinding(Service.class)
+				.getFactory();
+	}
+
+	private static Object newInstance(IFactory<?> factory) {
+		return factory.newInstance();
+	}
+
+	@Benchmark
+	public int megamorphicFactory() {
+		return ((Service) newInstance(m_factories[0])).getValue();
+	}
+
+	@Benchmark
+	public int bindingFactory() {
+		return m_bindingFactory.newInstance().getValue();
+	}
+
+	@Benchmark
+	public int bindingInvoker() throws Throwable {
+		return ((Service) NEW_SERVICE.invokeExact()).getValue();
+	}
+
+	@Benchmark
+	public int baseline() {
+		return new ServiceImpl().getValue();
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.factory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.factory.FactoryManager;
+
+/**
+ * Compares the creation of arrays of objects by
+ * <code>FactoryManager.newInstances()</code> with a loop calling
+ * <code>FactoryManager.newInstance()</code> for each element.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BulkInstantiationBenchmark {
+
+	public static class Row {
+
+		public long id;
+
+		public String name;
+	}
+
+	@Param( { "10", "1000", "100000" })
+	public int count;
+
+	@Setup
+	public void setup() {
+		FactoryManager.clear();
+		FactoryManager.getFactoryAuto(Row.class);
+	}
+
+	@Benchmark
+	public Row[] newInstanceLoop() {
+		Row[] rows = new Row[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = FactoryManager.newInstance(Row.class);
+		}
+		return rows;
+	}
+
+	@Benchmark
+	public Row[] newInstances() {
+		return FactoryManager.newInstances(Row.class, count);
+	}
+
+	@Benchmark
+	public Row[] newLoopBaseline() {
+		Row[] rows = new Row[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = new Row();
+		}
+		return rows;
+	}
+}
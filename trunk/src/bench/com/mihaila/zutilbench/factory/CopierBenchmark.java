@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.factory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.factory.CopyPolicy;
+import com.mihaila.zutil.factory.FactoryManager;
+import com.mihaila.zutil.factory.ICopier;
+import com.mihaila.zutil.factory.IFactoryGenerator;
+
+/**
+ * Compares the copiers created by the <code>IFactoryGenerator</code>
+ * implementations (the reflection generator copies all the fields by
+ * reflection) with <code>Object.clone()</code>.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CopierBenchmark {
+
+	public static class Template implements Cloneable {
+
+		public int id;
+
+		public long timestamp;
+
+		public double ratio;
+
+		public String name;
+
+		public String description;
+
+		public int[] values;
+
+		public Template parent;
+
+		@Override
+		public Template clone() {
+			try {
+				return (Template) super.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	@Param( { FactoryManager.GENERATOR_JAVASSIST,
+			FactoryManager.GENERATOR_METHOD_HANDLE,
+			FactoryManager.GENERATOR_REFLECTION })
+	public String generatorName;
+
+	private Template m_prototype;
+
+	private ICopier<Template> m_shallowCopier;
+
+	private ICopier<Template> m_deepCopier;
+
+	@Setup
+	public void setup() {
+		m_prototype = new Template();
+		m_prototype.id = 1;
+		m_prototype.timestamp = 2;
+		m_prototype.ratio = 0.5;
+		m_prototype.name = "template";
+		m_prototype.description = "the prototype";
+		m_prototype.values = new int[] { 1, 2, 3, 4 };
+		m_prototype.parent = new Template();
+		IFactoryGenerator generator = FactoryManager
+				.newFactoryGenerator(generatorName);
+		m_shallowCopier = generator.generateCopier(Template.class,
+				CopyPolicy.SHALLOW);
+		m_deepCopier = generator.generateCopier(Template.class,
+				CopyPolicy.DEEP);
+	}
+
+	@Benchmark
+	public Template cloneBaseline() {
+		return m_prototype.clone();
+	}
+
+	@Benchmark
+	public Template shallowCopy() {
+		return m_shallowCopier.copy(m_prototype);
+	}
+
+	@Benchmark
+	public Template deepCopy() {
+		return m_deepCopier.copy(m_prototype);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.factory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.factory.FactoryHandle;
+import com.mihaila.zutil.factory.FactoryManager;
+import com.mihaila.zutil.factory.IFactory;
+
+/**
+ * Measures the <code>FactoryManager</code> lookups: the warm lookups (the
+ * factory is registered) by class, by name and by handle, the lookups of a
+ * missing key, and the cold lookups (the registry is cleared before each
+ * call, so the factory is generated and registered).
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FactoryLookupBenchmark {
+
+	public static class Target {
+
+		public int value;
+	}
+
+	@State(Scope.Benchmark)
+	public static class Warm {
+
+		String m_key;
+
+		FactoryHandle<Target> m_handle;
+
+		@Setup
+		public void setup() {
+			FactoryManager.clear();
+			m_key = Target.class.getName();
+			m_handle = FactoryManager.register(Target.class);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Cold {
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			FactoryManager.clear();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public IFactory<Target> warmGetFactoryByClass(Warm warm) {
+		return FactoryManager.getFactory(Target.class);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public IFactory<?> warmGetFactoryByName(Warm warm) {
+		return FactoryManager.getFactory(warm.m_key);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public IFactory<?> warmGetFactoryMissing(Warm warm) {
+		return FactoryManager.getFactory("com.mihaila.zutilbench.Missing");
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Target warmNewInstanceByClass(Warm warm) {
+		return FactoryManager.newInstance(Target.class);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Object warmNewInstanceByName(Warm warm) {
+		return FactoryManager.newInstance(warm.m_key);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Target warmNewInstanceByHandle(Warm warm) {
+		return FactoryManager.newInstance(warm.m_handle);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 20, batchSize = 1)
+	@Measurement(iterations = 200, batchSize = 1)
+	public Target coldNewInstanceByClass(Cold cold) {
+		return FactoryManager.getFactoryAuto(Target.class).newInstance();
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.factory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.factory.FactoryHandle;
+import com.mihaila.zutil.factory.FactoryManager;
+
+/**
+ * Measures the cost of the <code>FactoryManager</code> statistics counters on
+ * the <code>newInstance()</code> paths, with the counters enabled and
+ * disabled, under contention.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatisticsOverheadBenchmark {
+
+	public static class Target {
+
+		public int value;
+	}
+
+	@Param( { "true", "false" })
+	public boolean statisticsEnabled;
+
+	private FactoryHandle<Target> m_handle;
+
+	@Setup
+	public void setup() {
+		FactoryManager.setStatisticsEnabled(statisticsEnabled);
+		m_handle = FactoryManager.register(Target.class);
+	}
+
+	@TearDown
+	public void tearDown() {
+		FactoryManager.setStatisticsEnabled(true);
+	}
+
+	@Benchmark
+	public Target newInstanceByClass() {
+		return FactoryManager.newInstance(Target.class);
+	}
+
+	@Benchmark
+	public Target newInstanceByHandle() {
+		return FactoryManager.newInstance(m_handle);
+	}
+
+	@Benchmark
+	public Object newInstanceByKey() {
+		return FactoryManager.newInstance(Target.class.getName());
+	}
+}
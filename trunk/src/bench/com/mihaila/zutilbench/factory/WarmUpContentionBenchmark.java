@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.factory.FactoryManager;
+import com.mihaila.zutil.factory.IFactory;
+
+/**
+ * Measures the registry warm-up when 32 threads request factories for
+ * distinct types at the same time. The registry is cleared before each
+ * iteration, so every request generates a runtime factory. The types are
+ * loaded by a single class loader, or spread over 8 class loaders (as the
+ * types of distinct web applications), whose factories are compiled by
+ * distinct class pools.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(WarmUpContentionBenchmark.NUM_THREADS)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 50)
+public class WarmUpContentionBenchmark {
+
+	public static final int NUM_THREADS = 32;
+
+	public static class T00 {
+	}
+
+	public static class T01 {
+	}
+
+	public static class T02 {
+	}
+
+	public static class T03 {
+	}
+
+	public static class T04 {
+	}
+
+	public static class T05 {
+	}
+
+	public static class T06 {
+	}
+
+	public static class T07 {
+	}
+
+	public static class T08 {
+	}
+
+	public static class T09 {
+	}
+
+	public static class T10 {
+	}
+
+	public static class T11 {
+	}
+
+	public static class T12 {
+	}
+
+	public static class T13 {
+	}
+
+	public static class T14 {
+	}
+
+	public static class T15 {
+	}
+
+	public static class T16 {
+	}
+
+	public static class T17 {
+	}
+
+	public static class T18 {
+	}
+
+	public static class T19 {
+	}
+
+	public static class T20 {
+	}
+
+	public static class T21 {
+	}
+
+	public static class T22 {
+	}
+
+	public static class T23 {
+	}
+
+	public static class T24 {
+	}
+
+	public static class T25 {
+	}
+
+	public static class T26 {
+	}
+
+	public static class T27 {
+	}
+
+	public static class T28 {
+	}
+
+	public static class T29 {
+	}
+
+	public static class T30 {
+	}
+
+	public static class T31 {
+	}
+
+	private static final Class<?>[] TYPES = {
+			T00.class, T01.class, T02.class, T03.class, T04.class, T05.class,
+			T06.class, T07.class, T08.class, T09.class, T10.class, T11.class,
+			T12.class, T13.class, T14.class, T15.class, T16.class, T17.class,
+			T18.class, T19.class, T20.class, T21.class, T22.class, T23.class,
+			T24.class, T25.class, T26.class, T27.class, T28.class, T29.class,
+			T30.class, T31.class };
+
+	/**
+	 * Defines classes from their bytes (the other classes are loaded by the
+	 * parent class loader).
+	 */
+	static class IsolatedClassLoader extends ClassLoader {
+
+		IsolatedClassLoader() {
+			super(WarmUpContentionBenchmark.class.getClassLoader());
+		}
+
+		Class<?> define(Class<?> type) throws IOException {
+			String resource = type.getName().substring(
+					type.getName().lastIndexOf('.') + 1)
+					+ ".class";
+			InputStream in = type.getResourceAsStream(resource);
+			try {
+				byte[] bytes = in.readAllBytes();
+				return defineClass(type.getName(), bytes, 0, bytes.length);
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	@Param( { FactoryManager.GENERATOR_JAVASSIST,
+			FactoryManager.GENERATOR_METHOD_HANDLE })
+	public String generatorName;
+
+	@Param( { "1", "8" })
+	public int numClassLoaders;
+
+	private Class<?>[] m_types;
+
+	@State(Scope.Thread)
+	public static class ThreadType {
+
+		private static final AtomicInteger m_numThreads = new AtomicInteger();
+
+		int m_index;
+
+		@Setup
+		public void setup() {
+			m_index = m_numThreads.getAndIncrement() % TYPES.length;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		FactoryManager.setFactoryGenerator(FactoryManager
+				.newFactoryGenerator(generatorName));
+		if (numClassLoaders == 1) {
+			m_types = TYPES;
+			return;
+		}
+		IsolatedClassLoader[] classLoaders = new IsolatedClassLoader[numClassLoaders];
+		for (int i = 0; i < numClassLoaders; i++) {
+			classLoaders[i] = new IsolatedClassLoader();
+		}
+		m_types = new Class<?>[TYPES.length];
+		for (int i = 0; i < TYPES.length; i++) {
+			m_types[i] = classLoaders[i % numClassLoaders].define(TYPES[i]);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void clearFactories() {
+		FactoryManager.clear();
+	}
+
+	@Benchmark
+	public IFactory<?> warmUpDistinctTypes(ThreadType threadType) {
+		return FactoryManager.getFactoryAuto(m_types[threadType.m_index]);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.lang.AsyncExecutor;
+import com.mihaila.zutil.lang.ICallable;
+
+/**
+ * Measures the fan-out of blocking calls (1 ms sleeps, as remote queries)
+ * through an <code>AsyncExecutor</code>, with and without a concurrency
+ * limit, against calling them one after the other.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AsyncExecutorBenchmark {
+
+	@Param( { "16", "128" })
+	public int callCount;
+
+	private List<ICallable<Integer>> m_callables;
+
+	private AsyncExecutor m_executor;
+
+	private AsyncExecutor m_limitedExecutor;
+
+	@Setup
+	public void setup() {
+		m_callables = new ArrayList<ICallable<Integer>>();
+		for (int i = 0; i < callCount; i++) {
+			final int index = i;
+			m_callables.add(new ICallable<Integer>() {
+				public Integer call() {
+					try {
+						Thread.sleep(1);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return index;
+				}
+			});
+		}
+		m_executor = new AsyncExecutor();
+		m_limitedExecutor = new AsyncExecutor(8);
+	}
+
+	@Benchmark
+	public int sequential() {
+		int sum = 0;
+		for (ICallable<Integer> callable : m_callables) {
+			sum += callable.call();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public List<Integer> invokeAll() {
+		return m_executor.invokeAll(m_callables).join();
+	}
+
+	@Benchmark
+	public List<Integer> invokeAllLimited() {
+		return m_limitedExecutor.invokeAll(m_callables).join();
+	}
+}
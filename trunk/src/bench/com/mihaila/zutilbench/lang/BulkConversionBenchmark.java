@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.lang.CaseFormat;
+import com.mihaila.zutil.lang.CaseSymbolTable;
+import com.mihaila.zutil.lang.StringUtil;
+
+/**
+ * Compares the conversion of the column labels of a result set (a batch of
+ * upper underscore case names) to lower camel case: one by one, by
+ * <code>StringUtil.convertAll()</code> (in parallel for the largest batch)
+ * and by a warm <code>CaseSymbolTable</code>, in both directions.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BulkConversionBenchmark {
+
+	private static final String[] WORDS = { "CUSTOMER", "ORDER", "ID",
+			"BILLING", "ADDRESS", "LINE", "CREATED", "AT", "TOTAL", "AMOUNT" };
+
+	@Param( { "16", "256", "65536" })
+	public int columns;
+
+	private String[] m_labels;
+
+	private String[] m_properties;
+
+	private CaseSymbolTable m_symbolTable;
+
+	@Setup
+	public void setup() {
+		m_labels = new String[columns];
+		for (int i = 0; i < columns; i++) {
+			m_labels[i] = WORDS[i % WORDS.length] + '_'
+					+ WORDS[(i / WORDS.length) % WORDS.length] + '_' + i;
+		}
+		m_symbolTable = new CaseSymbolTable(CaseFormat.UPPER_UNDERSCORE,
+				CaseFormat.LOWER_CAMEL);
+		m_properties = m_symbolTable.toCamelCase(m_labels);
+	}
+
+	@Benchmark
+	public String[] oneByOne() {
+		String[] result = new String[m_labels.length];
+		for (int i = 0; i < m_labels.length; i++) {
+			result[i] = StringUtil.toLowerCamelCase(m_labels[i]);
+		}
+		return result;
+	}
+
+	@Benchmark
+	public String[] convertAll() {
+		return StringUtil.convertAll(m_labels, CaseFormat.LOWER_CAMEL);
+	}
+
+	@Benchmark
+	public String[] symbolTable() {
+		return m_symbolTable.toCamelCase(m_labels);
+	}
+
+	@Benchmark
+	public String[] symbolTableReverse() {
+		return m_symbolTable.toUnderscoreCase(m_properties);
+	}
+}
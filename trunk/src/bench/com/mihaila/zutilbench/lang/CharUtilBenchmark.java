@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.lang.CharUtil;
+
+/**
+ * Compares the upper case conversion of a char array (and of a byte array)
+ * by a loop calling <code>CharUtil.toAsciiUpperCase(char)</code> with the
+ * bulk <code>CharUtil</code> conversions, on mixed case text and on text
+ * already in upper case. The source is copied into the converted array by
+ * every variant, since the conversion is done in place.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CharUtilBenchmark {
+
+	private static final String TEXT = "Select customer_id, Order_Date FROM "
+			+ "orders WHERE total > 100 AND status = 'shipped'; ";
+
+	@Param( { "8", "64", "4096" })
+	public int length;
+
+	@Param( { "mixed", "upper" })
+	public String text;
+
+	private char[] m_source;
+
+	private char[] m_chars;
+
+	private byte[] m_sourceBytes;
+
+	private byte[] m_bytes;
+
+	@Setup
+	public void setup() {
+		StringBuilder builder = new StringBuilder(length);
+		while (builder.length() < length) {
+			builder.append(TEXT);
+		}
+		builder.setLength(length);
+		String value = builder.toString();
+		if (text.equals("upper")) {
+			value = value.toUpperCase();
+		}
+		m_source = value.toCharArray();
+		m_chars = new char[length];
+		m_sourceBytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			m_sourceBytes[i] = (byte) m_source[i];
+		}
+		m_bytes = new byte[length];
+	}
+
+	@Benchmark
+	public char[] scalarChars() {
+		char[] source = m_source;
+		char[] chars = m_chars;
+		for (int i = 0; i < source.length; i++) {
+			chars[i] = CharUtil.toAsciiUpperCase(source[i]);
+		}
+		return chars;
+	}
+
+	@Benchmark
+	public char[] bulkChars() {
+		System.arraycopy(m_source, 0, m_chars, 0, m_source.length);
+		CharUtil.toAsciiUpperCase(m_chars, 0, m_chars.length);
+		return m_chars;
+	}
+
+	@Benchmark
+	public byte[] scalarBytes() {
+		byte[] source = m_sourceBytes;
+		byte[] bytes = m_bytes;
+		for (int i = 0; i < source.length; i++) {
+			bytes[i] = (byte) CharUtil.toAsciiUpperCase((char) source[i]);
+		}
+		return bytes;
+	}
+
+	@Benchmark
+	public byte[] bulkBytes() {
+		System.arraycopy(m_sourceBytes, 0, m_bytes, 0, m_sourceBytes.length);
+		CharUtil.toAsciiUpperCase(m_bytes, 0, m_bytes.length);
+		return m_bytes;
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.lang;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.lang.ICallable;
+import com.mihaila.zutil.lang.ICallable1Arg;
+import com.mihaila.zutil.lang.LazyValue;
+import com.mihaila.zutil.lang.Memoizer;
+
+/**
+ * Measures the hit path of a <code>Memoizer</code> (with and without time to
+ * live) against a plain <code>ConcurrentHashMap.computeIfAbsent()</code>
+ * cache, and the reads of a published <code>LazyValue</code>.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MemoizerBenchmark {
+
+	private static final int KEY_COUNT = 512;
+
+	private Memoizer<String, Integer> m_memoizer;
+
+	private Memoizer<String, Integer> m_expiringMemoizer;
+
+	private ConcurrentHashMap<Integer, String> m_map;
+
+	private Function<Integer, String> m_function;
+
+	private LazyValue<String> m_lazyValue;
+
+	private Integer[] m_keys;
+
+	private int m_index;
+
+	@Setup
+	public void setup() {
+		ICallable1Arg<String, Integer> loader = new ICallable1Arg<String, Integer>() {
+			public String call(Integer arg) {
+				return "value" + arg;
+			}
+		};
+		m_memoizer = new Memoizer<String, Integer>(loader);
+		m_expiringMemoizer = new Memoizer<String, Integer>(loader,
+				Memoizer.DEFAULT_MAX_SIZE, 1, TimeUnit.HOURS);
+		m_map = new ConcurrentHashMap<Integer, String>();
+		m_function = new Function<Integer, String>() {
+			public String apply(Integer arg) {
+				return "value" + arg;
+			}
+		};
+		m_lazyValue = new LazyValue<String>(new ICallable<String>() {
+			public String call() {
+				return "value";
+			}
+		});
+		m_keys = new Integer[KEY_COUNT];
+		for (int i = 0; i < KEY_COUNT; i++) {
+			m_keys[i] = Integer.valueOf(i);
+			m_memoizer.call(m_keys[i]);
+			m_expiringMemoizer.call(m_keys[i]);
+			m_map.computeIfAbsent(m_keys[i], m_function);
+		}
+		m_lazyValue.call();
+	}
+
+	private Integer nextKey() {
+		m_index = (m_index + 1) & (KEY_COUNT - 1);
+		return m_keys[m_index];
+	}
+
+	@Benchmark
+	public String memoizerHit() {
+		return m_memoizer.call(nextKey());
+	}
+
+	@Benchmark
+	public String expiringMemoizerHit() {
+		return m_expiringMemoizer.call(nextKey());
+	}
+
+	@Benchmark
+	public String computeIfAbsentHit() {
+		return m_map.computeIfAbsent(nextKey(), m_function);
+	}
+
+	@Benchmark
+	public String lazyValue() {
+		return m_lazyValue.call();
+	}
+}
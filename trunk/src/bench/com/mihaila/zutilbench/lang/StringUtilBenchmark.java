@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.lang.CachedCaseConverter;
+import com.mihaila.zutil.lang.CaseFormat;
+import com.mihaila.zutil.lang.StringUtil;
+
+/**
+ * Measures the <code>StringUtil</code> case conversions on short and long
+ * identifiers, in camel case and in underscore case (as the column and the
+ * property names of a mapping layer): returning strings, writing into a
+ * reused buffer and through a warm <code>CachedCaseConverter</code> (run with
+ * <code>-prof gc</code> to see the allocation rates).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringUtilBenchmark {
+
+	@Param( { "id", "userId", "USER_ID",
+			"customerBillingAddressLine2Override",
+			"CUSTOMER_BILLING_ADDRESS_LINE_2_OVERRIDE" })
+	public String name;
+
+	private CachedCaseConverter m_upperUnderscoreConverter;
+
+	private CachedCaseConverter m_lowerCamelConverter;
+
+	private StringBuilder m_builder;
+
+	private char[] m_chars;
+
+	@Setup
+	public void setup() {
+		m_upperUnderscoreConverter = new CachedCaseConverter(
+				CaseFormat.UPPER_UNDERSCORE);
+		m_lowerCamelConverter = new CachedCaseConverter(
+				CaseFormat.LOWER_CAMEL);
+		m_builder = new StringBuilder(256);
+		m_chars = new char[256];
+	}
+
+	@Benchmark
+	public String toUpperUnderscoreCase() {
+		return StringUtil.toUpperUnderscoreCase(name);
+	}
+
+	@Benchmark
+	public String toLowerUnderscoreCase() {
+		return StringUtil.toLowerUnderscoreCase(name);
+	}
+
+	@Benchmark
+	public String toUpperCamelCase() {
+		return StringUtil.toUpperCamelCase(name);
+	}
+
+	@Benchmark
+	public String toLowerCamelCase() {
+		return StringUtil.toLowerCamelCase(name);
+	}
+
+	@Benchmark
+	public StringBuilder appendToUpperUnderscoreCase() {
+		m_builder.setLength(0);
+		m_builder.append(StringUtil.toUpperUnderscoreCase(name));
+		return m_builder;
+	}
+
+	@Benchmark
+	public StringBuilder writeUpperUnderscoreCase() {
+		m_builder.setLength(0);
+		StringUtil.writeUpperUnderscoreCase(m_builder, name);
+		return m_builder;
+	}
+
+	@Benchmark
+	public int writeUpperUnderscoreCaseChars() {
+		return StringUtil.writeUpperUnderscoreCase(m_chars, 0, name, 0, name
+				.length());
+	}
+
+	@Benchmark
+	public StringBuilder appendToLowerCamelCase() {
+		m_builder.setLength(0);
+		m_builder.append(StringUtil.toLowerCamelCase(name));
+		return m_builder;
+	}
+
+	@Benchmark
+	public StringBuilder writeLowerCamelCase() {
+		m_builder.setLength(0);
+		StringUtil.writeLowerCamelCase(m_builder, name);
+		return m_builder;
+	}
+
+	@Benchmark
+	public int writeLowerCamelCaseChars() {
+		return StringUtil.writeLowerCamelCase(m_chars, 0, name, 0, name
+				.length());
+	}
+
+	@Benchmark
+	public String cachedToUpperUnderscoreCase() {
+		return m_upperUnderscoreConverter.convert(name);
+	}
+
+	@Benchmark
+	public String cachedToLowerCamelCase() {
+		return m_lowerCamelConverter.convert(name);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.lang;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.lang.StringUtil;
+
+/**
+ * Compares the Unicode mode of the <code>StringUtil</code> case conversions
+ * with the default (ASCII) mode, on ASCII names (where the Unicode mode must
+ * not be slower) and on non-ASCII names, and with the regular expression and
+ * <code>String.toLowerCase(Locale)</code> conversion it replaces.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UnicodeCaseBenchmark {
+
+	private static final Pattern WORD_START = Pattern
+			.compile("(?<=[^_])([\\p{Lu}\\p{Lt}])");
+
+	@Param( { "userId", "customerBillingAddressLine2Override",
+			"CUSTOMER_BILLING_ADDRESS_LINE_2_OVERRIDE",
+			"stra\u00dfe\u00dcberStadtBezirk" })
+	public String name;
+
+	@Benchmark
+	public String asciiToLowerUnderscoreCase() {
+		return StringUtil.toLowerUnderscoreCase(name);
+	}
+
+	@Benchmark
+	public String unicodeToLowerUnderscoreCase() {
+		return StringUtil.toLowerUnderscoreCase(name, true);
+	}
+
+	@Benchmark
+	public String regexToLowerUnderscoreCase() {
+		return WORD_START.matcher(name).replaceAll("_$1").toLowerCase(
+				Locale.ROOT);
+	}
+
+	@Benchmark
+	public String asciiToUpperCamelCase() {
+		return StringUtil.toUpperCamelCase(name);
+	}
+
+	@Benchmark
+	public String unicodeToUpperCamelCase() {
+		return StringUtil.toUpperCamelCase(name, true);
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.sql.ConnectionWrapper;
+import com.mihaila.zutil.sql.DataSourceWrapper;
+import com.mihaila.zutil.sql.ForTestingConnectionWrapper;
+
+/**
+ * Measures the overhead of the <code>sql</code> wrappers over a stub driver
+ * connection (the calls return constants, so only the delegation is
+ * measured).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConnectionWrapperBenchmark {
+
+	/**
+	 * The driver connection stub, implemented over
+	 * <code>ConnectionWrapper</code> to avoid implementing every
+	 * <code>Connection</code> method.
+	 */
+	static class StubConnection extends ConnectionWrapper {
+
+		private final Statement m_statement;
+
+		StubConnection(Statement statement) {
+			super(null);
+			m_statement = statement;
+		}
+
+		@Override
+		public Statement createStatement() {
+			return m_statement;
+		}
+
+		@Override
+		public boolean getAutoCommit() {
+			return false;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+
+		@Override
+		public void commit() {
+		}
+
+		@Override
+		public void rollback() {
+		}
+	}
+
+	static class StubDataSource extends DataSourceWrapper {
+
+		private final Connection m_connection;
+
+		StubDataSource(Connection connection) {
+			super(null);
+			m_connection = connection;
+		}
+
+		@Override
+		public Connection getConnection() {
+			return m_connection;
+		}
+	}
+
+	private Connection m_connection;
+
+	private Connection m_wrapper;
+
+	private ForTestingConnectionWrapper m_testingWrapper;
+
+	private DataSource m_dataSourceWrapper;
+
+	@Setup
+	public void setup() {
+		m_connection = new StubConnection(null);
+		m_wrapper = new ConnectionWrapper(m_connection);
+		m_testingWrapper = new ForTestingConnectionWrapper(m_connection);
+		m_testingWrapper.setRollbackOnCommit(true);
+		m_dataSourceWrapper = new DataSourceWrapper(new StubDataSource(
+				m_connection));
+	}
+
+	@Benchmark
+	public boolean baselineGetAutoCommit() throws SQLException {
+		return m_connection.getAutoCommit();
+	}
+
+	@Benchmark
+	public boolean wrapperGetAutoCommit() throws SQLException {
+		return m_wrapper.getAutoCommit();
+	}
+
+	@Benchmark
+	public Statement wrapperCreateStatement() throws SQLException {
+		return m_wrapper.createStatement();
+	}
+
+	@Benchmark
+	public Statement testingWrapperCreateStatement() throws SQLException {
+		return m_testingWrapper.createStatement();
+	}
+
+	@Benchmark
+	public void testingWrapperCommit() throws SQLException {
+		m_testingWrapper.commit();
+	}
+
+	@Benchmark
+	public Connection dataSourceWrapperGetConnection() throws SQLException {
+		return m_dataSourceWrapper.getConnection();
+	}
+
+	@Benchmark
+	public boolean wrapperUnwrap() throws SQLException {
+		return m_wrapper.isWrapperFor(ConnectionWrapper.class);
+	}
+}
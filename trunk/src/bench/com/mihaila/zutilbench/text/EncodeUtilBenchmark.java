@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutilbench.text;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mihaila.zutil.text.EncodeUtil;
+
+/**
+ * Measures the <code>EncodeUtil</code> encoders on short and long texts,
+ * with no characters to escape (the common case) and with many of them.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EncodeUtilBenchmark {
+
+	private static final String SHORT_CLEAN = "John Smith";
+
+	private static final String SHORT_ESCAPED = "<b>O'Neil & \"Co\"</b>";
+
+	private static final String LONG_CLEAN = "The quick brown fox jumps over the lazy dog, "
+			+ "while the five boxing wizards jump quickly; pack my box with "
+			+ "five dozen liquor jugs. How vexingly quick daft zebras jump!";
+
+	private static final String LONG_ESCAPED = "<p class=\"quote\">Tom &amp; "
+			+ "Jerry's <i>\"chase\"</i> &lt;episode 12&gt; - it's "
+			+ "<a href='?id=1&page=2'>here</a> & <b>there</b>.</p>";
+
+	@Param( { "shortClean", "shortEscaped", "longClean", "longEscaped" })
+	public String text;
+
+	private String m_value;
+
+	private StringBuilder m_out;
+
+	@Setup
+	public void setup() {
+		if (text.equals("shortClean")) {
+			m_value = SHORT_CLEAN;
+		} else if (text.equals("shortEscaped")) {
+			m_value = SHORT_ESCAPED;
+		} else if (text.equals("longClean")) {
+			m_value = LONG_CLEAN;
+		} else {
+			m_value = LONG_ESCAPED;
+		}
+		m_out = new StringBuilder(1024);
+	}
+
+	@Benchmark
+	public String htmlEncode() {
+		return EncodeUtil.htmlEncode(m_value);
+	}
+
+	@Benchmark
+	public StringBuilder writeHtmlEncoded() {
+		m_out.setLength(0);
+		EncodeUtil.writeHtmlEncoded(m_out, m_value);
+		return m_out;
+	}
+
+	@Benchmark
+	public String xmlEncode() {
+		return EncodeUtil.xmlEncode(m_value);
+	}
+
+	@Benchmark
+	public StringBuilder writeXmlEncoded() {
+		m_out.setLength(0);
+		EncodeUtil.writeXmlEncoded(m_out, m_value);
+		return m_out;
+	}
+
+	@Benchmark
+	public String sqlEncode() {
+		return EncodeUtil.sqlEncode(m_value);
+	}
+
+	@Benchmark
+	public StringBuilder writeSqlEncoded() {
+		m_out.setLength(0);
+		EncodeUtil.writeSqlEncoded(m_out, m_value);
+		return m_out;
+	}
+
+	@Benchmark
+	public String urlEncode() {
+		return EncodeUtil.urlEncode(m_value);
+	}
+}
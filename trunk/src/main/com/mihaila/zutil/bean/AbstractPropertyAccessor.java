@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.bean;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base class of the property accessors: keeps the properties and implements
+ * the access by name over the access by index. The generated accessors
+ * extend this class, so it must remain public.
+ * 
+ * @param <T>
+ *            the type of the beans
+ */
+public abstract class AbstractPropertyAccessor<T> implements
+		IPropertyAccessor<T> {
+
+	private final Class<T> m_beanType;
+
+	private final BeanProperty[] m_properties;
+
+	private final Map<String, Integer> m_indexes;
+
+	protected AbstractPropertyAccessor(Class<T> beanType,
+			BeanProperty[] properties) {
+		m_beanType = beanType;
+		m_properties = properties;
+		m_indexes = new HashMap<String, Integer>(properties.length * 2);
+		for (int i = 0; i < properties.length; i++) {
+			m_indexes.put(properties[i].getName(), Integer.valueOf(i));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#getBeanType()
+	 */
+	public Class<T> getBeanType() {
+		return m_beanType;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#getPropertyCount()
+	 */
+	public int getPropertyCount() {
+		return m_properties.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#getProperty(int)
+	 */
+	public BeanProperty getProperty(int index) {
+		return m_properties[index];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#getPropertyIndex(java.lang.String)
+	 */
+	public int getPropertyIndex(String name) {
+		Integer index = m_indexes.get(name);
+		return (index == null) ? -1 : index.intValue();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#getValue(java.lang.Object,
+	 *      java.lang.String)
+	 */
+	public Object getValue(T bean, String name) {
+		return getValue(bean, getExistingPropertyIndex(name));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#setValue(java.lang.Object,
+	 *      java.lang.String, java.lang.Object)
+	 */
+	public void setValue(T bean, String name, Object value) {
+		setValue(bean, getExistingPropertyIndex(name), value);
+	}
+
+	private int getExistingPropertyIndex(String name) {
+		int index = getPropertyIndex(name);
+		if (index < 0) {
+			throw new IllegalArgumentException("No property: " + name
+					+ " in class: " + m_beanType.getName() + '.');
+		}
+		return index;
+	}
+
+	/**
+	 * Creates the exception thrown when the property with the specified index
+	 * can't be read (or written).
+	 * 
+	 * @param index
+	 * @param write
+	 *            true if the property was written
+	 * @return the exception to throw
+	 */
+	protected IllegalArgumentException newAccessException(int index,
+			boolean write) {
+		String access = write ? "writable" : "readable";
+		if ((index < 0) || (index >= m_properties.length)) {
+			return new IllegalArgumentException("No property at index: "
+					+ index + " in class: " + m_beanType.getName() + '.');
+		}
+		return new IllegalArgumentException("Property not " + access + ": "
+				+ m_properties[index].getName() + " in class: "
+				+ m_beanType.getName() + '.');
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.bean;
+
+import java.lang.reflect.Method;
+
+/**
+ * Describes a property of a bean class: a public getter
+ * (<code>getX()</code>, or <code>isX()</code> for the <code>boolean</code>
+ * properties) and/or a public setter (<code>setX()</code>) of the same type.
+ */
+public final class BeanProperty {
+
+	private final String m_name;
+
+	private final Class<?> m_type;
+
+	private final Method m_readMethod;
+
+	private final Method m_writeMethod;
+
+	BeanProperty(String name, Class<?> type, Method readMethod,
+			Method writeMethod) {
+		m_name = name;
+		m_type = type;
+		m_readMethod = readMethod;
+		m_writeMethod = writeMethod;
+	}
+
+	/**
+	 * Returns the name of the property.
+	 * 
+	 * @return the name of the property
+	 */
+	public String getName() {
+		return m_name;
+	}
+
+	/**
+	 * Returns the type of the property.
+	 * 
+	 * @return the type of the property
+	 */
+	public Class<?> getType() {
+		return m_type;
+	}
+
+	/**
+	 * Returns the getter of the property, or null if the property isn't
+	 * readable.
+	 * 
+	 * @return the getter of the property, or null
+	 */
+	public Method getReadMethod() {
+		return m_readMethod;
+	}
+
+	/**
+	 * Returns the setter of the property, or null if the property isn't
+	 * writable.
+	 * 
+	 * @return the setter of the property, or null
+	 */
+	public Method getWriteMethod() {
+		return m_writeMethod;
+	}
+
+	/**
+	 * Returns true if the property has a getter.
+	 * 
+	 * @return true if the property is readable
+	 */
+	public boolean isReadable() {
+		return m_readMethod != null;
+	}
+
+	/**
+	 * Returns true if the property has a setter.
+	 * 
+	 * @return true if the property is writable
+	 */
+	public boolean isWritable() {
+		return m_writeMethod != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BeanProperty(" + m_name + ", " + m_type.getName() + ")";
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.bean;
+
+/**
+ * Reads and writes the properties of the beans of a class. The properties are
+ * identified by their index (from 0 to <code>getPropertyCount() - 1</code>,
+ * in the alphabetical order of the names) or by their name; the access by
+ * index needs no lookup, so the mapping code should resolve the indexes once
+ * (e.g. for the columns of a result set) and use them for every bean.
+ * <p>
+ * The accessors are obtained from <code>PropertyAccessorManager</code>.
+ * 
+ * @param <T>
+ *            the type of the beans
+ */
+public interface IPropertyAccessor<T> {
+
+	/**
+	 * Returns the class of the beans.
+	 * 
+	 * @return the class of the beans
+	 */
+	Class<T> getBeanType();
+
+	/**
+	 * Returns the number of properties of the beans.
+	 * 
+	 * @return the number of properties
+	 */
+	int getPropertyCount();
+
+	/**
+	 * Returns the property with the specified index.
+	 * 
+	 * @param index
+	 * @return the property with the specified index
+	 */
+	BeanProperty getProperty(int index);
+
+	/**
+	 * Returns the index of the property with the specified name, or -1 if the
+	 * beans have no such property.
+	 * 
+	 * @param name
+	 * @return the index of the property, or -1
+	 */
+	int getPropertyIndex(String name);
+
+	/**
+	 * Returns the value of the specified property of the bean (the primitive
+	 * values are wrapped).
+	 * 
+	 * @param bean
+	 * @param index
+	 *            the index of the property
+	 * @return the value of the property
+	 * @throws IllegalArgumentException
+	 *             if the property isn't readable
+	 */
+	Object getValue(T bean, int index);
+
+	/**
+	 * Sets the value of the specified property of the bean (the primitive
+	 * values are unwrapped).
+	 * 
+	 * @param bean
+	 * @param index
+	 *            the index of the property
+	 * @param value
+	 * @throws IllegalArgumentException
+	 *             if the property isn't writable
+	 */
+	void setValue(T bean, int index, Object value);
+
+	/**
+	 * Returns the value of the property with the specified name.
+	 * 
+	 * @param bean
+	 * @param name
+	 * @return the value of the property
+	 * @throws IllegalArgumentException
+	 *             if the beans have no such readable property
+	 */
+	Object getValue(T bean, String name);
+
+	/**
+	 * Sets the value of the property with the specified name.
+	 * 
+	 * @param bean
+	 * @param name
+	 * @param value
+	 * @throws IllegalArgumentException
+	 *             if the beans have no such writable property
+	 */
+	void setValue(T bean, String name, Object value);
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.bean;
+
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.LoaderClassPath;
+
+/**
+ * Generates property accessor classes using the javassist library. The
+ * <code>getValue()</code> and <code>setValue()</code> methods switch on the
+ * property index and call the getters and the setters directly. The accessor
+ * classes are defined as neighbors of the bean class, like the factories
+ * generated by <code>JavassistFactoryGenerator</code>, and are compiled the
+ * same way: each generation uses a new child of the class pool of the class
+ * loader of the bean class.
+ */
+final class JavassistAccessorGenerator {
+
+	/**
+	 * The class pool of the class loader of the library.
+	 */
+	private static final ClassPool m_classPool = ClassPool.getDefault();
+
+	/**
+	 * The class pools of the other class loaders, guarded by the
+	 * <code>JavassistAccessorGenerator</code> class lock.
+	 */
+	private static final Map<ClassLoader, ClassPool> m_classPools = new WeakHashMap<ClassLoader, ClassPool>();
+
+	/**
+	 * The number of generated accessors.
+	 */
+	private static final AtomicInteger m_numRuntimeAccessors = new AtomicInteger();
+
+	static {
+		m_classPool.insertClassPath(new ClassClassPath(
+				JavassistAccessorGenerator.class));
+	}
+
+	private JavassistAccessorGenerator() {
+	}
+
+	// because of (IPropertyAccessor<T>) cast
+	@SuppressWarnings("unchecked")
+	static <T> IPropertyAccessor<T> generateAccessor(Class<T> type,
+			BeanProperty[] properties) {
+		String typeName = type.getName();
+		StringBuilder getBody = new StringBuilder("{ switch ($2) { ");
+		StringBuilder setBody = new StringBuilder("{ switch ($2) { ");
+		for (int i = 0; i < properties.length; i++) {
+			BeanProperty property = properties[i];
+			String bean = "((" + typeName + ") $1).";
+			if (property.isReadable()) {
+				getBody.append("case ").append(i).append(": return ($w) ")
+						.append(bean).append(
+								property.getReadMethod().getName()).append(
+								"(); ");
+			}
+			if (property.isWritable()) {
+				setBody.append("case ").append(i).append(": ").append(bean)
+						.append(property.getWriteMethod().getName()).append(
+								'(').append(
+								getUnwrapSource(property.getType(), "$3"))
+						.append("); return; ");
+			}
+		}
+		getBody.append("} throw newAccessException($2, false); }");
+		setBody.append("} throw newAccessException($2, true); }");
+
+		// a new class pool for this generation (the generated class is not
+		// added to the shared class pool)
+		ClassPool classPool = new ClassPool(getClassPool(type
+				.getClassLoader()));
+		String accessorTypeName = typeName + "__RuntimeAccessor"
+				+ m_numRuntimeAccessors.incrementAndGet();
+		try {
+			CtClass ctClass = classPool.makeClass(accessorTypeName);
+			ctClass.setSuperclass(classPool
+					.get(AbstractPropertyAccessor.class.getName()));
+			CtClass ctObject = classPool.get("java.lang.Object");
+			CtClass[] ctConstructorTypes = new CtClass[] {
+					classPool.get("java.lang.Class"),
+					classPool.get(BeanProperty.class.getName() + "[]") };
+			ctClass.addConstructor(CtNewConstructor.make(
+					ctConstructorTypes, new CtClass[0],
+					"{ super($1, $2); }", ctClass));
+			CtMethod ctMethod = new CtMethod(ctObject, "getValue",
+					new CtClass[] { ctObject, CtClass.intType }, ctClass);
+			ctMethod.setBody(getBody.toString());
+			ctClass.addMethod(ctMethod);
+			ctMethod = new CtMethod(CtClass.voidType, "setValue",
+					new CtClass[] { ctObject, CtClass.intType, ctObject },
+					ctClass);
+			ctMethod.setBody(setBody.toString());
+			ctClass.addMethod(ctMethod);
+			// define the accessor as a neighbor of the bean class
+			Class<?> accessorType = ctClass.toClass(type);
+			ctClass.detach();
+			return (IPropertyAccessor<T>) accessorType.getConstructor(
+					Class.class, BeanProperty[].class).newInstance(type,
+					properties);
+		} catch (Exception e) {
+			throw new RuntimeException(
+					"Error creating property accessor for class: "
+							+ typeName + '.', e);
+		}
+	}
+
+	/**
+	 * Returns the class pool of the specified class loader.
+	 * 
+	 * @param classLoader
+	 * @return the class pool of the specified class loader
+	 */
+	private static synchronized ClassPool getClassPool(ClassLoader classLoader) {
+		if ((classLoader == null)
+				|| (classLoader == JavassistAccessorGenerator.class
+						.getClassLoader())) {
+			return m_classPool;
+		}
+		ClassPool classPool = m_classPools.get(classLoader);
+		if (classPool == null) {
+			classPool = new ClassPool(m_classPool);
+			// LoaderClassPath references the class loader weakly
+			classPool.appendClassPath(new LoaderClassPath(classLoader));
+			m_classPools.put(classLoader, classPool);
+		}
+		return classPool;
+	}
+
+	/**
+	 * Returns the source code converting the specified <code>Object</code>
+	 * expression to the specified type (the primitive types are unwrapped).
+	 * 
+	 * @param type
+	 * @param expression
+	 * @return the source code of the conversion
+	 */
+	private static String getUnwrapSource(Class<?> type, String expression) {
+		if (type.isPrimitive()) {
+			Class<?> wrapperType = MethodType.methodType(type).wrap()
+					.returnType();
+			return "((" + wrapperType.getName() + ") " + expression + ")."
+					+ type.getName() + "Value()";
+		}
+		return "(" + toSourceName(type) + ") " + expression;
+	}
+
+	/**
+	 * Returns the name of the specified type as it is written in the source
+	 * code (Eg. "int[]" instead of "[I"), as expected by the javassist
+	 * compiler.
+	 * 
+	 * @param type
+	 * @return the name of the specified type as it is written in the source
+	 */
+	private static String toSourceName(Class<?> type) {
+		if (type.isArray()) {
+			return toSourceName(type.getComponentType()) + "[]";
+		}
+		return type.getName();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.bean;
+
+/**
+ * Creates and caches the property accessors of the bean classes. The
+ * accessors are generated by javassist (see
+ * <code>JavassistAccessorGenerator</code>), so the properties are read and
+ * written by direct calls to the getters and setters; if the generation
+ * fails, the accessor calls the methods by reflection.
+ * <p>
+ * The accessors are cached per bean class (by a <code>ClassValue</code>), so
+ * they are unloaded together with the class.
+ * <p>
+ * Usage example:
+ * 
+ * <pre>
+ * IPropertyAccessor&lt;Person&gt; accessor = PropertyAccessorManager
+ * 		.getAccessor(Person.class);
+ * int nameIndex = accessor.getPropertyIndex(&quot;name&quot;);
+ * for (...) {
+ * 	accessor.setValue(person, nameIndex, resultSet.getString(1));
+ * }
+ * </pre>
+ */
+public final class PropertyAccessorManager {
+
+	private static final ClassValue<IPropertyAccessor<?>> m_accessors = new ClassValue<IPropertyAccessor<?>>() {
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.ClassValue#computeValue(java.lang.Class)
+		 */
+		@Override
+		protected IPropertyAccessor<?> computeValue(Class<?> type) {
+			return newAccessor(type);
+		}
+	};
+
+	private PropertyAccessorManager() {
+	}
+
+	/**
+	 * Returns the (cached) property accessor of the specified bean class.
+	 * 
+	 * @param <T>
+	 * @param type
+	 *            the bean class
+	 * @return the property accessor of the class
+	 */
+	// because of (IPropertyAccessor<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> IPropertyAccessor<T> getAccessor(Class<T> type) {
+		return (IPropertyAccessor<T>) m_accessors.get(type);
+	}
+
+	/**
+	 * Returns the properties of the specified bean class, sorted by name (the
+	 * index of a property is its position in the array).
+	 * 
+	 * @param type
+	 * @return the properties of the class
+	 */
+	public static BeanProperty[] getProperties(Class<?> type) {
+		IPropertyAccessor<?> accessor = getAccessor(type);
+		BeanProperty[] properties = new BeanProperty[accessor
+				.getPropertyCount()];
+		for (int i = 0; i < properties.length; i++) {
+			properties[i] = accessor.getProperty(i);
+		}
+		return properties;
+	}
+
+	/**
+	 * Creates an (uncached) accessor calling the getters and the setters of
+	 * the specified class by reflection.
+	 * 
+	 * @param <T>
+	 * @param type
+	 * @return a new reflection property accessor
+	 */
+	public static <T> IPropertyAccessor<T> newReflectionAccessor(Class<T> type) {
+		return new ReflectionPropertyAccessor<T>(type, PropertyIntrospector
+				.getProperties(type));
+	}
+
+	private static <T> IPropertyAccessor<T> newAccessor(Class<T> type) {
+		BeanProperty[] properties = PropertyIntrospector.getProperties(type);
+		try {
+			return JavassistAccessorGenerator
+					.generateAccessor(type, properties);
+		} catch (RuntimeException e) {
+			return new ReflectionPropertyAccessor<T>(type, properties);
+		} catch (LinkageError e) {
+			// the javassist library is not available
+			return new ReflectionPropertyAccessor<T>(type, properties);
+		}
+	}
+}
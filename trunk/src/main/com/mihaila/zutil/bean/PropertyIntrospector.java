@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.bean;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds the properties of the bean classes.
+ */
+final class PropertyIntrospector {
+
+	private PropertyIntrospector() {
+	}
+
+	/**
+	 * Returns the properties of the specified class, sorted by name. A
+	 * property is defined by a public non-static getter and/or setter; a
+	 * setter whose parameter type differs from the return type of the getter
+	 * is ignored. The <code>isX()</code> getter is preferred to a boolean
+	 * <code>getX()</code> getter (whatever the order of the methods).
+	 * 
+	 * @param type
+	 * @return the properties of the specified class
+	 */
+	static BeanProperty[] getProperties(Class<?> type) {
+		Map<String, Method> readMethods = new TreeMap<String, Method>();
+		Map<String, Method> writeMethods = new TreeMap<String, Method>();
+		for (Method method : type.getMethods()) {
+			if (Modifier.isStatic(method.getModifiers())
+					|| method.isBridge()
+					|| (method.getDeclaringClass() == Object.class)) {
+				continue;
+			}
+			String methodName = method.getName();
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			Class<?> returnType = method.getReturnType();
+			if (parameterTypes.length == 0) {
+				if ((methodName.length() > 3) && methodName.startsWith("get")
+						&& (returnType != void.class)) {
+					String name = toPropertyName(methodName, 3);
+					if ((returnType != boolean.class)
+							|| !readMethods.containsKey(name)) {
+						readMethods.put(name, method);
+					}
+				} else if ((methodName.length() > 2)
+						&& methodName.startsWith("is")
+						&& (returnType == boolean.class)) {
+					String name = toPropertyName(methodName, 2);
+					Method readMethod = readMethods.get(name);
+					if ((readMethod == null)
+							|| (readMethod.getReturnType() == boolean.class)) {
+						readMethods.put(name, method);
+					}
+				}
+			} else if ((parameterTypes.length == 1)
+					&& (methodName.length() > 3) && methodName.startsWith("set")) {
+				String name = toPropertyName(methodName, 3);
+				Method writeMethod = writeMethods.get(name);
+				// a deterministic choice among the overloaded setters; the
+				// setter of a readable property must match the getter type
+				if ((writeMethod == null)
+						|| (writeMethod.getParameterTypes()[0].getName()
+								.compareTo(parameterTypes[0].getName()) > 0)) {
+					writeMethods.put(name, method);
+				}
+			}
+		}
+		Map<String, BeanProperty> properties = new TreeMap<String, BeanProperty>();
+		for (Map.Entry<String, Method> entry : readMethods.entrySet()) {
+			Method readMethod = entry.getValue();
+			Class<?> propertyType = readMethod.getReturnType();
+			Method writeMethod = null;
+			if (writeMethods.containsKey(entry.getKey())) {
+				writeMethod = getWriteMethod(type, writeMethods.get(
+						entry.getKey()).getName(), propertyType);
+			}
+			properties.put(entry.getKey(), new BeanProperty(entry.getKey(),
+					propertyType, readMethod, writeMethod));
+		}
+		for (Map.Entry<String, Method> entry : writeMethods.entrySet()) {
+			if (!properties.containsKey(entry.getKey())) {
+				Method writeMethod = entry.getValue();
+				properties.put(entry.getKey(), new BeanProperty(entry
+						.getKey(), writeMethod.getParameterTypes()[0], null,
+						writeMethod));
+			}
+		}
+		return properties.values().toArray(
+				new BeanProperty[properties.size()]);
+	}
+
+	private static Method getWriteMethod(Class<?> type, String methodName,
+			Class<?> propertyType) {
+		try {
+			Method method = type.getMethod(methodName, propertyType);
+			return Modifier.isStatic(method.getModifiers()) ? null : method;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the property name of an accessor method name: the name without
+	 * the prefix, with the first character in lower case, unless the first
+	 * two characters are upper case (e.g. <code>getURL()</code> defines the
+	 * <code>URL</code> property).
+	 * 
+	 * @param methodName
+	 * @param prefixLength
+	 * @return the property name
+	 */
+	static String toPropertyName(String methodName, int prefixLength) {
+		String name = methodName.substring(prefixLength);
+		if ((name.length() > 1) && Character.isUpperCase(name.charAt(0))
+				&& Character.isUpperCase(name.charAt(1))) {
+			return name;
+		}
+		return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.bean;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import com.mihaila.zutil.lang.WrappedInRuntimeException;
+
+/**
+ * Property accessor calling the getters and the setters by reflection. It is
+ * used when an accessor class can't be generated.
+ */
+class ReflectionPropertyAccessor<T> extends AbstractPropertyAccessor<T> {
+
+	private final Method[] m_readMethods;
+
+	private final Method[] m_writeMethods;
+
+	ReflectionPropertyAccessor(Class<T> beanType, BeanProperty[] properties) {
+		super(beanType, properties);
+		m_readMethods = new Method[properties.length];
+		m_writeMethods = new Method[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			m_readMethods[i] = accessible(properties[i].getReadMethod());
+			m_writeMethods[i] = accessible(properties[i].getWriteMethod());
+		}
+	}
+
+	private static Method accessible(Method method) {
+		if (method != null) {
+			try {
+				// the public methods of the non-public classes
+				method.setAccessible(true);
+			} catch (RuntimeException e) {
+				// the public methods of the public classes remain callable
+			}
+		}
+		return method;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#getValue(java.lang.Object,
+	 *      int)
+	 */
+	public Object getValue(T bean, int index) {
+		Method method = ((index >= 0) && (index < m_readMethods.length)) ? m_readMethods[index]
+				: null;
+		if (method == null) {
+			throw newAccessException(index, false);
+		}
+		return invoke(method, bean);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.bean.IPropertyAccessor#setValue(java.lang.Object,
+	 *      int, java.lang.Object)
+	 */
+	public void setValue(T bean, int index, Object value) {
+		Method method = ((index >= 0) && (index < m_writeMethods.length)) ? m_writeMethods[index]
+				: null;
+		if (method == null) {
+			throw newAccessException(index, true);
+		}
+		invoke(method, bean, value);
+	}
+
+	private static Object invoke(Method method, Object bean, Object... args) {
+		try {
+			return method.invoke(bean, args);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new WrappedInRuntimeException(e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new WrappedInRuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The asynchronous generation mode of <code>FactoryManager</code>: the
+ * factories used until the generations complete (reflective factories) and
+ * the executor generating the runtime factories that replace them.
+ * <p>
+ * The reflective factories accept the same constructors as the other
+ * generators (see <code>GeneratorUtil.getConstructor()</code>), so a type
+ * gets a fallback factory only if its constructor can be called by the
+ * generated factory. If the generation still fails, the fallback factory is
+ * removed and the next factories of the type are generated synchronously, so
+ * the failure is thrown to the caller as in the synchronous mode.
+ */
+class AsyncFactoryGeneration {
+
+	/**
+	 * If true, the runtime factories are generated by m_executor, and
+	 * reflective factories are used until they are ready.
+	 */
+	private volatile boolean m_enabled;
+
+	/**
+	 * Executes the asynchronous generations. The default executor is created
+	 * when it is first needed.
+	 */
+	private Executor m_executor;
+
+	/**
+	 * Creates the factories used until the asynchronous generations complete.
+	 */
+	private final IFactoryGenerator m_fallbackGenerator = new ReflectionFactoryGenerator();
+
+	/**
+	 * The number of scheduled asynchronous generations not completed yet.
+	 */
+	private final AtomicInteger m_pendingCount = new AtomicInteger();
+
+	/**
+	 * The types whose asynchronous generation failed, weakly referenced.
+	 */
+	private final Set<Class<?>> m_failedTypes = Collections
+			.synchronizedSet(Collections
+					.newSetFromMap(new WeakHashMap<Class<?>, Boolean>()));
+
+	boolean isEnabled() {
+		return m_enabled;
+	}
+
+	void setEnabled(boolean enabled) {
+		m_enabled = enabled;
+	}
+
+	/**
+	 * Returns the executor of the asynchronous generations, creating the
+	 * default one (a pool of at most 4 daemon threads, which are stopped when
+	 * idle) if needed.
+	 * 
+	 * @return the executor of the asynchronous generations
+	 */
+	synchronized Executor getExecutor() {
+		if (m_executor == null) {
+			int numThreads = Math.max(1, Math.min(4, Runtime.getRuntime()
+					.availableProcessors() / 2));
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads,
+					numThreads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger m_numThreads = new AtomicInteger();
+
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"zutil-factory-generator-"
+											+ m_numThreads.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			m_executor = executor;
+		}
+		return m_executor;
+	}
+
+	synchronized void setExecutor(Executor executor) {
+		m_executor = executor;
+	}
+
+	int getPendingCount() {
+		return m_pendingCount.get();
+	}
+
+	/**
+	 * Returns true if the factory of the specified type can be generated
+	 * asynchronously (the mode is enabled and no asynchronous generation of
+	 * the type failed).
+	 * 
+	 * @param klass
+	 * @return true if the factory of the type can be generated asynchronously
+	 */
+	boolean isEnabled(Class<?> klass) {
+		return m_enabled && !m_failedTypes.contains(klass);
+	}
+
+	/**
+	 * Returns the factory used for the specified type until its asynchronous
+	 * generation completes.
+	 * 
+	 * @param klass
+	 * @return a reflective factory of the specified type
+	 * @throws RuntimeException
+	 *             if the constructor of the type can't be called by a
+	 *             generated factory
+	 */
+	<T> IFactory<T> newFallbackFactory(Class<T> klass) {
+		return m_fallbackGenerator.generateFactory(klass);
+	}
+
+	/**
+	 * Generates the factory of the specified type by the executor (or by the
+	 * calling thread, if the executor rejects it). The generated factory
+	 * replaces the specified fallback factory, if it is still registered. If
+	 * the generation fails (the failure is counted by
+	 * <code>FactoryManager.generateRuntimeFactory()</code>), the fallback
+	 * factory is removed.
+	 * 
+	 * @param klass
+	 * @param fallbackFactory
+	 */
+	void schedule(final Class<?> klass, final IFactory<?> fallbackFactory) {
+		m_pendingCount.incrementAndGet();
+		Runnable generation = new Runnable() {
+			public void run() {
+				try {
+					IFactory<?> factory;
+					try {
+						factory = FactoryManager.generateRuntimeFactory(klass);
+					} catch (RuntimeException e) {
+						m_failedTypes.add(klass);
+						factory = null;
+					}
+					FactoryManager.replaceFactory(klass, fallbackFactory,
+							factory);
+				} finally {
+					m_pendingCount.decrementAndGet();
+				}
+			}
+		};
+		try {
+			getExecutor().execute(generation);
+		} catch (RejectedExecutionException e) {
+			generation.run();
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps class names to the classes registered in <code>FactoryManager</code>
+ * that were loaded by class loaders other than the <code>FactoryManager</code>
+ * class loader (and its ancestors), partitioned by class loader. The class
+ * loaders are weak keys and the classes are weak values, so the partitions
+ * don't prevent unloading the classes and their class loaders (the factories
+ * of these classes are stored in the classes themselves, by a
+ * <code>ClassValue</code>).
+ * <p>
+ * The lookups don't lock (they are done on each miss of the registry by
+ * name); the updates are serialized.
+ */
+class ClassLoaderPartitions {
+
+	/**
+	 * Weak key of a class loader, compared by identity. The lookup keys are
+	 * not registered with the reference queue.
+	 */
+	private static final class LoaderKey extends WeakReference<ClassLoader> {
+
+		private final int m_hashCode;
+
+		LoaderKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+			super(classLoader, queue);
+			m_hashCode = System.identityHashCode(classLoader);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return m_hashCode;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof LoaderKey)) {
+				return false;
+			}
+			// the cleared keys are equal only to themselves
+			ClassLoader classLoader = get();
+			return (classLoader != null)
+					&& (classLoader == ((LoaderKey) obj).get());
+		}
+	}
+
+	private final ClassLoader m_registryClassLoader;
+
+	private final ConcurrentHashMap<LoaderKey, ConcurrentHashMap<String, WeakReference<Class<?>>>> m_partitions = new ConcurrentHashMap<LoaderKey, ConcurrentHashMap<String, WeakReference<Class<?>>>>();
+
+	/**
+	 * The keys of the unloaded class loaders, removed by the next update.
+	 */
+	private final ReferenceQueue<ClassLoader> m_queue = new ReferenceQueue<ClassLoader>();
+
+	/**
+	 * @param registryClassLoader
+	 *            the class loader of the registry (its classes and the classes
+	 *            of its ancestors are not partitioned)
+	 */
+	ClassLoaderPartitions(ClassLoader registryClassLoader) {
+		m_registryClassLoader = registryClassLoader;
+	}
+
+	/**
+	 * Returns true if the specified class was loaded by a class loader other
+	 * than the registry class loader and its ancestors.
+	 * 
+	 * @param klass
+	 * @return true if the specified class must be partitioned
+	 */
+	boolean isPartitioned(Class<?> klass) {
+		ClassLoader classLoader = klass.getClassLoader();
+		if (classLoader == null) {
+			return false;
+		}
+		for (ClassLoader loader = m_registryClassLoader; loader != null; loader = loader
+				.getParent()) {
+			if (loader == classLoader) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the specified class to the partition of its class loader.
+	 * 
+	 * @param klass
+	 */
+	synchronized void add(Class<?> klass) {
+		expungeStaleEntries();
+		ClassLoader classLoader = klass.getClassLoader();
+		ConcurrentHashMap<String, WeakReference<Class<?>>> partition = m_partitions
+				.get(new LoaderKey(classLoader, null));
+		if (partition == null) {
+			partition = new ConcurrentHashMap<String, WeakReference<Class<?>>>();
+			m_partitions.put(new LoaderKey(classLoader, m_queue), partition);
+		}
+		partition.put(klass.getName(), new WeakReference<Class<?>>(klass));
+	}
+
+	/**
+	 * Removes the specified class from the partition of its class loader.
+	 * 
+	 * @param klass
+	 */
+	synchronized void remove(Class<?> klass) {
+		expungeStaleEntries();
+		ConcurrentHashMap<String, WeakReference<Class<?>>> partition = m_partitions
+				.get(new LoaderKey(klass.getClassLoader(), null));
+		if (partition != null) {
+			WeakReference<Class<?>> reference = partition.get(klass
+					.getName());
+			if ((reference != null) && (reference.get() == klass)) {
+				partition.remove(klass.getName());
+			}
+		}
+	}
+
+	/**
+	 * Returns the class with the specified name, registered in the partition
+	 * of the specified class loader or of one of its ancestors.
+	 * 
+	 * @param classLoader
+	 * @param name
+	 * @return the class with the specified name, or null if it is not found
+	 */
+	Class<?> get(ClassLoader classLoader, String name) {
+		if (m_partitions.isEmpty()) {
+			return null;
+		}
+		for (ClassLoader loader = classLoader; (loader != null)
+				&& (loader != m_registryClassLoader); loader = loader
+				.getParent()) {
+			ConcurrentHashMap<String, WeakReference<Class<?>>> partition = m_partitions
+					.get(new LoaderKey(loader, null));
+			if (partition != null) {
+				WeakReference<Class<?>> reference = partition.get(name);
+				if (reference != null) {
+					return reference.get();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes all the partitions.
+	 */
+	synchronized void clear() {
+		m_partitions.clear();
+		expungeStaleEntries();
+	}
+
+	/**
+	 * Removes the partitions of the unloaded class loaders.
+	 */
+	private void expungeStaleEntries() {
+		Reference<? extends ClassLoader> key;
+		while ((key = m_queue.poll()) != null) {
+			m_partitions.remove(key);
+		}
+	}
+}
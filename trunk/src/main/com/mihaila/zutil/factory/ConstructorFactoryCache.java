@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The factories returned by
+ * <code>FactoryManager.getConstructorFactory()</code> (calling constructors
+ * with parameters), stored in the constructed classes and keyed by the
+ * factory interface followed by the constructor parameter types.
+ */
+class ConstructorFactoryCache {
+
+	private final ClassValue<ConcurrentHashMap<List<Class<?>>, Object>> m_factories = new ClassValue<ConcurrentHashMap<List<Class<?>>, Object>>() {
+		@Override
+		protected ConcurrentHashMap<List<Class<?>>, Object> computeValue(
+				Class<?> type) {
+			return new ConcurrentHashMap<List<Class<?>>, Object>(4);
+		}
+	};
+
+	/**
+	 * Returns the factory implementing the specified factory interface, which
+	 * calls the constructor of the specified type having the specified
+	 * parameter types, generating it by the specified generator if needed.
+	 * 
+	 * @param factoryInterface
+	 * @param klass
+	 * @param parameterTypes
+	 * @param generator
+	 *            null if the factory must not be generated
+	 * @return the factory, null if it was not generated yet and generator is
+	 *         null
+	 */
+	Object get(final Class<?> factoryInterface, final Class<?> klass,
+			final Class<?>[] parameterTypes,
+			final IFactoryGenerator generator) {
+		ConcurrentHashMap<List<Class<?>>, Object> factories = m_factories
+				.get(klass);
+		Class<?>[] key = new Class<?>[parameterTypes.length + 1];
+		key[0] = factoryInterface;
+		System.arraycopy(parameterTypes, 0, key, 1, parameterTypes.length);
+		List<Class<?>> keyList = Arrays.asList(key);
+		Object factory = factories.get(keyList);
+		if ((factory == null) && (generator != null)) {
+			factory = factories.computeIfAbsent(keyList,
+					new Function<List<Class<?>>, Object>() {
+						public Object apply(List<Class<?>> k) {
+							long start = System.nanoTime();
+							try {
+								Object factory = generator.generateFactory(
+										factoryInterface, klass,
+										parameterTypes);
+								FactoryManager.recordGeneration(start, true);
+								return factory;
+							} catch (RuntimeException e) {
+								FactoryManager.recordGeneration(start, false);
+								throw e;
+							}
+						}
+					});
+		}
+		return factory;
+	}
+
+}
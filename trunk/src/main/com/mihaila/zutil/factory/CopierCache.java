@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The copiers returned by <code>FactoryManager.getCopier()</code>, stored in
+ * the copied classes (so they don't prevent class unloading) and indexed by
+ * <code>CopyPolicy</code> ordinal.
+ */
+class CopierCache {
+
+	private final ClassValue<AtomicReferenceArray<ICopier<?>>> m_copiers = new ClassValue<AtomicReferenceArray<ICopier<?>>>() {
+		@Override
+		protected AtomicReferenceArray<ICopier<?>> computeValue(Class<?> type) {
+			return new AtomicReferenceArray<ICopier<?>>(CopyPolicy.values().length);
+		}
+	};
+
+	/**
+	 * Returns the copier of the specified type with the specified policy,
+	 * generating it by the specified generator if needed.
+	 * 
+	 * @param klass
+	 * @param policy
+	 * @param generator
+	 * @return the copier of the specified type
+	 */
+	ICopier<?> get(Class<?> klass, CopyPolicy policy,
+			IFactoryGenerator generator) {
+		AtomicReferenceArray<ICopier<?>> copiers = m_copiers.get(klass);
+		int index = policy.ordinal();
+		ICopier<?> copier = copiers.get(index);
+		if (copier == null) {
+			long start = System.nanoTime();
+			try {
+				copier = generator.generateCopier(klass, policy);
+				FactoryManager.recordGeneration(start, true);
+			} catch (RuntimeException e) {
+				FactoryManager.recordGeneration(start, false);
+				throw e;
+			}
+			// if another thread published a copier first, it is used
+			if (!copiers.compareAndSet(index, null, copier)) {
+				copier = copiers.get(index);
+			}
+		}
+		return copier;
+	}
+
+}
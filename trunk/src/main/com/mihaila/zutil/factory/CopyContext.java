@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The state of a deep copy: the copies made so far, keyed by the original
+ * objects (by identity), so the objects referenced more times (and the
+ * cycles) are copied only once.
+ * <p>
+ * The values are copied as follows: the immutable values (strings, boxed
+ * primitives, enums, classes, <code>BigInteger</code>,
+ * <code>BigDecimal</code>, <code>UUID</code>, <code>URI</code>,
+ * <code>Locale</code> and <code>java.time</code> objects) are shared; the
+ * arrays are copied element by element; the objects of the JDK classes, whose
+ * fields can't be accessed, are copied as follows: the collections and the
+ * maps are copied element by element, into a clone (or a new instance) of
+ * their class, the other objects are cloned if they are
+ * <code>Cloneable</code>, the other ones can't be copied (an
+ * <code>IllegalArgumentException</code> is thrown); the other objects are
+ * copied by the deep copier of their class
+ * (<code>FactoryManager.getCopier()</code>).
+ */
+public final class CopyContext {
+
+	private final Map<Object, Object> m_copies = new IdentityHashMap<Object, Object>();
+
+	/**
+	 * Registers the copy of the specified object.
+	 * 
+	 * @param original
+	 * @param copy
+	 */
+	public void put(Object original, Object copy) {
+		m_copies.put(original, copy);
+	}
+
+	/**
+	 * Returns the deep copy of the specified value, copying it if it was not
+	 * copied yet in this context.
+	 * 
+	 * @param value
+	 * @return the copy of the specified value
+	 */
+	// because of (ICopier<Object>) cast
+	@SuppressWarnings("unchecked")
+	public Object copy(Object value) {
+		if (value == null) {
+			return null;
+		}
+		Class<?> klass = value.getClass();
+		if (isImmutable(klass)) {
+			return value;
+		}
+		Object copy = m_copies.get(value);
+		if (copy != null) {
+			return copy;
+		}
+		if (klass.isArray()) {
+			return copyArray(value, klass.getComponentType());
+		}
+		ClassLoader classLoader = klass.getClassLoader();
+		if ((classLoader == null)
+				|| (classLoader == ClassLoader.getPlatformClassLoader())) {
+			return copyJdkObject(value);
+		}
+		return ((ICopier<Object>) FactoryManager.getCopier(klass,
+				CopyPolicy.DEEP)).copy(value, this);
+	}
+
+	private Object copyArray(Object array, Class<?> componentType) {
+		int length = Array.getLength(array);
+		Object copy = Array.newInstance(componentType, length);
+		put(array, copy);
+		if (componentType.isPrimitive()) {
+			System.arraycopy(array, 0, copy, 0, length);
+		} else {
+			Object[] source = (Object[]) array;
+			Object[] destination = (Object[]) copy;
+			for (int i = 0; i < length; i++) {
+				destination[i] = copy(source[i]);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Copies an object of a JDK class (not immutable): the elements of the
+	 * collections and of the maps are copied by this context, the other
+	 * objects are cloned.
+	 * 
+	 * @param value
+	 * @return the copy of the specified object
+	 */
+	// because of (Collection<Object>) and (Map<Object, Object>) casts
+	@SuppressWarnings("unchecked")
+	private Object copyJdkObject(Object value) {
+		if (value instanceof Collection<?>) {
+			Collection<Object> copy = (Collection<Object>) newEmptyCopy(value);
+			put(value, copy);
+			for (Object element : (Collection<?>) value) {
+				copy.add(copy(element));
+			}
+			return copy;
+		}
+		if (value instanceof Map<?, ?>) {
+			Map<Object, Object> copy = (Map<Object, Object>) newEmptyCopy(value);
+			put(value, copy);
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				copy.put(copy(entry.getKey()), copy(entry.getValue()));
+			}
+			return copy;
+		}
+		Object copy = (value.getClass() == Object.class) ? new Object()
+				: cloneJdkObject(value);
+		if (copy == null) {
+			throw new IllegalArgumentException(
+					"Cannot copy the object of the JDK class: "
+							+ value.getClass().getName());
+		}
+		put(value, copy);
+		return copy;
+	}
+
+	/**
+	 * Returns an empty collection (or map) of the class of the specified one:
+	 * a cleared clone (which keeps the settings of the original, Eg. the
+	 * comparator), or a new instance created by the public default
+	 * constructor.
+	 * 
+	 * @param value
+	 *            a collection or a map
+	 * @return an empty collection (or map) of the same class
+	 */
+	private static Object newEmptyCopy(Object value) {
+		Object copy = cloneJdkObject(value);
+		if (copy instanceof Collection<?>) {
+			((Collection<?>) copy).clear();
+			return copy;
+		}
+		if (copy instanceof Map<?, ?>) {
+			((Map<?, ?>) copy).clear();
+			return copy;
+		}
+		try {
+			return value.getClass().getConstructor().newInstance();
+		} catch (Exception e) {
+			// Eg. an unmodifiable collection
+			throw new IllegalArgumentException(
+					"Cannot copy the object of the JDK class: "
+							+ value.getClass().getName(), e);
+		}
+	}
+
+	/**
+	 * Returns a clone of the specified object, if its class has a public
+	 * clone method, null otherwise.
+	 * 
+	 * @param value
+	 * @return the clone of the specified object, or null
+	 */
+	private static Object cloneJdkObject(Object value) {
+		if (value instanceof Cloneable) {
+			try {
+				Method cloneMethod = value.getClass().getMethod("clone");
+				return cloneMethod.invoke(value);
+			} catch (Exception e) {
+				// not cloneable by a public method
+			}
+		}
+		return null;
+	}
+
+	private static boolean isImmutable(Class<?> klass) {
+		return (klass == String.class) || (klass == Integer.class)
+				|| (klass == Long.class) || (klass == Double.class)
+				|| (klass == Boolean.class) || (klass == Character.class)
+				|| (klass == Byte.class) || (klass == Short.class)
+				|| (klass == Float.class) || (klass == Class.class)
+				|| (klass == BigInteger.class) || (klass == BigDecimal.class)
+				|| (klass == UUID.class) || (klass == URI.class)
+				|| (klass == Locale.class) || Enum.class.isAssignableFrom(klass)
+				|| klass.getName().startsWith("java.time.");
+	}
+}
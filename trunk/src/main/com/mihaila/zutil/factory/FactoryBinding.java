@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+/**
+ * Binding of an interface (or base class) to the implementation created by
+ * the <code>FactoryManager</code> for the interface name, created by
+ * <code>FactoryManager.bind()</code>. Each binding has a dedicated factory
+ * and an invoker method handle, linked to the implementation constructor
+ * through a <code>MutableCallSite</code>. Stored in a
+ * <code>static final</code> field, the invoker is a constant for the JIT, so
+ * the constructor call can be inlined in the caller:
+ * 
+ * <pre>
+ * static final MethodHandle NEW_SERVICE = FactoryManager.bind(
+ * 		IService.class, ServiceImpl.class).getInvoker();
+ * ...
+ * IService service = (IService) NEW_SERVICE.invokeExact();
+ * </pre>
+ * 
+ * Rebinding the interface (or registering another factory for its name)
+ * changes the call site target; the code compiled with the old target is
+ * deoptimized. After <code>FactoryManager.clear()</code> the invoker returns
+ * null.
+ * 
+ * @param <I>
+ *            the bound interface
+ */
+public final class FactoryBinding<I> {
+
+	private static final MethodHandle FACTORY_NEW_INSTANCE;
+
+	static {
+		try {
+			FACTORY_NEW_INSTANCE = MethodHandles.publicLookup().findVirtual(
+					IFactory.class, "newInstance",
+					MethodType.methodType(Object.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final Class<I> m_interface;
+
+	private final MutableCallSite m_callSite;
+
+	private final MethodHandle m_invoker;
+
+	private volatile Class<? extends I> m_implementation;
+
+	private volatile IFactory<? extends I> m_factory;
+
+	FactoryBinding(Class<I> bindingInterface) {
+		m_interface = bindingInterface;
+		m_callSite = new MutableCallSite(MethodType
+				.methodType(bindingInterface));
+		m_callSite.setTarget(getNullTarget());
+		m_invoker = m_callSite.dynamicInvoker();
+	}
+
+	/**
+	 * Returns the bound interface.
+	 * 
+	 * @return the bound interface
+	 */
+	public Class<I> getInterface() {
+		return m_interface;
+	}
+
+	/**
+	 * Returns the bound implementation.
+	 * 
+	 * @return the bound implementation, or null if the interface name was
+	 *         associated with another factory after the binding
+	 */
+	public Class<? extends I> getImplementation() {
+		return m_implementation;
+	}
+
+	/**
+	 * Returns the factory currently associated with the interface name (the
+	 * dedicated factory of the implementation, unless another factory was
+	 * registered after the binding).
+	 * 
+	 * @return the factory associated with the interface name
+	 */
+	public IFactory<? extends I> getFactory() {
+		return m_factory;
+	}
+
+	/**
+	 * Returns the invoker of the binding, a method handle of type ()I which
+	 * creates a new object by the current binding. The invoker doesn't change
+	 * when the interface is rebound, so it can be cached in a
+	 * <code>static final</code> field.
+	 * 
+	 * @return the invoker of the binding
+	 */
+	public MethodHandle getInvoker() {
+		return m_invoker;
+	}
+
+	/**
+	 * Binds the interface to the specified implementation.
+	 * 
+	 * @param implementation
+	 * @param factory
+	 *            the factory of the implementation
+	 * @param constructor
+	 *            the default constructor of the implementation, or null if
+	 *            the objects must be created by the factory
+	 */
+	synchronized void bind(Class<? extends I> implementation,
+			IFactory<? extends I> factory, MethodHandle constructor) {
+		m_implementation = implementation;
+		m_factory = factory;
+		setTarget((constructor == null) ? getFactoryTarget(factory)
+				: constructor.asType(m_callSite.type()));
+	}
+
+	/**
+	 * Called when the factory associated with the interface name changes. If
+	 * the factory is not the bound one, the invoker is linked to it.
+	 * 
+	 * @param factory
+	 *            the new factory (null if it was removed)
+	 */
+	// because of (IFactory<? extends I>) cast
+	@SuppressWarnings("unchecked")
+	synchronized void factoryChanged(IFactory<?> factory) {
+		if (factory == m_factory) {
+			return;
+		}
+		m_implementation = null;
+		m_factory = (IFactory<? extends I>) factory;
+		setTarget((factory == null) ? getNullTarget()
+				: getFactoryTarget(factory));
+	}
+
+	private MethodHandle getNullTarget() {
+		return MethodHandles.constant(m_interface, null);
+	}
+
+	private MethodHandle getFactoryTarget(IFactory<?> factory) {
+		return FACTORY_NEW_INSTANCE.bindTo(factory).asType(m_callSite.type());
+	}
+
+	private void setTarget(MethodHandle target) {
+		m_callSite.setTarget(target);
+		// publish the new target to the other threads
+		MutableCallSite.syncAll(new MutableCallSite[] { m_callSite });
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		Class<? extends I> implementation = m_implementation;
+		return "FactoryBinding(" + m_interface.getName() + " -> "
+				+ ((implementation == null) ? m_factory : implementation
+						.getName()) + ")";
+	}
+}
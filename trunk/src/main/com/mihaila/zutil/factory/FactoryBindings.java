@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The <code>FactoryBinding</code> objects created by
+ * <code>FactoryManager.bind()</code>. The bindings of the registry
+ * interfaces are keyed by interface name; the bindings of the partitioned
+ * interfaces are stored by <code>FactoryManager</code> in the interfaces
+ * themselves, and only weakly referenced here (so they can be reset by
+ * <code>clear()</code> without preventing unloading the interfaces).
+ */
+class FactoryBindings {
+
+	/**
+	 * The registry entries (the bindings follow their changes).
+	 */
+	private final Map<String, IFactory<?>> m_factories;
+
+	/**
+	 * The bindings of the registry interfaces, keyed by interface name.
+	 */
+	private final ConcurrentHashMap<String, FactoryBinding<?>> m_bindings = new ConcurrentHashMap<String, FactoryBinding<?>>();
+
+	/**
+	 * The bindings of the partitioned interfaces, weakly referenced.
+	 */
+	private final Set<FactoryBinding<?>> m_partitionedBindings = Collections
+			.synchronizedSet(Collections
+					.newSetFromMap(new WeakHashMap<FactoryBinding<?>, Boolean>()));
+
+	FactoryBindings(Map<String, IFactory<?>> factories) {
+		m_factories = factories;
+	}
+
+	/**
+	 * Returns the binding of the registry interface with the specified name.
+	 * 
+	 * @param key
+	 *            the interface name
+	 * @return the binding of the interface, or null if it was not bound
+	 */
+	FactoryBinding<?> get(String key) {
+		return m_bindings.get(key);
+	}
+
+	/**
+	 * Returns the binding of the specified registry interface, creating it if
+	 * needed.
+	 * 
+	 * @param bindingInterface
+	 * @return the binding of the specified interface
+	 */
+	// because of (FactoryBinding<I>) cast
+	@SuppressWarnings("unchecked")
+	<I> FactoryBinding<I> getOrCreate(Class<I> bindingInterface) {
+		String key = bindingInterface.getName();
+		FactoryBinding<?> binding = m_bindings.get(key);
+		if (binding == null) {
+			FactoryBinding<I> newBinding = new FactoryBinding<I>(
+					bindingInterface);
+			binding = m_bindings.putIfAbsent(key, newBinding);
+			if (binding == null) {
+				return newBinding;
+			}
+		}
+		if (binding.getInterface() != bindingInterface) {
+			throw new IllegalArgumentException("Another interface named "
+					+ key + " is already bound.");
+		}
+		return (FactoryBinding<I>) binding;
+	}
+
+	/**
+	 * Creates the binding of the specified partitioned interface. The caller
+	 * stores it in the interface.
+	 * 
+	 * @param bindingInterface
+	 * @return the new binding
+	 */
+	<I> FactoryBinding<I> newPartitionedBinding(Class<I> bindingInterface) {
+		FactoryBinding<I> binding = new FactoryBinding<I>(bindingInterface);
+		m_partitionedBindings.add(binding);
+		return binding;
+	}
+
+	/**
+	 * Links the invoker of the binding of the specified key (if any) to the
+	 * factory currently associated with the key, unless it is the bound
+	 * factory.
+	 * 
+	 * @param key
+	 */
+	void factoryChanged(String key) {
+		FactoryBinding<?> binding = m_bindings.get(key);
+		if (binding != null) {
+			synchronized (binding) {
+				// the current value is read under the lock, so the last
+				// update wins
+				binding.factoryChanged(m_factories.get(key));
+			}
+		}
+	}
+
+	/**
+	 * Resets all the bindings (they remain valid, their invokers return
+	 * null).
+	 */
+	void clear() {
+		for (FactoryBinding<?> binding : m_bindings.values()) {
+			binding.factoryChanged(null);
+		}
+		List<FactoryBinding<?>> partitionedBindings;
+		synchronized (m_partitionedBindings) {
+			partitionedBindings = new ArrayList<FactoryBinding<?>>(
+					m_partitionedBindings);
+		}
+		for (FactoryBinding<?> binding : partitionedBindings) {
+			binding.factoryChanged(null);
+		}
+	}
+
+	/**
+	 * Returns the default constructor of the specified type as a method
+	 * handle.
+	 * 
+	 * @param klass
+	 * @return the default constructor, or null if it can't be accessed
+	 */
+	static MethodHandle findDefaultConstructor(Class<?> klass) {
+		try {
+			return MethodHandles.privateLookupIn(klass, MethodHandles.lookup())
+					.findConstructor(klass, MethodType.methodType(void.class));
+		} catch (ReflectiveOperationException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			// primitive or array type
+			return null;
+		}
+	}
+
+}
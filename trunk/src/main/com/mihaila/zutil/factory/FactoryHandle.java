@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Typed token identifying a key of the <code>FactoryManager</code> registry.
+ * The handles are returned by <code>FactoryManager.register()</code> and
+ * <code>FactoryManager.getHandle()</code>; each key has a single handle,
+ * which remains valid while the registry is modified. Creating objects by
+ * handle (<code>FactoryManager.newInstance(FactoryHandle)</code>) needs no
+ * hashing and no map lookup, just an array access.
+ * <p>
+ * The handle of a partitioned type (see <code>FactoryManager</code>) is
+ * stored in the type and identifies the type itself, not its name: it has no
+ * slot in the handles table, and its objects are created as by
+ * <code>FactoryManager.newInstance(Class)</code>.
+ * 
+ * @param <T>
+ *            the type of the objects created by the factory
+ */
+public final class FactoryHandle<T> {
+
+	private final int m_id;
+
+	private final String m_key;
+
+	/**
+	 * The type of a partitioned type handle, null for the other handles.
+	 */
+	final Class<T> m_type;
+
+	/**
+	 * The instantiation counter of the key, cached by
+	 * <code>FactoryManager</code> when the statistics are enabled.
+	 */
+	volatile LongAdder m_instantiationCounter;
+
+	FactoryHandle(int id, String key) {
+		m_id = id;
+		m_key = key;
+		m_type = null;
+	}
+
+	FactoryHandle(Class<T> type) {
+		m_id = -1;
+		m_key = type.getName();
+		m_type = type;
+	}
+
+	/**
+	 * Returns the id of the handle, the index of the factory in the handles
+	 * table (-1 for the handle of a partitioned type).
+	 * 
+	 * @return the id of the handle
+	 */
+	public int getId() {
+		return m_id;
+	}
+
+	/**
+	 * Returns the registry key identified by the handle.
+	 * 
+	 * @return the registry key identified by the handle
+	 */
+	public String getKey() {
+		return m_key;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "FactoryHandle(" + m_id + ", " + m_key + ")";
+	}
+}
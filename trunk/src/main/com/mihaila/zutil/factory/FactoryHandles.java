@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The <code>FactoryHandle</code> objects created by
+ * <code>FactoryManager</code> and the factories associated with their keys,
+ * stored in an array indexed by handle id, so
+ * <code>newInstance(FactoryHandle)</code> doesn't need a map lookup. The
+ * array is replaced (copy on write) on each update, under the m_handles lock;
+ * the handles are never removed.
+ */
+class FactoryHandles {
+
+	/**
+	 * The registry entries (the handle factories are copied from them).
+	 */
+	private final Map<String, IFactory<?>> m_factories;
+
+	/**
+	 * The handles created so far, keyed by registry key.
+	 */
+	private final ConcurrentHashMap<String, FactoryHandle<?>> m_handles = new ConcurrentHashMap<String, FactoryHandle<?>>();
+
+	/**
+	 * The factories associated with the handle keys, indexed by handle id.
+	 */
+	private volatile IFactory<?>[] m_handleFactories = new IFactory<?>[0];
+
+	FactoryHandles(Map<String, IFactory<?>> factories) {
+		m_factories = factories;
+	}
+
+	/**
+	 * Returns the factory associated with the key of the specified handle.
+	 * 
+	 * @param handle
+	 * @return the factory associated with the key of the handle, or null
+	 */
+	IFactory<?> getFactory(FactoryHandle<?> handle) {
+		return m_handleFactories[handle.getId()];
+	}
+
+	/**
+	 * Returns the handle of the specified key, creating it if needed.
+	 * 
+	 * @param key
+	 * @return the handle of the specified key
+	 */
+	FactoryHandle<?> getHandle(String key) {
+		FactoryHandle<?> handle = m_handles.get(key);
+		if (handle != null) {
+			return handle;
+		}
+		synchronized (m_handles) {
+			handle = m_handles.get(key);
+			if (handle == null) {
+				IFactory<?>[] handleFactories = m_handleFactories;
+				handle = new FactoryHandle<Object>(handleFactories.length, key);
+				IFactory<?>[] newHandleFactories = new IFactory<?>[handleFactories.length + 1];
+				System.arraycopy(handleFactories, 0, newHandleFactories, 0,
+						handleFactories.length);
+				newHandleFactories[handle.getId()] = m_factories.get(key);
+				m_handleFactories = newHandleFactories;
+				m_handles.put(key, handle);
+			}
+		}
+		return handle;
+	}
+
+	/**
+	 * Copies the factory currently associated with the specified key into the
+	 * handles table, if the key has a handle.
+	 * 
+	 * @param key
+	 */
+	void factoryChanged(String key) {
+		// the handle is looked up under the lock: getHandle() reads the
+		// factory of a new handle before publishing it, so an update made
+		// meanwhile must wait for the handle
+		synchronized (m_handles) {
+			FactoryHandle<?> handle = m_handles.get(key);
+			if (handle != null) {
+				// the current value is read under the lock, so the last
+				// update wins
+				IFactory<?>[] newHandleFactories = m_handleFactories.clone();
+				newHandleFactories[handle.getId()] = m_factories.get(key);
+				m_handleFactories = newHandleFactories;
+			}
+		}
+	}
+
+	/**
+	 * Removes the factories of all the handles (the handles remain valid).
+	 */
+	void clear() {
+		synchronized (m_handles) {
+			m_handleFactories = new IFactory<?>[m_handleFactories.length];
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reader of the factory index (the FACTORY_INDEX_RESOURCE resources listing
+ * the factories generated at compile time for the classes annotated with
+ * <code>GenerateFactory</code>).
+ */
+final class FactoryIndex {
+
+	private FactoryIndex() {
+	}
+
+	/**
+	 * Instantiates the factories listed in the FACTORY_INDEX_RESOURCE
+	 * resources visible from the specified class loader. The entries whose
+	 * factory cannot be loaded or instantiated (e.g. stale entries of removed
+	 * classes) are skipped.
+	 * 
+	 * @param classLoader
+	 * @return the indexed factories, keyed by registry key
+	 */
+	static Map<String, IFactory<?>> readFactories(ClassLoader classLoader) {
+		Map<String, IFactory<?>> factories = new LinkedHashMap<String, IFactory<?>>();
+		try {
+			Enumeration<URL> urls = classLoader
+					.getResources(FactoryManager.FACTORY_INDEX_RESOURCE);
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				Properties index = new Properties();
+				InputStream in = url.openStream();
+				try {
+					index.load(in);
+				} finally {
+					in.close();
+				}
+				for (Map.Entry<Object, Object> entry : index.entrySet()) {
+					String key = (String) entry.getKey();
+					String factoryTypeName = ((String) entry.getValue()).trim();
+					IFactory<?> factory;
+					try {
+						factory = newIndexedFactory(factoryTypeName,
+								classLoader);
+					} catch (RuntimeException e) {
+						continue;
+					}
+					factories.put(key, factory);
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading the factory index: "
+					+ FactoryManager.FACTORY_INDEX_RESOURCE, e);
+		}
+		return factories;
+	}
+
+	/**
+	 * Instantiates a factory generated at compile time.
+	 * 
+	 * @param factoryTypeName
+	 * @param classLoader
+	 * @return the factory object
+	 */
+	private static IFactory<?> newIndexedFactory(String factoryTypeName,
+			ClassLoader classLoader) {
+		try {
+			Class<?> factoryType = Class.forName(factoryTypeName, true,
+					classLoader);
+			return (IFactory<?>) factoryType.getDeclaredConstructor()
+					.newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException("Error creating indexed factory: "
+					+ factoryTypeName + '.', e);
+		} catch (LinkageError e) {
+			throw new RuntimeException("Error creating indexed factory: "
+					+ factoryTypeName + '.', e);
+		}
+	}
+
+}
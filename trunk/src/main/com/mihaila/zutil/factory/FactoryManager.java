@@ -22,12 +22,26 @@
 
 package com.mihaila.zutil.factory;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-import javassist.ClassClassPath;
-import javassist.ClassPool;
-import javassist.CtClass;
-import javassist.CtMethod;
+import javax.management.ObjectName;
+
+import com.mihaila.zutil.ApplicationProperties;
+import com.mihaila.zutil.lang.ICallable1Arg;
+import com.mihaila.zutil.lang.WrappedInRuntimeException;
 
 /**
  * Registry of factory classes (implementers of <code>IFactory</code>. This
@@ -36,9 +50,85 @@ import javassist.CtMethod;
  * <code>RegistryManager</code> can create runtime factory objects for classes
  * with default constructor (via runtime bytecode manipulation. The methods of
  * this class are thread-safe.
+ * <p>
+ * The runtime factories are created by an <code>IFactoryGenerator</code>,
+ * which can be set by <code>setFactoryGenerator()</code> or by the
+ * zutil.factory.generator application property (javassist, methodhandle or
+ * reflection; javassist is the default if it is found in the classpath,
+ * methodhandle otherwise).
+ * <p>
+ * When the class is initialized, the factories generated at compile time for
+ * the classes annotated with <code>GenerateFactory</code> are registered, so
+ * they don't need to be generated at runtime.
+ * <p>
+ * In the asynchronous generation mode (see <code>setAsyncGeneration()</code>
+ * or the zutil.factory.async application property), the first request for a
+ * type doesn't wait for the generation: a reflective factory is registered
+ * immediately, and the generated factory replaces it when it is ready.
+ * <p>
+ * The factories of the types known in advance can be generated at startup by
+ * <code>warmUp()</code>, from a manifest listing the type names. The manifest
+ * can be recorded during a training run (see
+ * <code>setWarmUpRecording()</code>).
+ * <p>
+ * An interface can be bound to an implementation by <code>bind()</code>,
+ * which registers a dedicated factory for the interface name and returns a
+ * <code>FactoryBinding</code>, whose invoker method handle can be cached by
+ * the call sites and inlined by the JIT.
+ * <p>
+ * The copiers created by <code>getCopier()</code> copy objects field by field
+ * (shallow or deep, see <code>CopyPolicy</code>); a prototype factory
+ * (<code>setPrototype()</code>) creates copies of a configured object.
+ * <p>
+ * The registry counts the lookup hits and misses, the generated factories
+ * (with a generation latency histogram) and the instances created by
+ * <code>newInstance()</code> for each type. The counters can be read by
+ * <code>getStatistics()</code> or by JMX (see <code>registerMXBean()</code>)
+ * and can be disabled by <code>setStatisticsEnabled()</code> or by the
+ * zutil.factory.statistics application property.
+ * <p>
+ * The factories of the types loaded by other class loaders than the
+ * <code>FactoryManager</code> class loader (and its ancestors), Eg. the
+ * classes of a redeployed web application or plugin, are stored in the
+ * <code>Class</code> objects of these types, partitioned by class loader, so
+ * the registry doesn't prevent unloading them. The keys of these types are
+ * resolved by the String-keyed methods using the context class loader of the
+ * current thread. The factories registered by key
+ * (<code>setFactory(String, IFactory)</code>) are strongly referenced until
+ * they are removed.
  */
 public class FactoryManager {
 
+	public static final String GENERATOR_JAVASSIST = "javassist";
+
+	public static final String GENERATOR_METHOD_HANDLE = "methodhandle";
+
+	public static final String GENERATOR_REFLECTION = "reflection";
+
+	private static final String FACTORY_GENERATOR_APP_PROPERTY = "zutil.factory.generator";
+
+	private static final String ASYNC_GENERATION_APP_PROPERTY = "zutil.factory.async";
+
+	private static final String STATISTICS_APP_PROPERTY = "zutil.factory.statistics";
+
+	/**
+	 * The name of the <code>FactoryManagerMXBean</code> registered by
+	 * <code>registerMXBean()</code>.
+	 */
+	public static final String MXBEAN_NAME = "com.mihaila.zutil:type=FactoryManager";
+
+	/**
+	 * The resource listing the factories generated at compile time (key =
+	 * factory class name pairs, in <code>Properties</code> format).
+	 */
+	public static final String FACTORY_INDEX_RESOURCE = "META-INF/zutil/factories.properties";
+
+	/**
+	 * The default warm-up manifest resource (a type name or key on each line;
+	 * the empty lines and the lines starting with '#' are ignored).
+	 */
+	public static final String WARM_UP_MANIFEST_RESOURCE = "META-INF/zutil/factory-warmup.txt";
+
 	/**
 	 * Parameters for the m_factories Map. INITIAL_CAPACITY and LOAD_FACTOR are
 	 * the same as the defaults for a <code>SynchronizedHashMap</code>, but
@@ -56,14 +146,100 @@ public class FactoryManager {
 			CONCURRENT_MAP_CONCURRENCY_LEVEL);
 
 	/**
-	 * Used o generate <code>IFactory</code> objects at runtime.
+	 * Incremented after each modification of m_factories. It is used to detect
+	 * stale entries in m_classFactories.
+	 */
+	private static final AtomicInteger m_version = new AtomicInteger();
+
+	/**
+	 * Incremented by <code>clear()</code>. The factories stored in
+	 * m_classFactories for the partitioned types are valid only if they were
+	 * stored with the current value.
+	 */
+	private static final AtomicInteger m_clearCount = new AtomicInteger();
+
+	/**
+	 * The partitioned types, by class loader.
+	 */
+	private static final ClassLoaderPartitions m_partitions = new ClassLoaderPartitions(
+			FactoryManager.class.getClassLoader());
+
+	/**
+	 * Per class cache of the m_factories entries, used by the methods with a
+	 * <code>Class</code> parameter to avoid the <code>getName()</code> call
+	 * and the String-keyed lookup. The cached values are stored in the
+	 * <code>Class</code> objects, so they don't prevent class unloading. The
+	 * factories of the partitioned types are stored only here.
+	 */
+	private static final ClassValue<CachedFactoryHolder> m_classFactories = new ClassValue<CachedFactoryHolder>() {
+		@Override
+		protected CachedFactoryHolder computeValue(Class<?> type) {
+			return new CachedFactoryHolder(m_partitions.isPartitioned(type));
+		}
+	};
+
+	/**
+	 * Per key cache of the m_factories entries and of their instantiation
+	 * counters, used by <code>newInstance(String)</code> to do a single
+	 * lookup per call when the statistics are enabled. Only the keys
+	 * registered in m_factories are cached (not the partitioned types, whose
+	 * factory depends on the context class loader).
+	 */
+	private static final ConcurrentHashMap<String, CachedKeyFactory> m_keyFactories = new ConcurrentHashMap<String, CachedKeyFactory>(
+			CONCURRENT_MAP_INITIAL_CAPACITY, CONCURRENT_MAP_LOAD_FACTOR,
+			CONCURRENT_MAP_CONCURRENCY_LEVEL);
+
+	/**
+	 * The factories calling constructors with parameters.
+	 */
+	private static final ConstructorFactoryCache m_constructorFactories = new ConstructorFactoryCache();
+
+	/**
+	 * The copiers of each class.
+	 */
+	private static final CopierCache m_copiers = new CopierCache();
+
+	/**
+	 * The handles created so far and the factories of their keys.
+	 */
+	private static final FactoryHandles m_handles = new FactoryHandles(
+			m_factories);
+
+	/**
+	 * The bindings created by <code>bind()</code>. The bindings remain valid
+	 * when the registry is cleared. The bindings of the partitioned interfaces
+	 * are stored in the interfaces themselves (in m_classFactories), so they
+	 * don't prevent unloading them.
+	 */
+	private static final FactoryBindings m_bindings = new FactoryBindings(
+			m_factories);
+
+	/**
+	 * The runtime factories being generated, keyed by type (the types with
+	 * the same name loaded by different class loaders are distinct). Only the
+	 * threads requesting the same type wait for the generation, the unrelated
+	 * types are generated in parallel.
+	 */
+	private static final ConcurrentHashMap<Class<?>, FutureTask<IFactory<?>>> m_pendingFactories = new ConcurrentHashMap<Class<?>, FutureTask<IFactory<?>>>();
+
+	/**
+	 * Default maximum number of keys in m_negativeLookups.
+	 */
+	private static final int NEGATIVE_LOOKUP_CACHE_SIZE = 1024;
+
+	/**
+	 * The keys not found in m_factories that are not names of classes
+	 * loadable by the context class loader (per class loader). Used by
+	 * <code>getFactoryAuto(String)</code> to avoid repeated
+	 * <code>Class.forName()</code> calls.
 	 */
-	private static ClassPool m_classPool = ClassPool.getDefault();
+	private static final NegativeLookupCache m_negativeLookups = new NegativeLookupCache(
+			NEGATIVE_LOOKUP_CACHE_SIZE, 0);
 
 	/**
-	 * The number of generated runtime factories.
+	 * Used to generate <code>IFactory</code> objects at runtime.
 	 */
-	private static int m_numRuntimeFactories = 0;
+	private static volatile IFactoryGenerator m_factoryGenerator;
 
 	/**
 	 * If true, the registry tries to create a runtime factory object when
@@ -71,9 +247,63 @@ public class FactoryManager {
 	 */
 	private static boolean m_autoGenerateFactories = true;
 
+	/**
+	 * The asynchronous generation mode state.
+	 */
+	private static final AsyncFactoryGeneration m_asyncGeneration = new AsyncFactoryGeneration();
+
+	/**
+	 * The warm-up manifest recording state.
+	 */
+	private static final FactoryWarmUp m_warmUp = new FactoryWarmUp();
+
+	/**
+	 * If false, the counters of m_statistics are not updated.
+	 */
+	private static volatile boolean m_statisticsEnabled = true;
+
+	private static final FactoryStatisticsRecorder m_statistics = new FactoryStatisticsRecorder();
+
 	static {
-		// add the ClassLoader that loads FactoryManager into the class pool
-		m_classPool.insertClassPath(new ClassClassPath(FactoryManager.class));
+		String s = ApplicationProperties.get().getProperty(
+				FACTORY_GENERATOR_APP_PROPERTY);
+		if (s == null) {
+			s = (isJavassistAvailable()) ? GENERATOR_JAVASSIST
+					: GENERATOR_METHOD_HANDLE;
+		}
+		m_factoryGenerator = newFactoryGenerator(s.trim());
+		s = ApplicationProperties.get().getProperty(
+				ASYNC_GENERATION_APP_PROPERTY);
+		if (s != null) {
+			s = s.trim();
+			if ("true".equals(s)) {
+				m_asyncGeneration.setEnabled(true);
+			} else if (!"false".equals(s)) {
+				throw new RuntimeException(ASYNC_GENERATION_APP_PROPERTY
+						+ " application property was set to an invalid value: "
+						+ s + " (must be \"true\" or \"false\")");
+			}
+		}
+		s = ApplicationProperties.get().getProperty(STATISTICS_APP_PROPERTY);
+		if (s != null) {
+			s = s.trim();
+			if ("false".equals(s)) {
+				m_statisticsEnabled = false;
+			} else if (!"true".equals(s)) {
+				throw new RuntimeException(STATISTICS_APP_PROPERTY
+						+ " application property was set to an invalid value: "
+						+ s + " (must be \"true\" or \"false\")");
+			}
+		}
+		ClassLoader classLoader = FactoryManager.class.getClassLoader();
+		if (classLoader != null) {
+			try {
+				registerIndexedFactories(classLoader);
+			} catch (RuntimeException e) {
+				// an unreadable index must not make the class unusable, the
+				// indexed factories are only an optimization
+			}
+		}
 	}
 
 	/**
@@ -100,193 +330,1582 @@ public class FactoryManager {
 	}
 
 	/**
-	 * Returns a new instance object of the specified type. If
-	 * autoGenerateFactories is true and no factory was registered for that
-	 * type, the registry tries to create one.
+	 * Returns true if the runtime factories are generated asynchronously.
 	 * 
-	 * @param klass
-	 * @return a new instance of the specified type
+	 * @return true if the runtime factories are generated asynchronously
 	 */
-	// because of (T) cast
-	public static <T> T newInstance(Class<T> klass) {
-		IFactory<T> factory = (m_autoGenerateFactories) ? getFactoryAuto(klass)
-				: getFactory(klass);
-		return (factory == null) ? null : factory.newInstance();
+	public static boolean getAsyncGeneration() {
+		return m_asyncGeneration.isEnabled();
 	}
 
 	/**
-	 * Returns a new instance object created by the factory associated with the
-	 * specified key. If autoGenerateFactories is true and no factory was
-	 * registered for that key, the registry tries to create one. If key is not
-	 * a type name and no factory was registered, null is returned.
+	 * Enables or disables the asynchronous generation of the runtime
+	 * factories. When it is enabled, a type without factory gets a reflective
+	 * factory (calling the cached constructor) registered immediately, so the
+	 * caller doesn't wait for the bytecode generation; the generated factory is
+	 * created by the async generation executor and atomically replaces the
+	 * reflective factory (unless another factory was registered meanwhile).
+	 * If the generation fails, the reflective factory is kept. The mode has no
+	 * effect if the factory generator is a <code>ReflectionFactoryGenerator</code>.
 	 * 
-	 * @param key
-	 * @return a new instance object created by the factory associated with the
-	 *         specified key
+	 * @param asyncGeneration
 	 */
-	public static Object newInstance(String key) {
-		IFactory<?> factory = (m_autoGenerateFactories) ? getFactoryAuto(key)
-				: getFactory(key);
-		return (factory == null) ? null : factory.newInstance();
+	public static void setAsyncGeneration(boolean asyncGeneration) {
+		m_asyncGeneration.setEnabled(asyncGeneration);
 	}
 
 	/**
-	 * Returns the factory associated with the the specified type.
+	 * Returns the executor of the asynchronous generations. By default it is a
+	 * pool of daemon threads (at most 4), which are stopped when idle.
 	 * 
-	 * @param klass
-	 * @return the factory associated with the the specified type
+	 * @return the executor of the asynchronous generations
 	 */
-	// because of (IFactory<T>) cast
-	public static <T> IFactory<T> getFactory(Class<T> klass) {
-		@SuppressWarnings("unchecked")
-		IFactory<T> factory = (IFactory<T>) m_factories.get(klass.getName());
-		return factory;
+	public static Executor getAsyncGenerationExecutor() {
+		return m_asyncGeneration.getExecutor();
 	}
 
 	/**
-	 * Returns the factory associated with the the specified key.
+	 * Sets the executor of the asynchronous generations.
 	 * 
-	 * @param key
-	 * @return the factory associated with the the specified key
+	 * @param executor
 	 */
-	public static IFactory<?> getFactory(String key) {
-		return m_factories.get(key);
+	public static void setAsyncGenerationExecutor(Executor executor) {
+		if (executor == null) {
+			throw new NullPointerException("Null executor.");
+		}
+		m_asyncGeneration.setExecutor(executor);
 	}
 
 	/**
-	 * Returns the factory associated with the the specified type. If no factory
-	 * is registered for the specified type, than a new factory is generated,
-	 * stored in the registry and returned.
+	 * Returns the number of asynchronous generations not completed yet.
 	 * 
-	 * @param klass
-	 * @return the factory associated with the the specified type
+	 * @return the number of pending asynchronous generations
 	 */
-	// because of (IFactory<T>) cast
-	public static <T> IFactory<T> getFactoryAuto(Class<T> klass) {
-		String key = klass.getName();
-		@SuppressWarnings("unchecked")
-		IFactory<T> factory = (IFactory<T>) m_factories.get(key);
-		if ((factory == null) && (m_autoGenerateFactories)) {
-			return getFactoryAutoSynchro(klass);
+	public static int getPendingAsyncGenerations() {
+		return m_asyncGeneration.getPendingCount();
+	}
+
+	/**
+	 * Returns true if the statistics counters are updated.
+	 * 
+	 * @return true if the statistics are enabled
+	 */
+	public static boolean getStatisticsEnabled() {
+		return m_statisticsEnabled;
+	}
+
+	/**
+	 * Enables or disables the statistics counters (they are enabled by
+	 * default). When they are disabled, the cost of the statistics on the
+	 * <code>newInstance()</code> path is a volatile read. The counters keep
+	 * their values.
+	 * 
+	 * @param enabled
+	 */
+	public static void setStatisticsEnabled(boolean enabled) {
+		m_statisticsEnabled = enabled;
+	}
+
+	/**
+	 * Returns a snapshot of the statistics counters.
+	 * 
+	 * @return a snapshot of the statistics counters
+	 */
+	public static FactoryStatistics getStatistics() {
+		return m_statistics.snapshot();
+	}
+
+	/**
+	 * Returns the statistics counters (read one by one by the MXBean, without
+	 * a full snapshot).
+	 * 
+	 * @return the statistics counters
+	 */
+	static FactoryStatisticsRecorder getStatisticsRecorder() {
+		return m_statistics;
+	}
+
+	/**
+	 * Resets the statistics counters.
+	 */
+	public static void resetStatistics() {
+		m_statistics.reset();
+	}
+
+	/**
+	 * Registers a <code>FactoryManagerMXBean</code> named MXBEAN_NAME in the
+	 * platform MBean server, if it is not registered yet.
+	 * 
+	 * @return the name of the MXBean
+	 */
+	public static ObjectName registerMXBean() {
+		return FactoryManagerMonitor.register(MXBEAN_NAME);
+	}
+
+	/**
+	 * Unregisters the <code>FactoryManagerMXBean</code> registered by
+	 * <code>registerMXBean()</code>, if any.
+	 */
+	public static void unregisterMXBean() {
+		FactoryManagerMonitor.unregister(MXBEAN_NAME);
+	}
+
+	/**
+	 * Returns the maximum number of keys remembered by
+	 * <code>getFactoryAuto(String)</code> as not being names of loadable
+	 * classes.
+	 * 
+	 * @return the maximum size of the negative lookup cache
+	 */
+	public static int getNegativeLookupCacheSize() {
+		return m_negativeLookups.getMaxSize();
+	}
+
+	/**
+	 * Sets the maximum number of keys remembered by
+	 * <code>getFactoryAuto(String)</code> as not being names of loadable
+	 * classes. The keys are remembered per context class loader: the lookup
+	 * of these keys with the same context class loader returns null without
+	 * trying to load the class again (until a factory is registered for the
+	 * key). The default size is 1024; 0 disables the cache.
+	 * 
+	 * @param size
+	 */
+	public static void setNegativeLookupCacheSize(int size) {
+		m_negativeLookups.setMaxSize(size);
+	}
+
+	/**
+	 * Returns the time to live (in milliseconds) of the negative lookup cache
+	 * entries, 0 if the entries don't expire.
+	 * 
+	 * @return the time to live of the negative lookup cache entries
+	 */
+	public static long getNegativeLookupCacheTtl() {
+		return TimeUnit.NANOSECONDS.toMillis(m_negativeLookups.getTtlNanos());
+	}
+
+	/**
+	 * Sets the time to live (in milliseconds) of the negative lookup cache
+	 * entries. It can be used when classes may become loadable later by the
+	 * same class loader (Eg. a class loader whose class path can grow). By
+	 * default (0) the entries don't expire.
+	 * 
+	 * @param ttl
+	 */
+	public static void setNegativeLookupCacheTtl(long ttl) {
+		m_negativeLookups.setTtlNanos(TimeUnit.MILLISECONDS.toNanos(ttl));
+	}
+
+	/**
+	 * Returns the generator used to create runtime factory objects.
+	 * 
+	 * @return the generator used to create runtime factory objects
+	 */
+	public static IFactoryGenerator getFactoryGenerator() {
+		return m_factoryGenerator;
+	}
+
+	/**
+	 * Set the generator used to create runtime factory objects. The factories
+	 * already generated are not affected.
+	 * 
+	 * @param factoryGenerator
+	 */
+	public static void setFactoryGenerator(
+			IFactoryGenerator factoryGenerator) {
+		if (factoryGenerator == null) {
+			throw new NullPointerException("Null factory generator.");
 		}
-		return factory;
+		m_factoryGenerator = factoryGenerator;
 	}
 
 	/**
-	 * Returns the factory associated with the the specified key. If no factory
-	 * is registered for the specified key, the registry tries to create one. If
-	 * key is not a type name and no factory was registered, null is returned.
+	 * Returns a new generator of the specified kind.
 	 * 
-	 * @param key
-	 * @return the factory associated with the the specified key
+	 * @param name
+	 *            GENERATOR_JAVASSIST, GENERATOR_METHOD_HANDLE or
+	 *            GENERATOR_REFLECTION
+	 * @return a new generator of the specified kind
 	 */
-	public static IFactory<?> getFactoryAuto(String key) {
-		IFactory<?> factory = m_factories.get(key);
-		if ((factory == null) && (m_autoGenerateFactories)) {
-			if (key.length() == 0) {
-				return null;
-			}
-			char ch = key.charAt(0);
-			// if key could be a class name
-			if ((ch >= 'a') && (ch < 'z') || (ch >= 'A') && (ch < 'Z')) {
-				Class<?> klass;
-				try {
-					klass = Class.forName(key, true, Thread.currentThread()
-							.getContextClassLoader());
-				} catch (ClassNotFoundException e) {
-					return null;
-				}
-				return getFactoryAutoSynchro(klass);
-			} else {
-				return null;
-			}
+	public static IFactoryGenerator newFactoryGenerator(String name) {
+		if (GENERATOR_JAVASSIST.equals(name)) {
+			return new JavassistFactoryGenerator();
+		} else if (GENERATOR_METHOD_HANDLE.equals(name)) {
+			return new MethodHandleFactoryGenerator();
+		} else if (GENERATOR_REFLECTION.equals(name)) {
+			return new ReflectionFactoryGenerator();
+		} else {
+			throw new RuntimeException("Invalid factory generator: " + name
+					+ " (must be \"" + GENERATOR_JAVASSIST + "\", \""
+					+ GENERATOR_METHOD_HANDLE + "\" or \""
+					+ GENERATOR_REFLECTION + "\")");
 		}
-		return factory;
 	}
 
 	/**
-	 * Register the specified factory. Previously associated factory on the
-	 * specified type is overwritten (a null factory value can be written to
-	 * remove the existing factory).
+	 * Registers the factories listed in the FACTORY_INDEX_RESOURCE resources
+	 * visible from the specified class loader. The factories already
+	 * registered with the same keys are overwritten. The entries whose
+	 * factory cannot be loaded or instantiated (e.g. stale entries of removed
+	 * classes) are skipped. This method is called when
+	 * <code>FactoryManager</code> is initialized (with the class loader that
+	 * loaded it).
 	 * 
-	 * @param klass
-	 * @param factory
-	 * @return the previous registered factory, if any
+	 * @param classLoader
+	 * @return the number of registered factories
 	 */
-	public static <T> IFactory<T> setFactory(Class<T> klass, IFactory<T> factory) {
-		return setFactory(klass.getName(), factory);
+	public static int registerIndexedFactories(ClassLoader classLoader) {
+		Map<String, IFactory<?>> factories = FactoryIndex
+				.readFactories(classLoader);
+		for (Map.Entry<String, IFactory<?>> entry : factories.entrySet()) {
+			putFactory(entry.getKey(), entry.getValue());
+		}
+		return factories.size();
 	}
 
 	/**
-	 * Register the specified factory. Previously associated factory with the
-	 * specifed key is overwritten (a null factory value can be written to
-	 * remove the existing factory).
+	 * Generates and registers the factories of the types listed in the
+	 * default warm-up manifest resources visible from the specified class
+	 * loader, using a thread for each processor. See
+	 * <code>warmUp(ClassLoader, String, int)</code>.
 	 * 
-	 * @param key
-	 * @param factory
-	 * @return the previous registered factory, if any
+	 * @param classLoader
+	 * @return the warm-up report
+	 */
+	public static WarmUpReport warmUp(ClassLoader classLoader) {
+		return warmUp(classLoader, WARM_UP_MANIFEST_RESOURCE, Runtime
+				.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Generates and registers the factories of the types listed in the
+	 * specified manifest resources visible from the specified class loader
+	 * (which is also used to load the types). The factories are generated in
+	 * parallel, synchronously (even in the asynchronous generation mode), and
+	 * independently of the autoGenerateFactories state. The entries with a
+	 * registered factory are not generated again. The entries that fail are
+	 * reported, they don't stop the warm-up.
 	 * 
+	 * @param classLoader
+	 * @param resource
+	 *            the manifest resource name
+	 * @param parallelism
+	 *            the maximum number of threads used
+	 * @return the warm-up report
 	 */
-	public static <T> IFactory<T> setFactory(String key, IFactory<T> factory) {
-		@SuppressWarnings("unchecked")
-		IFactory<T> previousFactory = (IFactory<T>) m_factories.put(key,
-				factory);
-		return previousFactory;
+	public static WarmUpReport warmUp(ClassLoader classLoader,
+			String resource, int parallelism) {
+		return m_warmUp.warmUp(classLoader, resource, parallelism);
 	}
 
 	/**
-	 * Generates a factory object for the specified type.
+	 * Enables or disables the recording of the warm-up manifest. While it is
+	 * enabled, the names of the types whose factories are generated at runtime
+	 * are recorded (Eg. during a training run), so they can be written by
+	 * <code>writeWarmUpManifest()</code>.
 	 * 
-	 * @param type
-	 * @return a factory object for the specified type
+	 * @param recording
 	 */
-	// because of (IFactory<T>) cast
-	@SuppressWarnings("unchecked")
-	public static synchronized <T> IFactory<T> generateRuntimeFactory(
-			Class<T> type) {
-		String typeName = type.getName();
-		IFactory runtimeFactory = null;
-		m_numRuntimeFactories++;
-		String factoryTypeName = typeName + "__RuntimeFactory"
-				+ m_numRuntimeFactories;
-		try {
-			CtClass ctClass = m_classPool.makeClass(factoryTypeName);
-			ctClass.addInterface(m_classPool.get(IFactory.class.getName()));
-			CtMethod ctMethod = new CtMethod(m_classPool.get(Object.class
-					.getName()), "newInstance", null, ctClass);
-			ctMethod.setBody("return new " + typeName + "();");
-			ctClass.addMethod(ctMethod);
-			Class factoryType = ctClass.toClass();
-			ctClass.detach();
-			runtimeFactory = (IFactory) factoryType.newInstance();
-			if (runtimeFactory == null) {
-				throw new NullPointerException("Null runtime factory.");
-			}
-		} catch (Exception e) {
-			throw new RuntimeException(
-					"Error creating runtime factory for class: " + typeName
-							+ '.', e);
-		}
-		return runtimeFactory;
+	public static void setWarmUpRecording(boolean recording) {
+		m_warmUp.setRecording(recording);
 	}
 
 	/**
-	 * Clear all the registered factories.
+	 * Returns the recorded warm-up manifest entries, sorted by name.
+	 * 
+	 * @return the recorded type names
 	 */
-	public static void clear() {
-		m_factories.clear();
+	public static List<String> getRecordedWarmUpTypes() {
+		return m_warmUp.getRecordedTypes();
 	}
 
-	private static synchronized <T> IFactory<T> getFactoryAutoSynchro(
-			Class<T> klass) {
-		String key = klass.getName();
-		@SuppressWarnings("unchecked")
-		IFactory<T> factory = (IFactory<T>) m_factories.get(key);
-		if (factory == null) {
-			factory = generateRuntimeFactory(klass);
-			m_factories.put(key, factory);
+	/**
+	 * Writes the recorded warm-up manifest entries, in the manifest format.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	public static void writeWarmUpManifest(Writer writer) throws IOException {
+		m_warmUp.writeManifest(writer);
+	}
+
+	/**
+	 * Returns a new instance object of the specified type. If
+	 * autoGenerateFactories is true and no factory was registered for that
+	 * type, the registry tries to create one.
+	 * 
+	 * @param klass
+	 * @return a new instance of the specified type
+	 */
+	// because of (T) cast
+	public static <T> T newInstance(Class<T> klass) {
+		CachedFactoryHolder holder = m_classFactories.get(klass);
+		IFactory<T> factory = getCachedFactory(holder, klass);
+		boolean cached = (factory != null);
+		if (!cached) {
+			// the lookup records the hit or the miss
+			factory = (m_autoGenerateFactories) ? getFactoryAuto(klass)
+					: getFactory(klass);
+			if (factory == null) {
+				return null;
+			}
+		}
+		if (m_statisticsEnabled) {
+			if (cached) {
+				m_statistics.recordHit();
+			}
+			holder.getInstantiationCounter(klass).increment();
+		}
+		return factory.newInstance();
+	}
+
+	/**
+	 * Returns a new instance object created by the factory associated with the
+	 * specified key. If autoGenerateFactories is true and no factory was
+	 * registered for that key, the registry tries to create one. If key is not
+	 * a type name and no factory was registered, null is returned.
+	 * 
+	 * @param key
+	 * @return a new instance object created by the factory associated with the
+	 *         specified key
+	 */
+	public static Object newInstance(String key) {
+		if (m_statisticsEnabled) {
+			return newCountedInstance(key);
+		}
+		IFactory<?> factory = (m_autoGenerateFactories) ? getFactoryAuto(key)
+				: getFactory(key);
+		if (factory == null) {
+			return null;
+		}
+		return factory.newInstance();
+	}
+
+	/**
+	 * <code>newInstance(String)</code> with the statistics enabled: the
+	 * factory and the instantiation counter of the key are read from
+	 * m_keyFactories, by a single lookup.
+	 * 
+	 * @param key
+	 * @return a new instance object, null if no factory is available
+	 */
+	private static Object newCountedInstance(String key) {
+		CachedKeyFactory cached = m_keyFactories.get(key);
+		IFactory<?> factory;
+		if ((cached != null) && (cached.m_version == m_version.get())) {
+			factory = cached.m_factory;
+			m_statistics.recordHit();
+		} else {
+			int version = m_version.get();
+			factory = (m_autoGenerateFactories) ? getFactoryAuto(key)
+					: getFactory(key);
+			if (factory == null) {
+				return null;
+			}
+			LongAdder counter = (cached != null) ? cached.m_instantiationCounter
+					: m_statistics.getInstantiationCounter(key);
+			if (m_factories.get(key) == factory) {
+				cached = new CachedKeyFactory(factory, version, counter);
+				m_keyFactories.put(key, cached);
+			}
+			counter.increment();
+			return factory.newInstance();
+		}
+		cached.m_instantiationCounter.increment();
+		return factory.newInstance();
+	}
+
+	/**
+	 * Returns a new instance object created by the factory identified by the
+	 * specified handle. If autoGenerateFactories is true and no factory was
+	 * registered for the handle key, the registry tries to create one (as in
+	 * <code>newInstance(String)</code>). The handle of a partitioned type
+	 * creates objects of that type (as <code>newInstance(Class)</code>).
+	 * 
+	 * @param handle
+	 * @return a new instance object, null if no factory is available
+	 */
+	// because of (IFactory<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> T newInstance(FactoryHandle<T> handle) {
+		Class<T> type = handle.m_type;
+		if (type != null) {
+			// its factory is stored in the type, not in the handles table
+			return newInstance(type);
+		}
+		IFactory<T> factory = (IFactory<T>) m_handles.getFactory(handle);
+		boolean cached = (factory != null);
+		if (!cached) {
+			// the lookup records the hit or the miss
+			String key = handle.getKey();
+			factory = (IFactory<T>) ((m_autoGenerateFactories) ? getFactoryAuto(key)
+					: getFactory(key));
+			if (factory == null) {
+				return null;
+			}
+		}
+		if (m_statisticsEnabled) {
+			if (cached) {
+				m_statistics.recordHit();
+			}
+			LongAdder counter = handle.m_instantiationCounter;
+			if (counter == null) {
+				counter = m_statistics.getInstantiationCounter(handle.getKey());
+				handle.m_instantiationCounter = counter;
+			}
+			counter.increment();
+		}
+		return factory.newInstance();
+	}
+
+	/**
+	 * Returns the handle of the specified type key (creating it if needed).
+	 * The handle of a partitioned type is stored in the type and identifies
+	 * the type itself (it is not the handle of the type name).
+	 * 
+	 * @param klass
+	 * @return the handle of the specified type
+	 */
+	// because of (FactoryHandle<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> FactoryHandle<T> getHandle(Class<T> klass) {
+		CachedFactoryHolder holder = m_classFactories.get(klass);
+		if (!holder.m_partitioned) {
+			return (FactoryHandle<T>) getHandle(klass.getName());
+		}
+		FactoryHandle<?> handle = holder.m_handle;
+		if (handle == null) {
+			synchronized (holder) {
+				handle = holder.m_handle;
+				if (handle == null) {
+					handle = new FactoryHandle<T>(klass);
+					holder.m_handle = handle;
+				}
+			}
+		}
+		return (FactoryHandle<T>) handle;
+	}
+
+	/**
+	 * Returns the handle of the specified key (creating it if needed).
+	 * 
+	 * @param key
+	 * @return the handle of the specified key
+	 */
+	public static FactoryHandle<?> getHandle(String key) {
+		return m_handles.getHandle(key);
+	}
+
+	/**
+	 * Registers the factory for the specified type (generating one, if no
+	 * factory is registered and autoGenerateFactories is true) and returns the
+	 * type handle.
+	 * 
+	 * @param klass
+	 * @return the handle of the specified type
+	 */
+	public static <T> FactoryHandle<T> register(Class<T> klass) {
+		if (m_autoGenerateFactories) {
+			getFactoryAuto(klass);
+		}
+		return getHandle(klass);
+	}
+
+	/**
+	 * Registers the specified factory (as <code>setFactory()</code>) and
+	 * returns the key handle.
+	 * 
+	 * @param key
+	 * @param factory
+	 * @return the handle of the specified key
+	 */
+	// because of (FactoryHandle<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> FactoryHandle<T> register(String key, IFactory<T> factory) {
+		setFactory(key, factory);
+		return (FactoryHandle<T>) getHandle(key);
+	}
+
+	/**
+	 * Returns an array of new instance objects of the specified type. The
+	 * factory is looked up only once, and if it implements
+	 * <code>IBulkFactory</code> (like the generated factories), the array is
+	 * filled by its <code>fill()</code> method.
+	 * 
+	 * @param klass
+	 * @param count
+	 * @return an array of new instances of the specified type, or null if no
+	 *         factory is available
+	 */
+	// because of (T[]) cast
+	@SuppressWarnings("unchecked")
+	public static <T> T[] newInstances(Class<T> klass, int count) {
+		IFactory<T> factory = (m_autoGenerateFactories) ? getFactoryAuto(klass)
+				: getFactory(klass);
+		if (factory == null) {
+			return null;
+		}
+		if (m_statisticsEnabled) {
+			m_classFactories.get(klass).getInstantiationCounter(klass).add(
+					count);
+		}
+		T[] array = (T[]) Array.newInstance(klass, count);
+		fill(factory, array, 0, count);
+		return array;
+	}
+
+	/**
+	 * Stores new instance objects of the specified type in the specified
+	 * range of the array. See <code>newInstances(Class, int)</code>.
+	 * 
+	 * @param klass
+	 * @param array
+	 * @param from
+	 *            the index of the first element to be set (inclusive)
+	 * @param to
+	 *            the index of the last element to be set (exclusive)
+	 * @return false if no factory is available for the specified type
+	 */
+	public static <T> boolean fill(Class<T> klass, T[] array, int from, int to) {
+		IFactory<T> factory = (m_autoGenerateFactories) ? getFactoryAuto(klass)
+				: getFactory(klass);
+		if (factory == null) {
+			return false;
+		}
+		if (m_statisticsEnabled) {
+			m_classFactories.get(klass).getInstantiationCounter(klass).add(
+					to - from);
+		}
+		fill(factory, array, from, to);
+		return true;
+	}
+
+	/**
+	 * Stores new objects created by the specified factory in the specified
+	 * range of the array, using <code>IBulkFactory.fill()</code> if the
+	 * factory implements it.
+	 * 
+	 * @param factory
+	 * @param array
+	 * @param from
+	 *            the index of the first element to be set (inclusive)
+	 * @param to
+	 *            the index of the last element to be set (exclusive)
+	 */
+	public static <T> void fill(IFactory<? extends T> factory, T[] array,
+			int from, int to) {
+		if ((from < 0) || (to > array.length) || (from > to)) {
+			throw new ArrayIndexOutOfBoundsException("Invalid range: " + from
+					+ ".." + to + " (array length: " + array.length + ")");
+		}
+		if (factory instanceof IBulkFactory<?>) {
+			((IBulkFactory<?>) factory).fill(array, from, to);
+		} else {
+			for (int i = from; i < to; i++) {
+				array[i] = factory.newInstance();
+			}
+		}
+	}
+
+	/**
+	 * Returns the factory associated with the the specified type.
+	 * 
+	 * @param klass
+	 * @return the factory associated with the the specified type
+	 */
+	// because of (IFactory<T>) cast
+	public static <T> IFactory<T> getFactory(Class<T> klass) {
+		IFactory<T> factory = getCachedFactory(klass);
+		if (m_statisticsEnabled) {
+			if (factory != null) {
+				m_statistics.recordHit();
+			} else {
+				m_statistics.recordMiss(klass.getName());
+			}
+		}
+		return factory;
+	}
+
+	/**
+	 * Returns the factory associated with the the specified key.
+	 * 
+	 * @param key
+	 * @return the factory associated with the the specified key
+	 */
+	public static IFactory<?> getFactory(String key) {
+		IFactory<?> factory = m_factories.get(key);
+		if (factory == null) {
+			Class<?> klass = getPartitionedClass(key);
+			if (klass != null) {
+				return getFactory(klass);
+			}
+		}
+		if (m_statisticsEnabled) {
+			if (factory != null) {
+				m_statistics.recordHit();
+			} else {
+				m_statistics.recordMiss(key);
+			}
+		}
+		return factory;
+	}
+
+	/**
+	 * Returns the factory associated with the the specified type. If no factory
+	 * is registered for the specified type, than a new factory is generated,
+	 * stored in the registry and returned.
+	 * 
+	 * @param klass
+	 * @return the factory associated with the the specified type
+	 */
+	// because of (IFactory<T>) cast
+	public static <T> IFactory<T> getFactoryAuto(Class<T> klass) {
+		IFactory<T> factory = getCachedFactory(klass);
+		if (factory != null) {
+			if (m_statisticsEnabled) {
+				m_statistics.recordHit();
+			}
+			return factory;
+		}
+		if (m_statisticsEnabled) {
+			m_statistics.recordMiss(klass.getName());
+		}
+		return (m_autoGenerateFactories) ? generateAndRegisterFactory(klass,
+				true) : null;
+	}
+
+	/**
+	 * Returns the factory associated with the the specified key. If no factory
+	 * is registered for the specified key, the registry tries to create one. If
+	 * key is not a type name and no factory was registered, null is returned.
+	 * The keys that are not names of loadable classes are remembered (see
+	 * <code>setNegativeLookupCacheSize()</code>), so the next lookups fail
+	 * fast.
+	 * 
+	 * @param key
+	 * @return the factory associated with the the specified key
+	 */
+	public static IFactory<?> getFactoryAuto(String key) {
+		IFactory<?> factory = m_factories.get(key);
+		if (factory != null) {
+			if (m_statisticsEnabled) {
+				m_statistics.recordHit();
+			}
+			return factory;
+		}
+		Class<?> partitionedClass = getPartitionedClass(key);
+		if (partitionedClass != null) {
+			return getFactoryAuto(partitionedClass);
+		}
+		if (m_statisticsEnabled) {
+			m_statistics.recordMiss(key);
+		}
+		if (m_autoGenerateFactories) {
+			if (key.length() == 0) {
+				return null;
+			}
+			char ch = key.charAt(0);
+			// if key could be a class name
+			if ((ch >= 'a') && (ch < 'z') || (ch >= 'A') && (ch < 'Z')) {
+				ClassLoader classLoader = Thread.currentThread()
+						.getContextClassLoader();
+				if (m_negativeLookups.contains(key, classLoader)) {
+					return null;
+				}
+				Class<?> klass;
+				try {
+					klass = Class.forName(key, true, classLoader);
+				} catch (ClassNotFoundException e) {
+					m_negativeLookups.add(key, classLoader);
+					return null;
+				}
+				return generateAndRegisterFactory(klass, true);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Register the specified factory. Previously associated factory on the
+	 * specified type is overwritten (a null factory value can be written to
+	 * remove the existing factory).
+	 * 
+	 * @param klass
+	 * @param factory
+	 * @return the previous registered factory, if any
+	 */
+	// because of (IFactory<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> IFactory<T> setFactory(Class<T> klass, IFactory<T> factory) {
+		if (m_classFactories.get(klass).m_partitioned) {
+			return (IFactory<T>) putLocalFactory(klass, factory, false);
+		}
+		return setFactory(klass.getName(), factory);
+	}
+
+	/**
+	 * Register the specified factory. Previously associated factory with the
+	 * specifed key is overwritten (a null factory value can be written to
+	 * remove the existing factory).
+	 * 
+	 * @param key
+	 * @param factory
+	 * @return the previous registered factory, if any
+	 * 
+	 */
+	public static <T> IFactory<T> setFactory(String key, IFactory<T> factory) {
+		@SuppressWarnings("unchecked")
+		IFactory<T> previousFactory = (IFactory<T>) putFactory(key, factory);
+		return previousFactory;
+	}
+
+	/**
+	 * Registers a <code>PooledFactory</code> for the specified type, wrapping
+	 * the factory currently associated with the type (which is generated if
+	 * needed). The objects returned by <code>release()</code> are reused by
+	 * the next <code>newInstance()</code> calls.
+	 * 
+	 * @param klass
+	 * @param capacity
+	 *            the maximum number of objects in the shared pool
+	 * @param resetHook
+	 *            called for each released object (can be null)
+	 * @return the registered pooled factory
+	 */
+	public static <T> PooledFactory<T> setPooledFactory(Class<T> klass,
+			int capacity, ICallable1Arg<?, ? super T> resetHook) {
+		IFactory<T> factory = getFactory(klass);
+		if (factory == null) {
+			factory = generateRuntimeFactory(klass);
+		}
+		if (factory instanceof PooledFactory<?>) {
+			factory = ((PooledFactory<T>) factory).getFactory();
+		}
+		PooledFactory<T> pooledFactory = new PooledFactory<T>(factory,
+				capacity, PooledFactory.DEFAULT_THREAD_LOCAL_CAPACITY, resetHook);
+		setFactory(klass, pooledFactory);
+		return pooledFactory;
+	}
+
+	/**
+	 * Registers the specified factory for the specified type, wrapped by the
+	 * factory of the specified scope (see <code>FactoryScope</code>). The
+	 * lookup of the registered factory is not affected; the singleton and
+	 * per-thread objects are returned by <code>newInstance()</code> without
+	 * locking.
+	 * 
+	 * @param klass
+	 * @param factory
+	 * @param scope
+	 * @return the registered factory
+	 */
+	public static <T> IFactory<T> setFactory(Class<T> klass,
+			IFactory<T> factory, FactoryScope scope) {
+		IFactory<T> scopedFactory = ScopedFactory.newScopedFactory(factory,
+				scope);
+		setFactory(klass, scopedFactory);
+		return scopedFactory;
+	}
+
+	/**
+	 * Registers the specified factory for the specified key, wrapped by the
+	 * factory of the specified scope (see <code>FactoryScope</code>).
+	 * 
+	 * @param key
+	 * @param factory
+	 * @param scope
+	 * @return the registered factory
+	 */
+	public static <T> IFactory<T> setFactory(String key, IFactory<T> factory,
+			FactoryScope scope) {
+		IFactory<T> scopedFactory = ScopedFactory.newScopedFactory(factory,
+				scope);
+		setFactory(key, scopedFactory);
+		return scopedFactory;
+	}
+
+	/**
+	 * Changes the scope of the objects of the specified type, wrapping the
+	 * factory currently associated with the type (which is generated if
+	 * needed). If the current factory is already scoped, its wrapped factory
+	 * is used.
+	 * 
+	 * @param klass
+	 * @param scope
+	 * @return the registered factory
+	 */
+	public static <T> IFactory<T> setScope(Class<T> klass, FactoryScope scope) {
+		IFactory<T> factory = getFactory(klass);
+		if (factory == null) {
+			factory = generateRuntimeFactory(klass);
+		}
+		if (factory instanceof ScopedFactory<?>) {
+			factory = ((ScopedFactory<T>) factory).getFactory();
+		}
+		return setFactory(klass, factory, scope);
+	}
+
+	/**
+	 * Returns the copier of the specified type with the specified policy. The
+	 * copier is generated by the factory generator when it is first requested
+	 * (independently of the autoGenerateFactories state) and cached in the
+	 * type.
+	 * 
+	 * @param klass
+	 * @param policy
+	 * @return the copier of the specified type
+	 */
+	// because of (ICopier<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> ICopier<T> getCopier(Class<T> klass, CopyPolicy policy) {
+		return (ICopier<T>) m_copiers.get(klass, policy, m_factoryGenerator);
+	}
+
+	/**
+	 * Returns a copy of the specified object, made by the copier of its class.
+	 * 
+	 * @param prototype
+	 * @param policy
+	 * @return a copy of the specified object
+	 */
+	// because of (Class<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> T copy(T prototype, CopyPolicy policy) {
+		return getCopier((Class<T>) prototype.getClass(), policy).copy(
+				prototype);
+	}
+
+	/**
+	 * Registers a <code>PrototypeFactory</code> for the specified type, which
+	 * creates copies of the specified prototype (that must not be modified
+	 * afterwards).
+	 * 
+	 * @param klass
+	 * @param prototype
+	 * @param policy
+	 * @return the registered prototype factory
+	 */
+	// because of (Class<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> PrototypeFactory<T> setPrototype(Class<T> klass,
+			T prototype, CopyPolicy policy) {
+		PrototypeFactory<T> factory = new PrototypeFactory<T>(prototype,
+				getCopier((Class<T>) prototype.getClass(), policy));
+		setFactory(klass, factory);
+		return factory;
+	}
+
+	/**
+	 * Binds the specified interface (or base class) to the specified
+	 * implementation: a dedicated factory of the implementation is registered
+	 * for the interface name (the factory registered for the implementation,
+	 * if any, otherwise a generated one), so the objects created for the
+	 * interface key are implementation objects. The returned binding has an
+	 * invoker method handle linked directly to the implementation constructor
+	 * (when it can be accessed and no factory is registered for the
+	 * implementation), which follows the later bindings of the interface. The
+	 * same binding object is returned by all the bindings of an interface.
+	 * <p>
+	 * The binding of an interface loaded by another class loader than the
+	 * registry class loader is partitioned like its factory, so it doesn't
+	 * prevent unloading the interface. A binding of a registry interface to
+	 * an implementation of another class loader references the implementation
+	 * until the interface is bound to another implementation, or its factory
+	 * is removed (by <code>setFactory(bindingInterface, null)</code> or
+	 * <code>clear()</code>).
+	 * 
+	 * @param bindingInterface
+	 * @param implementation
+	 * @return the binding of the interface
+	 */
+	public static <I> FactoryBinding<I> bind(Class<I> bindingInterface,
+			Class<? extends I> implementation) {
+		if (!bindingInterface.isAssignableFrom(implementation)) {
+			throw new IllegalArgumentException(implementation.getName()
+					+ " doesn't implement " + bindingInterface.getName() + '.');
+		}
+		IFactory<? extends I> factory = getCachedFactory(implementation);
+		MethodHandle constructor = null;
+		if (factory == null) {
+			factory = generateRuntimeFactory(implementation);
+			constructor = FactoryBindings
+					.findDefaultConstructor(implementation);
+		}
+		FactoryBinding<I> binding = getOrCreateBinding(bindingInterface);
+		synchronized (binding) {
+			binding.bind(implementation, factory, constructor);
+			if (m_classFactories.get(bindingInterface).m_partitioned) {
+				putLocalFactory(bindingInterface, factory, false);
+			} else {
+				putFactory(bindingInterface.getName(), factory);
+			}
+		}
+		return binding;
+	}
+
+	/**
+	 * Returns the binding of the specified interface.
+	 * 
+	 * @param bindingInterface
+	 * @return the binding of the specified interface, or null if the
+	 *         interface was not bound by <code>bind()</code>
+	 */
+	// because of (FactoryBinding<I>) cast
+	@SuppressWarnings("unchecked")
+	public static <I> FactoryBinding<I> getBinding(Class<I> bindingInterface) {
+		CachedFactoryHolder holder = m_classFactories.get(bindingInterface);
+		FactoryBinding<?> binding = (holder.m_partitioned) ? holder.m_binding
+				: m_bindings.get(bindingInterface.getName());
+		return ((binding == null) || (binding.getInterface() != bindingInterface)) ? null
+				: (FactoryBinding<I>) binding;
+	}
+
+	/**
+	 * Returns an object to the factory associated with its type, if that is
+	 * an <code>IRecyclingFactory</code>. Otherwise the object is ignored.
+	 * 
+	 * @param klass
+	 * @param object
+	 * @return true if the object was returned to a recycling factory
+	 */
+	public static <T> boolean release(Class<T> klass, T object) {
+		IFactory<T> factory = getCachedFactory(klass);
+		if (factory instanceof IRecyclingFactory<?>) {
+			((IRecyclingFactory<T>) factory).release(object);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns an object to the factory associated with the specified key, if
+	 * that is an <code>IRecyclingFactory</code>. Otherwise the object is
+	 * ignored.
+	 * 
+	 * @param key
+	 * @param object
+	 * @return true if the object was returned to a recycling factory
+	 */
+	// because of (IRecyclingFactory<Object>) cast
+	@SuppressWarnings("unchecked")
+	public static boolean release(String key, Object object) {
+		IFactory<?> factory = getFactory(key);
+		if (factory instanceof IRecyclingFactory<?>) {
+			((IRecyclingFactory<Object>) factory).release(object);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a factory calling the constructor of the specified type with
+	 * one parameter of the specified type (which can be primitive, the
+	 * argument is unboxed in this case). The factory is generated when it is
+	 * first requested. The lookup of the factory is more expensive than the
+	 * <code>newInstance()</code> call, so the callers should keep a reference
+	 * to the returned factory.
+	 * 
+	 * @param klass
+	 * @param argType
+	 * @return a factory calling the constructor with the specified parameter
+	 *         type, null if the factory was not generated yet and
+	 *         autoGenerateFactories is false
+	 */
+	// because of (IFactory1Arg<T, A>) cast
+	@SuppressWarnings("unchecked")
+	public static <T, A> IFactory1Arg<T, A> getFactory1Arg(Class<T> klass,
+			Class<A> argType) {
+		return getConstructorFactory(IFactory1Arg.class, klass, argType);
+	}
+
+	/**
+	 * Returns a factory calling the constructor of the specified type with two
+	 * parameters of the specified types. See
+	 * <code>getFactory1Arg(Class, Class)</code>.
+	 * 
+	 * @param klass
+	 * @param arg0Type
+	 * @param arg1Type
+	 * @return a factory calling the constructor with the specified parameter
+	 *         types
+	 */
+	// because of (IFactory2Args<T, A0, A1>) cast
+	@SuppressWarnings("unchecked")
+	public static <T, A0, A1> IFactory2Args<T, A0, A1> getFactory2Args(
+			Class<T> klass, Class<A0> arg0Type, Class<A1> arg1Type) {
+		return getConstructorFactory(IFactory2Args.class, klass, arg0Type,
+				arg1Type);
+	}
+
+	/**
+	 * Returns a factory calling the constructor of the specified type with an
+	 * int parameter. See <code>getFactory1Arg(Class, Class)</code>.
+	 * 
+	 * @param klass
+	 * @return a factory calling the constructor with an int parameter
+	 */
+	// because of (IFactory1IntArg<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> IFactory1IntArg<T> getFactory1IntArg(Class<T> klass) {
+		return getConstructorFactory(IFactory1IntArg.class, klass, int.class);
+	}
+
+	/**
+	 * Returns a factory calling the constructor of the specified type with a
+	 * long parameter. See <code>getFactory1Arg(Class, Class)</code>.
+	 * 
+	 * @param klass
+	 * @return a factory calling the constructor with a long parameter
+	 */
+	// because of (IFactory1LongArg<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> IFactory1LongArg<T> getFactory1LongArg(Class<T> klass) {
+		return getConstructorFactory(IFactory1LongArg.class, klass,
+				long.class);
+	}
+
+	/**
+	 * Returns a factory calling the constructor of the specified type with a
+	 * double parameter. See <code>getFactory1Arg(Class, Class)</code>.
+	 * 
+	 * @param klass
+	 * @return a factory calling the constructor with a double parameter
+	 */
+	// because of (IFactory1DoubleArg<T>) cast
+	@SuppressWarnings("unchecked")
+	public static <T> IFactory1DoubleArg<T> getFactory1DoubleArg(
+			Class<T> klass) {
+		return getConstructorFactory(IFactory1DoubleArg.class, klass,
+				double.class);
+	}
+
+	/**
+	 * Returns a factory implementing the specified factory interface, which
+	 * calls the constructor of the specified type having the specified
+	 * parameter types (see
+	 * <code>IFactoryGenerator.generateFactory(Class, Class, Class...)</code>).
+	 * The factory is generated when it is first requested, and cached.
+	 * 
+	 * @param factoryInterface
+	 * @param klass
+	 * @param parameterTypes
+	 * @return the factory, null if the factory was not generated yet and
+	 *         autoGenerateFactories is false
+	 */
+	public static <F> F getConstructorFactory(Class<F> factoryInterface,
+			Class<?> klass, Class<?>... parameterTypes) {
+		return factoryInterface.cast(m_constructorFactories.get(
+				factoryInterface, klass, parameterTypes,
+				(m_autoGenerateFactories) ? m_factoryGenerator : null));
+	}
+
+	/**
+	 * Generates a factory object for the specified type, using the current
+	 * factory generator. The generated factory is not registered.
+	 * 
+	 * @param type
+	 * @return a factory object for the specified type
+	 */
+	public static <T> IFactory<T> generateRuntimeFactory(
+			Class<T> type) {
+		long start = System.nanoTime();
+		try {
+			IFactory<T> factory = m_factoryGenerator.generateFactory(type);
+			recordGeneration(start, true);
+			return factory;
+		} catch (RuntimeException e) {
+			recordGeneration(start, false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Records a factory generation in the statistics.
+	 * 
+	 * @param start
+	 *            the <code>System.nanoTime()</code> value when the generation
+	 *            started
+	 * @param success
+	 */
+	static void recordGeneration(long start, boolean success) {
+		if (m_statisticsEnabled) {
+			if (success) {
+				m_statistics.recordGeneration(System.nanoTime() - start);
+			} else {
+				m_statistics.recordGenerationFailure();
+			}
+		}
+	}
+
+	/**
+	 * Clear all the registered factories.
+	 */
+	public static void clear() {
+		m_factories.clear();
+		m_keyFactories.clear();
+		m_clearCount.incrementAndGet();
+		m_partitions.clear();
+		m_version.incrementAndGet();
+		m_negativeLookups.clear();
+		// the handles and the bindings remain valid
+		m_handles.clear();
+		m_bindings.clear();
+	}
+
+	/**
+	 * Generates and registers a factory for the specified type, if no factory
+	 * is registered yet. The factory is generated only once, even if it is
+	 * requested concurrently by more threads.
+	 * 
+	 * @param klass
+	 * @param allowAsync
+	 *            if false, the factory is generated synchronously even in the
+	 *            asynchronous generation mode
+	 * @return the factory associated with the the specified type
+	 */
+	// because of (IFactory<T>) cast
+	@SuppressWarnings("unchecked")
+	private static <T> IFactory<T> generateAndRegisterFactory(
+			final Class<T> klass, final boolean allowAsync) {
+		IFactory<?> factory = getRegisteredFactory(klass);
+		if (factory != null) {
+			return (IFactory<T>) factory;
+		}
+		FutureTask<IFactory<?>> task = new FutureTask<IFactory<?>>(
+				new Callable<IFactory<?>>() {
+					public IFactory<?> call() {
+						IFactory<?> factory = getRegisteredFactory(klass);
+						if (factory == null) {
+							boolean async = allowAsync
+									&& m_asyncGeneration.isEnabled(klass)
+									&& !(m_factoryGenerator instanceof ReflectionFactoryGenerator);
+							IFactory<?> newFactory = (async) ? m_asyncGeneration
+									.newFallbackFactory(klass)
+									: generateRuntimeFactory(klass);
+							factory = registerGeneratedFactory(klass,
+									newFactory);
+							if (async && (factory == newFactory)) {
+								m_asyncGeneration.schedule(klass, newFactory);
+							}
+							m_warmUp.factoryGenerated(klass);
+						}
+						return factory;
+					}
+				});
+		FutureTask<IFactory<?>> pendingTask = m_pendingFactories.putIfAbsent(
+				klass, task);
+		if (pendingTask == null) {
+			pendingTask = task;
+			try {
+				task.run();
+			} finally {
+				m_pendingFactories.remove(klass, task);
+			}
+		}
+		return (IFactory<T>) getUninterruptibly(pendingTask);
+	}
+
+	/**
+	 * Returns the factory of the specified warm-up manifest entry, generating
+	 * it if needed (synchronously). Called by <code>FactoryWarmUp</code>.
+	 * 
+	 * @param classLoader
+	 * @param name
+	 * @return the factory of the specified entry
+	 * @throws ClassNotFoundException
+	 *             if the entry is not a registered key or a type name
+	 */
+	static IFactory<?> warmUpFactory(ClassLoader classLoader,
+			String name) throws ClassNotFoundException {
+		IFactory<?> factory = m_factories.get(name);
+		if (factory != null) {
+			return factory;
+		}
+		Class<?> klass = Class.forName(name, true, classLoader);
+		factory = getCachedFactory(klass);
+		if (factory == null) {
+			factory = generateAndRegisterFactory(klass, false);
+		}
+		return factory;
+	}
+
+	/**
+	 * Registers the specified generated factory, if no factory is registered
+	 * for the specified type.
+	 * 
+	 * @param klass
+	 * @param factory
+	 * @return the factory registered for the specified type
+	 */
+	private static IFactory<?> registerGeneratedFactory(Class<?> klass,
+			IFactory<?> factory) {
+		if (m_classFactories.get(klass).m_partitioned) {
+			IFactory<?> previousFactory = putLocalFactory(klass, factory, true);
+			return (previousFactory == null) ? factory : previousFactory;
+		}
+		return putFactoryIfAbsent(klass.getName(), factory);
+	}
+
+	/**
+	 * Atomically replaces (or removes, if newFactory is null) the factory
+	 * registered for the specified type, if it is the specified old factory.
+	 * Called by <code>AsyncFactoryGeneration</code>.
+	 * 
+	 * @param klass
+	 * @param oldFactory
+	 * @param newFactory
+	 * @return true if the factory was replaced
+	 */
+	static boolean replaceFactory(Class<?> klass,
+			IFactory<?> oldFactory, IFactory<?> newFactory) {
+		CachedFactoryHolder holder = m_classFactories.get(klass);
+		if (holder.m_partitioned) {
+			synchronized (holder) {
+				if (holder.getLocalFactory() != oldFactory) {
+					return false;
+				}
+				holder.m_local = (newFactory == null) ? null
+						: new CachedFactory(newFactory, m_clearCount.get());
+			}
+			if (newFactory == null) {
+				m_partitions.remove(klass);
+			}
+			m_version.incrementAndGet();
+			return true;
+		}
+		String key = klass.getName();
+		boolean replaced = (newFactory == null) ? m_factories.remove(key,
+				oldFactory) : m_factories.replace(key, oldFactory, newFactory);
+		if (!replaced) {
+			return false;
+		}
+		m_version.incrementAndGet();
+		m_handles.factoryChanged(key);
+		m_bindings.factoryChanged(key);
+		return true;
+	}
+
+	/**
+	 * Waits for the result of the specified task. If the task failed, the
+	 * exception thrown by the task is rethrown.
+	 * 
+	 * @param task
+	 * @return the result of the task
+	 */
+	private static <V> V getUninterruptibly(FutureTask<V> task) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new WrappedInRuntimeException(cause);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the factory registered for the specified type, without using
+	 * the cached entries: the factory stored in the type (if it is
+	 * partitioned) or the factory associated with the type name.
+	 * 
+	 * @param klass
+	 * @return the factory registered for the specified type
+	 */
+	private static IFactory<?> getRegisteredFactory(Class<?> klass) {
+		IFactory<?> factory = m_classFactories.get(klass).getLocalFactory();
+		if (factory == null) {
+			factory = m_factories.get(klass.getName());
+		}
+		return factory;
+	}
+
+	/**
+	 * Returns the partitioned type with the specified name, visible from the
+	 * context class loader of the current thread.
+	 * 
+	 * @param name
+	 * @return the partitioned type, null if it is not found
+	 */
+	private static Class<?> getPartitionedClass(String name) {
+		return m_partitions.get(Thread.currentThread().getContextClassLoader(),
+				name);
+	}
+
+	/**
+	 * Stores (or removes, if factory is null) the factory of a partitioned
+	 * type in the type itself and invalidates the entries cached in
+	 * m_classFactories.
+	 * 
+	 * @param klass
+	 * @param factory
+	 * @param onlyIfAbsent
+	 *            if true, an existing factory is not replaced
+	 * @return the previous stored factory, if any
+	 */
+	private static IFactory<?> putLocalFactory(Class<?> klass,
+			IFactory<?> factory, boolean onlyIfAbsent) {
+		CachedFactoryHolder holder = m_classFactories.get(klass);
+		IFactory<?> previousFactory;
+		synchronized (holder) {
+			previousFactory = holder.getLocalFactory();
+			if (onlyIfAbsent && (previousFactory != null)) {
+				return previousFactory;
+			}
+			holder.m_local = (factory == null) ? null : new CachedFactory(
+					factory, m_clearCount.get());
+		}
+		if (factory == null) {
+			m_partitions.remove(klass);
+		} else {
+			m_partitions.add(klass);
+		}
+		m_version.incrementAndGet();
+		m_negativeLookups.remove(klass.getName());
+		FactoryBinding<?> binding = holder.m_binding;
+		if (binding != null) {
+			synchronized (binding) {
+				// the current value is read under the lock, so the last
+				// update wins
+				binding.factoryChanged(holder.getLocalFactory());
+			}
+		}
+		return previousFactory;
+	}
+
+	/**
+	 * Stores the specified factory if no factory is associated with the key.
+	 * 
+	 * @param key
+	 * @param factory
+	 * @return the factory associated with the key
+	 */
+	private static IFactory<?> putFactoryIfAbsent(String key,
+			IFactory<?> factory) {
+		IFactory<?> previousFactory = m_factories.putIfAbsent(key, factory);
+		if (previousFactory != null) {
+			return previousFactory;
+		}
+		m_version.incrementAndGet();
+		m_handles.factoryChanged(key);
+		m_bindings.factoryChanged(key);
+		return factory;
+	}
+
+	/**
+	 * Returns true if the javassist library can be loaded.
+	 * 
+	 * @return true if the javassist library can be loaded
+	 */
+	private static boolean isJavassistAvailable() {
+		try {
+			Class.forName("javassist.ClassPool", false, FactoryManager.class
+					.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Stores (or removes, if factory is null) the factory associated with the
+	 * specified key and invalidates the entries cached in m_classFactories.
+	 * 
+	 * @param key
+	 * @param factory
+	 * @return the previous registered factory, if any
+	 */
+	private static IFactory<?> putFactory(String key, IFactory<?> factory) {
+		IFactory<?> previousFactory = (factory == null) ? m_factories
+				.remove(key) : m_factories.put(key, factory);
+		// the version is incremented after the update, so a concurrent reader
+		// can't cache the old value with the new version
+		m_version.incrementAndGet();
+		m_negativeLookups.remove(key);
+		m_handles.factoryChanged(key);
+		m_bindings.factoryChanged(key);
+		return previousFactory;
+	}
+
+	/**
+	 * Returns the binding of the specified interface, creating it if needed.
+	 * 
+	 * @param bindingInterface
+	 * @return the binding of the specified interface
+	 */
+	// because of (FactoryBinding<I>) cast
+	@SuppressWarnings("unchecked")
+	private static <I> FactoryBinding<I> getOrCreateBinding(
+			Class<I> bindingInterface) {
+		CachedFactoryHolder holder = m_classFactories.get(bindingInterface);
+		if (holder.m_partitioned) {
+			synchronized (holder) {
+				if (holder.m_binding == null) {
+					holder.m_binding = m_bindings
+							.newPartitionedBinding(bindingInterface);
+				}
+				return (FactoryBinding<I>) holder.m_binding;
+			}
+		}
+		return m_bindings.getOrCreate(bindingInterface);
+	}
+
+	/**
+	 * Returns the factory registered for the specified type, using the entry
+	 * cached in m_classFactories if it is still valid.
+	 * 
+	 * @param klass
+	 * @return the factory registered for the specified type
+	 */
+	// because of (IFactory<T>) cast
+	@SuppressWarnings("unchecked")
+	private static <T> IFactory<T> getCachedFactory(Class<T> klass) {
+		return getCachedFactory(m_classFactories.get(klass), klass);
+	}
+
+	/**
+	 * Returns the factory registered for the specified type, using the entry
+	 * cached in the specified holder (the m_classFactories value of the type)
+	 * if it is still valid.
+	 * 
+	 * @param holder
+	 * @param klass
+	 * @return the factory registered for the specified type
+	 */
+	// because of (IFactory<T>) cast
+	@SuppressWarnings("unchecked")
+	private static <T> IFactory<T> getCachedFactory(
+			CachedFactoryHolder holder, Class<T> klass) {
+		CachedFactory cached = holder.m_cached;
+		int version = m_version.get();
+		if ((cached == null) || (cached.m_version != version)) {
+			IFactory<?> factory = holder.getLocalFactory();
+			if (factory == null) {
+				factory = m_factories.get(klass.getName());
+			}
+			cached = new CachedFactory(factory, version);
+			holder.m_cached = cached;
+		}
+		return (IFactory<T>) cached.m_factory;
+	}
+
+	/**
+	 * Immutable pair of a factory (possibly null) and the m_version value
+	 * read before it was retrieved from m_factories (or the m_clearCount value
+	 * when it was stored, for the factories of the partitioned types).
+	 */
+	private static final class CachedFactory {
+
+		final IFactory<?> m_factory;
+
+		final int m_version;
+
+		CachedFactory(IFactory<?> factory, int version) {
+			m_factory = factory;
+			m_version = version;
+		}
+	}
+
+	/**
+	 * Immutable m_keyFactories value: a factory, the m_version value read
+	 * before it was retrieved and the instantiation counter of the key.
+	 */
+	private static final class CachedKeyFactory {
+
+		final IFactory<?> m_factory;
+
+		final int m_version;
+
+		final LongAdder m_instantiationCounter;
+
+		CachedKeyFactory(IFactory<?> factory, int version,
+				LongAdder instantiationCounter) {
+			m_factory = factory;
+			m_version = version;
+			m_instantiationCounter = instantiationCounter;
+		}
+	}
+
+	/**
+	 * The m_classFactories value associated with a class.
+	 */
+	private static final class CachedFactoryHolder {
+
+		final boolean m_partitioned;
+
+		volatile CachedFactory m_cached;
+
+		/**
+		 * The factory of a partitioned type.
+		 */
+		volatile CachedFactory m_local;
+
+		/**
+		 * The instantiation counter of the type, cached when it is first
+		 * used.
+		 */
+		volatile LongAdder m_instantiationCounter;
+
+		/**
+		 * The binding of a partitioned interface.
+		 */
+		volatile FactoryBinding<?> m_binding;
+
+		/**
+		 * The handle of a partitioned type.
+		 */
+		volatile FactoryHandle<?> m_handle;
+
+		CachedFactoryHolder(boolean partitioned) {
+			m_partitioned = partitioned;
+		}
+
+		/**
+		 * Returns the instantiation counter of the specified type (the type
+		 * of this holder).
+		 * 
+		 * @param klass
+		 * @return the instantiation counter
+		 */
+		LongAdder getInstantiationCounter(Class<?> klass) {
+			LongAdder counter = m_instantiationCounter;
+			if (counter == null) {
+				counter = m_statistics.getInstantiationCounter(klass.getName());
+				m_instantiationCounter = counter;
+			}
+			return counter;
+		}
+
+		/**
+		 * Returns the factory of the partitioned type, if it was not removed
+		 * by <code>clear()</code>.
+		 * 
+		 * @return the factory of the partitioned type
+		 */
+		IFactory<?> getLocalFactory() {
+			CachedFactory local = m_local;
+			if ((local == null) || (local.m_version != m_clearCount.get())) {
+				return null;
+			}
+			return local.m_factory;
 		}
-		return factory;
 	}
 
 }
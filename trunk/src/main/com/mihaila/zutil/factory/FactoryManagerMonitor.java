@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The <code>FactoryManagerMXBean</code> implementation, delegating to the
+ * <code>FactoryManager</code> static methods.
+ */
+class FactoryManagerMonitor implements FactoryManagerMXBean {
+
+	/**
+	 * Serializes the registrations and unregistrations (the platform MBean
+	 * server is not used as a lock, it is shared with other code).
+	 */
+	private static final Object m_registrationLock = new Object();
+
+	/**
+	 * Registers a monitor with the specified name in the platform MBean
+	 * server, if it is not registered yet.
+	 * 
+	 * @param name
+	 * @return the name of the MXBean
+	 */
+	static ObjectName register(String name) {
+		try {
+			ObjectName objectName = new ObjectName(name);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			synchronized (m_registrationLock) {
+				if (!server.isRegistered(objectName)) {
+					server.registerMBean(new FactoryManagerMonitor(),
+							objectName);
+				}
+			}
+			return objectName;
+		} catch (JMException e) {
+			throw new RuntimeException("Error registering the MXBean: "
+					+ name, e);
+		}
+	}
+
+	/**
+	 * Unregisters the MXBean with the specified name, if any.
+	 * 
+	 * @param name
+	 */
+	static void unregister(String name) {
+		try {
+			ObjectName objectName = new ObjectName(name);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			synchronized (m_registrationLock) {
+				if (server.isRegistered(objectName)) {
+					server.unregisterMBean(objectName);
+				}
+			}
+		} catch (JMException e) {
+			throw new RuntimeException("Error unregistering the MXBean: "
+					+ name, e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#isStatisticsEnabled()
+	 */
+	public boolean isStatisticsEnabled() {
+		return FactoryManager.getStatisticsEnabled();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#setStatisticsEnabled(boolean)
+	 */
+	public void setStatisticsEnabled(boolean enabled) {
+		FactoryManager.setStatisticsEnabled(enabled);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getHitCount()
+	 */
+	public long getHitCount() {
+		return FactoryManager.getStatisticsRecorder().getHitCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getMissCount()
+	 */
+	public long getMissCount() {
+		return FactoryManager.getStatisticsRecorder().getMissCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getGenerationCount()
+	 */
+	public long getGenerationCount() {
+		return FactoryManager.getStatisticsRecorder().getGenerationCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getGenerationFailureCount()
+	 */
+	public long getGenerationFailureCount() {
+		return FactoryManager.getStatisticsRecorder().getGenerationFailureCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getMeanGenerationMicros()
+	 */
+	public long getMeanGenerationMicros() {
+		FactoryStatisticsRecorder statistics = FactoryManager
+				.getStatisticsRecorder();
+		long count = statistics.getGenerationCount();
+		return (count == 0) ? 0 : TimeUnit.NANOSECONDS.toMicros(statistics
+				.getGenerationNanos()
+				/ count);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getMaxGenerationMicros()
+	 */
+	public long getMaxGenerationMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(FactoryManager
+				.getStatisticsRecorder().getMaxGenerationNanos());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getGenerationLatencyHistogram()
+	 */
+	public long[] getGenerationLatencyHistogram() {
+		return FactoryManager.getStatisticsRecorder().getGenerationLatencyHistogram();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getInstantiationCounts()
+	 */
+	public Map<String, Long> getInstantiationCounts() {
+		return FactoryManager.getStatisticsRecorder().getInstantiationCounts();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getMissedKeys()
+	 */
+	public Map<String, Long> getMissedKeys() {
+		return FactoryManager.getStatisticsRecorder().getMissedKeys();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#getPendingAsyncGenerations()
+	 */
+	public int getPendingAsyncGenerations() {
+		return FactoryManager.getPendingAsyncGenerations();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.FactoryManagerMXBean#resetStatistics()
+	 */
+	public void resetStatistics() {
+		FactoryManager.resetStatistics();
+	}
+}
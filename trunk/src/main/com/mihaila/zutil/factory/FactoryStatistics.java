@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of the <code>FactoryManager</code> counters, returned
+ * by <code>FactoryManager.getStatistics()</code>. The counters are not read
+ * atomically, so the values may be slightly inconsistent if the registry is
+ * used while the snapshot is taken.
+ */
+public final class FactoryStatistics {
+
+	private final long m_hitCount;
+
+	private final long m_missCount;
+
+	private final long m_generationCount;
+
+	private final long m_generationFailureCount;
+
+	private final long m_generationNanos;
+
+	private final long m_maxGenerationNanos;
+
+	private final long[] m_latencyBuckets;
+
+	private final Map<String, Long> m_instantiationCounts;
+
+	private final Map<String, Long> m_missedKeys;
+
+	FactoryStatistics(long hitCount, long missCount, long generationCount,
+			long generationFailureCount, long generationNanos,
+			long maxGenerationNanos, long[] latencyBuckets,
+			Map<String, Long> instantiationCounts, Map<String, Long> missedKeys) {
+		m_hitCount = hitCount;
+		m_missCount = missCount;
+		m_generationCount = generationCount;
+		m_generationFailureCount = generationFailureCount;
+		m_generationNanos = generationNanos;
+		m_maxGenerationNanos = maxGenerationNanos;
+		m_latencyBuckets = latencyBuckets;
+		m_instantiationCounts = sortByCount(instantiationCounts);
+		m_missedKeys = sortByCount(missedKeys);
+	}
+
+	/**
+	 * Returns the number of factory lookups that found a registered factory.
+	 * The lookups of <code>newInstance(Class)</code> and
+	 * <code>newInstance(FactoryHandle)</code> are counted only when they miss
+	 * (the hits are counted by the instantiation counters), to keep these
+	 * paths cheap.
+	 * 
+	 * @return the number of lookup hits
+	 */
+	public long getHitCount() {
+		return m_hitCount;
+	}
+
+	/**
+	 * Returns the number of factory lookups that didn't find a registered
+	 * factory (and either generated one or failed).
+	 * 
+	 * @return the number of lookup misses
+	 */
+	public long getMissCount() {
+		return m_missCount;
+	}
+
+	/**
+	 * Returns the number of runtime factories generated by the factory
+	 * generator.
+	 * 
+	 * @return the number of generated factories
+	 */
+	public long getGenerationCount() {
+		return m_generationCount;
+	}
+
+	/**
+	 * Returns the number of failed factory generations.
+	 * 
+	 * @return the number of failed generations
+	 */
+	public long getGenerationFailureCount() {
+		return m_generationFailureCount;
+	}
+
+	/**
+	 * Returns the total time spent generating factories, in nanoseconds.
+	 * 
+	 * @return the total generation time
+	 */
+	public long getGenerationNanos() {
+		return m_generationNanos;
+	}
+
+	/**
+	 * Returns the longest factory generation time, in nanoseconds.
+	 * 
+	 * @return the longest generation time
+	 */
+	public long getMaxGenerationNanos() {
+		return m_maxGenerationNanos;
+	}
+
+	/**
+	 * Returns the generation latency histogram. Element i is the number of
+	 * generations that took less than 2^i microseconds (and at least 2^(i-1)
+	 * microseconds); the last element also counts the longer generations.
+	 * 
+	 * @return the generation latency histogram
+	 */
+	public long[] getGenerationLatencyHistogram() {
+		return m_latencyBuckets.clone();
+	}
+
+	/**
+	 * Returns the number of instances created by <code>newInstance()</code>
+	 * (and <code>newInstances()</code>) for each type name or key, sorted by
+	 * count, in descending order.
+	 * 
+	 * @return the instantiation counts
+	 */
+	public Map<String, Long> getInstantiationCounts() {
+		return m_instantiationCounts;
+	}
+
+	/**
+	 * Returns the number of misses for each missed key, sorted by count, in
+	 * descending order. At most 1024 distinct keys are counted.
+	 * 
+	 * @return the missed keys counts
+	 */
+	public Map<String, Long> getMissedKeys() {
+		return m_missedKeys;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Factory statistics: " + m_hitCount + " hits, " + m_missCount
+				+ " misses, " + m_generationCount + " generations ("
+				+ TimeUnit.NANOSECONDS.toMicros(m_generationNanos)
+				+ " us total, "
+				+ TimeUnit.NANOSECONDS.toMicros(m_maxGenerationNanos)
+				+ " us max), " + m_generationFailureCount
+				+ " failed generations, " + m_instantiationCounts.size()
+				+ " instantiated types";
+	}
+
+	private static Map<String, Long> sortByCount(Map<String, Long> counts) {
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(
+				counts.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			public int compare(Map.Entry<String, Long> o1,
+					Map.Entry<String, Long> o2) {
+				return o2.getValue().compareTo(o1.getValue());
+			}
+		});
+		Map<String, Long> result = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Long> entry : entries) {
+			result.put(entry.getKey(), entry.getValue());
+		}
+		return Collections.unmodifiableMap(result);
+	}
+}
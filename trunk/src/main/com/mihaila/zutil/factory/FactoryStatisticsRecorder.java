@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The <code>FactoryManager</code> counters. The frequently updated counters
+ * are <code>LongAdder</code> objects, so the concurrent updates don't
+ * contend on the same memory location.
+ */
+final class FactoryStatisticsRecorder {
+
+	/**
+	 * The maximum number of distinct missed keys that are counted separately.
+	 */
+	static final int MAX_MISSED_KEYS = 1024;
+
+	/**
+	 * The number of generation latency buckets. Bucket i counts the
+	 * generations that took less than 2^i microseconds (and at least 2^(i-1)
+	 * microseconds), the last bucket counts all the longer generations.
+	 */
+	static final int NUM_LATENCY_BUCKETS = 32;
+
+	private final LongAdder m_hitCount = new LongAdder();
+
+	private final LongAdder m_missCount = new LongAdder();
+
+	private final LongAdder m_generationCount = new LongAdder();
+
+	private final LongAdder m_generationFailureCount = new LongAdder();
+
+	private final LongAdder m_generationNanos = new LongAdder();
+
+	private final AtomicLong m_maxGenerationNanos = new AtomicLong();
+
+	private final AtomicLongArray m_latencyBuckets = new AtomicLongArray(
+			NUM_LATENCY_BUCKETS);
+
+	/**
+	 * The instantiation counters, keyed by type name (or registry key).
+	 */
+	private final ConcurrentHashMap<String, LongAdder> m_instantiationCounts = new ConcurrentHashMap<String, LongAdder>();
+
+	private final ConcurrentHashMap<String, LongAdder> m_missedKeys = new ConcurrentHashMap<String, LongAdder>();
+
+	void recordHit() {
+		m_hitCount.increment();
+	}
+
+	/**
+	 * Records a lookup that found no registered factory.
+	 * 
+	 * @param key
+	 */
+	void recordMiss(String key) {
+		m_missCount.increment();
+		LongAdder counter = m_missedKeys.get(key);
+		if (counter == null) {
+			if (m_missedKeys.size() >= MAX_MISSED_KEYS) {
+				return;
+			}
+			counter = getCounter(m_missedKeys, key);
+		}
+		counter.increment();
+	}
+
+	/**
+	 * Records a successful factory generation.
+	 * 
+	 * @param nanos
+	 *            the generation time
+	 */
+	void recordGeneration(long nanos) {
+		m_generationCount.increment();
+		m_generationNanos.add(nanos);
+		long max = m_maxGenerationNanos.get();
+		while ((nanos > max)
+				&& !m_maxGenerationNanos.compareAndSet(max, nanos)) {
+			max = m_maxGenerationNanos.get();
+		}
+		long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros),
+				NUM_LATENCY_BUCKETS - 1);
+		m_latencyBuckets.incrementAndGet(bucket);
+	}
+
+	void recordGenerationFailure() {
+		m_generationFailureCount.increment();
+	}
+
+	/**
+	 * Returns the instantiation counter of the specified type name (or key).
+	 * The counters are never removed, so they can be cached by the callers.
+	 * 
+	 * @param name
+	 * @return the instantiation counter
+	 */
+	LongAdder getInstantiationCounter(String name) {
+		LongAdder counter = m_instantiationCounts.get(name);
+		return (counter == null) ? getCounter(m_instantiationCounts, name)
+				: counter;
+	}
+
+	long getHitCount() {
+		return m_hitCount.sum();
+	}
+
+	long getMissCount() {
+		return m_missCount.sum();
+	}
+
+	long getGenerationCount() {
+		return m_generationCount.sum();
+	}
+
+	long getGenerationFailureCount() {
+		return m_generationFailureCount.sum();
+	}
+
+	long getGenerationNanos() {
+		return m_generationNanos.sum();
+	}
+
+	long getMaxGenerationNanos() {
+		return m_maxGenerationNanos.get();
+	}
+
+	long[] getGenerationLatencyHistogram() {
+		long[] latencyBuckets = new long[NUM_LATENCY_BUCKETS];
+		for (int i = 0; i < NUM_LATENCY_BUCKETS; i++) {
+			latencyBuckets[i] = m_latencyBuckets.get(i);
+		}
+		return latencyBuckets;
+	}
+
+	Map<String, Long> getInstantiationCounts() {
+		return sum(m_instantiationCounts);
+	}
+
+	Map<String, Long> getMissedKeys() {
+		return sum(m_missedKeys);
+	}
+
+	/**
+	 * Returns a snapshot of the counters.
+	 * 
+	 * @return a snapshot of the counters
+	 */
+	FactoryStatistics snapshot() {
+		return new FactoryStatistics(getHitCount(), getMissCount(),
+				getGenerationCount(), getGenerationFailureCount(),
+				getGenerationNanos(), getMaxGenerationNanos(),
+				getGenerationLatencyHistogram(), getInstantiationCounts(),
+				getMissedKeys());
+	}
+
+	/**
+	 * Resets all the counters.
+	 */
+	void reset() {
+		m_hitCount.reset();
+		m_missCount.reset();
+		m_generationCount.reset();
+		m_generationFailureCount.reset();
+		m_generationNanos.reset();
+		m_maxGenerationNanos.set(0);
+		for (int i = 0; i < NUM_LATENCY_BUCKETS; i++) {
+			m_latencyBuckets.set(i, 0);
+		}
+		// the instantiation counters may be cached, so they are not removed
+		for (LongAdder counter : m_instantiationCounts.values()) {
+			counter.reset();
+		}
+		m_missedKeys.clear();
+	}
+
+	private static LongAdder getCounter(
+			ConcurrentHashMap<String, LongAdder> counters, String key) {
+		LongAdder counter = new LongAdder();
+		LongAdder previousCounter = counters.putIfAbsent(key, counter);
+		return (previousCounter == null) ? counter : previousCounter;
+	}
+
+	private static Map<String, Long> sum(Map<String, LongAdder> counters) {
+		Map<String, Long> result = new ConcurrentHashMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+			long sum = entry.getValue().sum();
+			if (sum > 0) {
+				result.put(entry.getKey(), sum);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The warm-up of <code>FactoryManager</code>: generates the factories of the
+ * types listed in the warm-up manifests, and records the manifest entries
+ * (the names of the types whose factories are generated at runtime) during a
+ * training run.
+ */
+class FactoryWarmUp {
+
+	/**
+	 * If true, the names of the types with generated factories are recorded in
+	 * m_recordedTypes.
+	 */
+	private volatile boolean m_recording;
+
+	/**
+	 * The recorded warm-up manifest entries.
+	 */
+	private final ConcurrentHashMap<String, Boolean> m_recordedTypes = new ConcurrentHashMap<String, Boolean>();
+
+	void setRecording(boolean recording) {
+		m_recording = recording;
+	}
+
+	/**
+	 * Records the specified type, if the recording is enabled.
+	 * 
+	 * @param klass
+	 *            a type whose factory was generated
+	 */
+	void factoryGenerated(Class<?> klass) {
+		if (m_recording) {
+			m_recordedTypes.put(klass.getName(), Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Returns the recorded warm-up manifest entries, sorted by name.
+	 * 
+	 * @return the recorded type names
+	 */
+	List<String> getRecordedTypes() {
+		List<String> names = new ArrayList<String>(m_recordedTypes.keySet());
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * Writes the recorded warm-up manifest entries, in the manifest format.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	void writeManifest(Writer writer) throws IOException {
+		writer.write("# Factory warm-up manifest (recorded)\n");
+		for (String name : getRecordedTypes()) {
+			writer.write(name);
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Generates the factories of the entries of the specified manifest
+	 * resources (see
+	 * <code>FactoryManager.warmUp(ClassLoader, String, int)</code>).
+	 * 
+	 * @param classLoader
+	 * @param resource
+	 * @param parallelism
+	 * @return the warm-up report
+	 */
+	WarmUpReport warmUp(final ClassLoader classLoader, String resource,
+			int parallelism) {
+		long start = System.nanoTime();
+		List<String> names = readManifest(classLoader, resource);
+		final Map<String, Long> typeNanos = new ConcurrentHashMap<String, Long>();
+		final Map<String, Throwable> failures = new ConcurrentHashMap<String, Throwable>();
+		if (!names.isEmpty()) {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(
+					names.size());
+			for (final String name : names) {
+				tasks.add(new Callable<Object>() {
+					public Object call() {
+						long typeStart = System.nanoTime();
+						try {
+							FactoryManager.warmUpFactory(classLoader, name);
+							typeNanos.put(name, System.nanoTime() - typeStart);
+						} catch (Throwable e) {
+							failures.put(name, e);
+						}
+						return null;
+					}
+				});
+			}
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(
+					1, Math.min(parallelism, names.size())));
+			try {
+				executor.invokeAll(tasks);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		// the report keeps the manifest order
+		Map<String, Long> orderedTypeNanos = new LinkedHashMap<String, Long>();
+		Map<String, Throwable> orderedFailures = new LinkedHashMap<String, Throwable>();
+		for (String name : names) {
+			Long nanos = typeNanos.get(name);
+			if (nanos != null) {
+				orderedTypeNanos.put(name, nanos);
+			}
+			Throwable failure = failures.get(name);
+			if (failure != null) {
+				orderedFailures.put(name, failure);
+			}
+		}
+		return new WarmUpReport(System.nanoTime() - start, orderedTypeNanos,
+				orderedFailures);
+	}
+
+	/**
+	 * Reads the entries of the warm-up manifest resources with the specified
+	 * name, without duplicates.
+	 * 
+	 * @param classLoader
+	 * @param resource
+	 * @return the manifest entries
+	 */
+	private static List<String> readManifest(ClassLoader classLoader,
+			String resource) {
+		Set<String> names = new LinkedHashSet<String>();
+		try {
+			Enumeration<URL> urls = classLoader.getResources(resource);
+			while (urls.hasMoreElements()) {
+				URL url = urls.nextElement();
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(url.openStream(), "UTF-8"));
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						line = line.trim();
+						if ((line.length() > 0) && (line.charAt(0) != '#')) {
+							names.add(line);
+						}
+					}
+				} finally {
+					reader.close();
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading the warm-up manifest: "
+					+ resource, e);
+		}
+		return new ArrayList<String>(names);
+	}
+
+}
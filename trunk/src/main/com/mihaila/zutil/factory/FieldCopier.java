@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.reflect.Field;
+
+import com.mihaila.zutil.lang.WrappedInRuntimeException;
+
+/**
+ * Copies instance fields by reflection. Used by the reflective copiers for
+ * all the fields, and by the generated copiers for the fields that can't be
+ * accessed by the generated code (Eg. the private and final fields).
+ */
+public final class FieldCopier {
+
+	private final Field[] m_fields;
+
+	private final boolean[] m_primitive;
+
+	/**
+	 * @param fields
+	 *            the copied fields (made accessible)
+	 */
+	FieldCopier(Field[] fields) {
+		m_fields = fields.clone();
+		m_primitive = new boolean[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			m_fields[i].setAccessible(true);
+			m_primitive[i] = fields[i].getType().isPrimitive();
+		}
+	}
+
+	/**
+	 * Copies the fields from the prototype to the copy.
+	 * 
+	 * @param prototype
+	 * @param copy
+	 * @param context
+	 *            the context of a deep copy, null for a shallow copy
+	 */
+	public void copyFields(Object prototype, Object copy, CopyContext context) {
+		try {
+			for (int i = 0; i < m_fields.length; i++) {
+				Field field = m_fields[i];
+				Object value = field.get(prototype);
+				if ((context != null) && !m_primitive[i]) {
+					value = context.copy(value);
+				}
+				field.set(copy, value);
+			}
+		} catch (IllegalAccessException e) {
+			throw new WrappedInRuntimeException(e);
+		}
+	}
+}
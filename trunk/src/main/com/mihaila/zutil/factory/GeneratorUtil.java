@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper functions used by the <code>IFactoryGenerator</code>
+ * implementations.
+ */
+final class GeneratorUtil {
+
+	private GeneratorUtil() {
+	}
+
+	/**
+	 * Returns the <code>newInstance</code> method of the specified factory
+	 * interface, after checking that it can be implemented by a factory
+	 * calling a constructor with the specified parameter types. Each parameter
+	 * of the method must be either of the same primitive type as the
+	 * constructor parameter or a reference type (the argument is cast,
+	 * unboxed if needed).
+	 * 
+	 * @param factoryInterface
+	 * @param parameterTypes
+	 * @return the <code>newInstance</code> method
+	 */
+	static Method getFactoryMethod(Class<?> factoryInterface,
+			Class<?>[] parameterTypes) {
+		if (!factoryInterface.isInterface()) {
+			throw new IllegalArgumentException("Not an interface: "
+					+ factoryInterface.getName());
+		}
+		Method factoryMethod = null;
+		for (Method method : factoryInterface.getMethods()) {
+			if (Modifier.isAbstract(method.getModifiers())) {
+				if ((factoryMethod != null)
+						|| !"newInstance".equals(method.getName())) {
+					throw new IllegalArgumentException(
+							"The only abstract method of a factory interface must be newInstance: "
+									+ factoryInterface.getName());
+				}
+				factoryMethod = method;
+			}
+		}
+		if (factoryMethod == null) {
+			throw new IllegalArgumentException(
+					"No newInstance method in factory interface: "
+							+ factoryInterface.getName());
+		}
+		Class<?>[] methodParameterTypes = factoryMethod.getParameterTypes();
+		if (methodParameterTypes.length != parameterTypes.length) {
+			throw new IllegalArgumentException("The newInstance method of "
+					+ factoryInterface.getName() + " doesn't have "
+					+ parameterTypes.length + " parameters.");
+		}
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (methodParameterTypes[i].isPrimitive()
+					&& (methodParameterTypes[i] != parameterTypes[i])) {
+				throw new IllegalArgumentException("Parameter " + i
+						+ " of the newInstance method of "
+						+ factoryInterface.getName() + " is not "
+						+ parameterTypes[i].getName() + '.');
+			}
+		}
+		return factoryMethod;
+	}
+
+	/**
+	 * Returns the constructor called by the factories of the specified type.
+	 * All the generators follow the rule of the javassist factories (classes
+	 * of the package of the created type): the constructor must not be
+	 * private (and the type must not be abstract).
+	 * 
+	 * @param type
+	 * @param parameterTypes
+	 * @return the constructor with the specified parameter types
+	 * @throws NoSuchMethodException
+	 *             if the type has no such constructor
+	 */
+	static <T> Constructor<T> getConstructor(Class<T> type,
+			Class<?>... parameterTypes) throws NoSuchMethodException {
+		if (Modifier.isAbstract(type.getModifiers())) {
+			throw new IllegalArgumentException("Not a concrete class: "
+					+ type.getName());
+		}
+		Constructor<T> constructor = type.getDeclaredConstructor(parameterTypes);
+		if (Modifier.isPrivate(constructor.getModifiers())) {
+			throw new IllegalArgumentException("Private constructor: "
+					+ constructor);
+		}
+		return constructor;
+	}
+
+	/**
+	 * Returns the instance fields copied by the copiers of the specified type:
+	 * the fields declared by the type and by its superclasses, except
+	 * <code>Object</code>. The superclasses from the JDK can't have instance
+	 * fields, because they can't be accessed.
+	 * 
+	 * @param type
+	 * @return the copied fields
+	 */
+	static Field[] getCopiedFields(Class<?> type) {
+		if (type.isInterface() || type.isArray() || type.isPrimitive()
+				|| Modifier.isAbstract(type.getModifiers())) {
+			throw new IllegalArgumentException("Not a concrete class: "
+					+ type.getName());
+		}
+		List<Field> fields = new ArrayList<Field>();
+		for (Class<?> klass = type; klass != Object.class; klass = klass
+				.getSuperclass()) {
+			ClassLoader classLoader = klass.getClassLoader();
+			boolean jdkClass = (classLoader == null)
+					|| (classLoader == ClassLoader.getPlatformClassLoader());
+			for (Field field : klass.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					if (jdkClass) {
+						throw new IllegalArgumentException(
+								"Cannot copy the fields of the JDK class: "
+										+ klass.getName());
+					}
+					fields.add(field);
+				}
+			}
+		}
+		return fields.toArray(new Field[fields.size()]);
+	}
+
+	/**
+	 * Returns the wrapper type of the specified type if it is primitive, the
+	 * type itself otherwise.
+	 * 
+	 * @param type
+	 * @return the wrapper type of the specified type if it is primitive
+	 */
+	static Class<?> toWrapperType(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		} else if (type == int.class) {
+			return Integer.class;
+		} else if (type == long.class) {
+			return Long.class;
+		} else if (type == double.class) {
+			return Double.class;
+		} else if (type == boolean.class) {
+			return Boolean.class;
+		} else if (type == char.class) {
+			return Character.class;
+		} else if (type == byte.class) {
+			return Byte.class;
+		} else if (type == short.class) {
+			return Short.class;
+		} else if (type == float.class) {
+			return Float.class;
+		} else {
+			return Void.class;
+		}
+	}
+
+	/**
+	 * Returns the name of the specified type as it is written in the source
+	 * code (Eg. "int[]" instead of "[I"), but keeping '$' for nested classes,
+	 * as expected by the javassist compiler.
+	 * 
+	 * @param type
+	 * @return the name of the specified type as it is written in the source
+	 */
+	static String toSourceName(Class<?> type) {
+		if (type.isArray()) {
+			return toSourceName(type.getComponentType()) + "[]";
+		}
+		return type.getName();
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+/**
+ * Defines an object factory for the type T that can also fill arrays with
+ * new objects. The factories generated by <code>FactoryManager</code> (by
+ * javassist or at compile time) implement this interface, so the allocation
+ * loop is compiled for a single type.
+ */
+public interface IBulkFactory<T> extends IFactory<T> {
+
+	/**
+	 * Stores new created objects in the specified range of the array.
+	 * 
+	 * @param array
+	 *            an array of type T[] (or of a supertype of T)
+	 * @param from
+	 *            the index of the first element to be set (inclusive)
+	 * @param to
+	 *            the index of the last element to be set (exclusive)
+	 */
+	void fill(Object[] array, int from, int to);
+}
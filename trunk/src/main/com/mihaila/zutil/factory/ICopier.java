@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+/**
+ * Creates copies of prototype objects: a new instance of the prototype class
+ * (created by its default constructor) receives the values of all the
+ * instance fields of the prototype, according to the copier's
+ * <code>CopyPolicy</code>. The copiers are created by
+ * <code>IFactoryGenerator.generateCopier()</code> and cached by
+ * <code>FactoryManager.getCopier()</code>.
+ * 
+ * @param <T>
+ *            the type of the copied objects
+ */
+public interface ICopier<T> {
+
+	/**
+	 * Returns a copy of the specified prototype.
+	 * 
+	 * @param prototype
+	 * @return a copy of the specified prototype
+	 */
+	T copy(T prototype);
+
+	/**
+	 * Returns a copy of the specified prototype, made as part of the copy of
+	 * an object graph. The copy is registered in the specified context before
+	 * its fields are copied, so the cycles of the graph are preserved.
+	 * 
+	 * @param prototype
+	 * @param context
+	 *            the context of a deep copy, null for a shallow copy
+	 * @return a copy of the specified prototype
+	 */
+	T copy(T prototype, CopyContext context);
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+/**
+ * Defines a strategy used by <code>FactoryManager</code> to create factory
+ * objects at runtime, for classes with a default constructor.
+ * 
+ * @see JavassistFactoryGenerator
+ * @see MethodHandleFactoryGenerator
+ * @see ReflectionFactoryGenerator
+ */
+public interface IFactoryGenerator {
+
+	/**
+	 * Returns a new factory object for the specified type. Each call returns a
+	 * new factory object.
+	 * 
+	 * @param type
+	 * @return a new factory object for the specified type
+	 * @throws RuntimeException
+	 *             if the factory cannot be created (Eg. the type has no
+	 *             default constructor)
+	 */
+	<T> IFactory<T> generateFactory(Class<T> type);
+
+	/**
+	 * Returns a new factory object implementing the specified factory
+	 * interface (Eg. <code>IFactory1Arg</code>), which calls the constructor
+	 * of the specified type having the specified parameter types. The only
+	 * abstract method of the interface must be <code>newInstance</code>,
+	 * with the same number of parameters as the constructor; each of its
+	 * parameters must be either a reference type (the arguments are cast, and
+	 * unboxed if needed) or the same primitive type as the constructor
+	 * parameter. Each call returns a new factory object.
+	 * 
+	 * @param factoryInterface
+	 * @param type
+	 * @param parameterTypes
+	 * @return a new factory object implementing the specified interface
+	 * @throws RuntimeException
+	 *             if the factory cannot be created
+	 */
+	<F> F generateFactory(Class<F> factoryInterface, Class<?> type,
+			Class<?>... parameterTypes);
+
+	/**
+	 * Returns a new copier for the specified type, which creates the copies
+	 * by the default constructor and copies all the instance fields
+	 * (including the private and final fields, and the fields declared by the
+	 * superclasses) with the specified policy. Each call returns a new copier
+	 * object.
+	 * 
+	 * @param type
+	 * @param policy
+	 * @return a new copier for the specified type
+	 * @throws RuntimeException
+	 *             if the copier cannot be created
+	 */
+	<T> ICopier<T> generateCopier(Class<T> type, CopyPolicy policy);
+}
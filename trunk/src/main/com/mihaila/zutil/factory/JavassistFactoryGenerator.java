@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.LoaderClassPath;
+
+/**
+ * Generates factory classes using the javassist library. The source code of
+ * the <code>newInstance()</code> method is compiled at runtime into a new
+ * class, so the created object is instantiated by a plain <code>new</code>
+ * expression. This is the default <code>FactoryManager</code> generator. The
+ * generated <code>IFactory</code> objects also implement
+ * <code>IBulkFactory</code>.
+ * <p>
+ * The generated copiers assign the fields directly, except the fields that
+ * can't be accessed from the package of the copied type (the private and
+ * final fields, and the fields of the superclasses from other packages),
+ * which are copied by reflection.
+ * <p>
+ * Each factory class is defined in the class loader (and the package) of the
+ * created type, so it is unloaded together with the type. The types loaded by
+ * other class loaders than the <code>FactoryManager</code> class loader are
+ * compiled against a class pool of their class loader; these class pools are
+ * weakly referenced by the class loaders.
+ * <p>
+ * Each generation compiles its class in a new child of the class pool of the
+ * class loader, which is discarded after the generation. The shared class
+ * pools only read and cache the class files of the referenced types (their
+ * lookups are synchronized by javassist), so the generations run in
+ * parallel, also for the types of the same class loader.
+ */
+public class JavassistFactoryGenerator implements IFactoryGenerator {
+
+	/**
+	 * Used o generate <code>IFactory</code> objects at runtime. The pool and
+	 * the counter are shared by all the instances, so the generated class
+	 * names are unique.
+	 */
+	private static ClassPool m_classPool = ClassPool.getDefault();
+
+	/**
+	 * The class pools of the class loaders other than the class loader of
+	 * <code>FactoryManager</code>, guarded by the
+	 * <code>JavassistFactoryGenerator</code> class lock.
+	 */
+	private static Map<ClassLoader, ClassPool> m_classPools = new WeakHashMap<ClassLoader, ClassPool>();
+
+	/**
+	 * The number of generated runtime factories.
+	 */
+	private static final AtomicInteger m_numRuntimeFactories = new AtomicInteger();
+
+	static {
+		// add the ClassLoader that loads FactoryManager into the class pool
+		m_classPool.insertClassPath(new ClassClassPath(FactoryManager.class));
+	}
+
+	/**
+	 * Returns the number of factory (and copier) classes generated so far (by
+	 * all the instances).
+	 * 
+	 * @return the number of generated classes
+	 */
+	public static int getNumRuntimeFactories() {
+		return m_numRuntimeFactories.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class)
+	 */
+	// because of (IFactory<T>) cast
+	@SuppressWarnings("unchecked")
+	public <T> IFactory<T> generateFactory(Class<T> type) {
+		return (IFactory<T>) generateFactoryHelper(IFactory.class, type,
+				new Class<?>[0]);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class,
+	 *      java.lang.Class, java.lang.Class[])
+	 */
+	public <F> F generateFactory(Class<F> factoryInterface, Class<?> type,
+			Class<?>... parameterTypes) {
+		return factoryInterface.cast(generateFactoryHelper(factoryInterface,
+				type, parameterTypes));
+	}
+
+	private static Object generateFactoryHelper(Class<?> factoryInterface,
+			Class<?> type, Class<?>[] parameterTypes) {
+		return generateFactoryHelper(getClassPool(type), factoryInterface,
+				type, parameterTypes);
+	}
+
+	private static Object generateFactoryHelper(ClassPool classPool,
+			Class<?> factoryInterface, Class<?> type, Class<?>[] parameterTypes) {
+		String typeName = type.getName();
+		Object runtimeFactory = null;
+		String factoryTypeName = typeName + "__RuntimeFactory"
+				+ m_numRuntimeFactories.incrementAndGet();
+		try {
+			Method factoryMethod = GeneratorUtil.getFactoryMethod(
+					factoryInterface, parameterTypes);
+			Class<?>[] methodParameterTypes = factoryMethod
+					.getParameterTypes();
+			// checked before compiling, for the same error as the other
+			// generators
+			GeneratorUtil.getConstructor(type, parameterTypes);
+			CtClass ctClass = classPool.makeClass(factoryTypeName);
+			ctClass.addInterface(classPool.get(factoryInterface.getName()));
+			CtClass[] ctParameterTypes = new CtClass[methodParameterTypes.length];
+			for (int i = 0; i < methodParameterTypes.length; i++) {
+				ctParameterTypes[i] = classPool.get(GeneratorUtil
+						.toSourceName(methodParameterTypes[i]));
+			}
+			CtMethod ctMethod = new CtMethod(classPool.get(factoryMethod
+					.getReturnType().getName()), "newInstance",
+					ctParameterTypes, ctClass);
+			ctMethod.setBody("return new " + typeName + "("
+					+ getArgumentsSource(methodParameterTypes, parameterTypes)
+					+ ");");
+			ctClass.addMethod(ctMethod);
+			if (factoryInterface == IFactory.class) {
+				addFillMethod(classPool, ctClass, typeName);
+			}
+			// define the factory as a neighbor of the created type
+			Class<?> factoryType = ctClass.toClass(type);
+			ctClass.detach();
+			runtimeFactory = factoryType.getDeclaredConstructor()
+					.newInstance();
+			if (runtimeFactory == null) {
+				throw new NullPointerException("Null runtime factory.");
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(
+					"Error creating runtime factory for class: " + typeName
+							+ '.', e);
+		}
+		return runtimeFactory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateCopier(java.lang.Class,
+	 *      com.mihaila.zutil.factory.CopyPolicy)
+	 */
+	// because of (ICopier<T>) cast
+	@SuppressWarnings("unchecked")
+	public <T> ICopier<T> generateCopier(Class<T> type, CopyPolicy policy) {
+		return (ICopier<T>) generateCopierHelper(type, policy);
+	}
+
+	private static Object generateCopierHelper(Class<?> type,
+			CopyPolicy policy) {
+		return generateCopierHelper(getClassPool(type), type, policy);
+	}
+
+	private static Object generateCopierHelper(ClassPool classPool,
+			Class<?> type, CopyPolicy policy) {
+		String typeName = type.getName();
+		String copierTypeName = typeName + "__RuntimeCopier"
+				+ m_numRuntimeFactories.incrementAndGet();
+		try {
+			GeneratorUtil.getConstructor(type);
+			List<Field> reflectedFields = new ArrayList<Field>();
+			StringBuilder body = new StringBuilder();
+			body.append("{ ").append(typeName).append(" copy = new ").append(
+					typeName).append("(); if ($2 != null) { $2.put($1, copy); } ");
+			for (Field field : GeneratorUtil.getCopiedFields(type)) {
+				if (!isAccessible(field, type)) {
+					reflectedFields.add(field);
+					continue;
+				}
+				String declaringTypeName = field.getDeclaringClass().getName();
+				String target = "((" + declaringTypeName + ") copy)."
+						+ field.getName();
+				String source = "((" + declaringTypeName + ") $1)."
+						+ field.getName();
+				body.append(target).append(" = ");
+				if ((policy == CopyPolicy.DEEP)
+						&& !field.getType().isPrimitive()) {
+					// the values are copied by the context (which shares the
+					// immutable ones), or shared by a shallow copy (no context)
+					body.append("($2 == null) ? ").append(source).append(
+							" : (").append(
+							GeneratorUtil.toSourceName(field.getType()))
+							.append(") $2.copy(").append(source).append(")");
+				} else {
+					body.append(source);
+				}
+				body.append("; ");
+			}
+			if (!reflectedFields.isEmpty()) {
+				body.append("m_fieldCopier.copyFields($1, copy, $2); ");
+			}
+			body.append("return copy; }");
+
+			CtClass ctClass = classPool.makeClass(copierTypeName);
+			ctClass.addInterface(classPool.get(ICopier.class.getName()));
+			CtClass ctFieldCopier = classPool.get(FieldCopier.class.getName());
+			ctClass.addField(new CtField(ctFieldCopier, "m_fieldCopier",
+					ctClass));
+			ctClass.addConstructor(CtNewConstructor.make(
+					new CtClass[] { ctFieldCopier }, new CtClass[0],
+					"{ m_fieldCopier = $1; }", ctClass));
+			CtClass ctObject = classPool.get("java.lang.Object");
+			CtMethod ctMethod = new CtMethod(ctObject, "copy",
+					new CtClass[] { ctObject,
+							classPool.get(CopyContext.class.getName()) },
+					ctClass);
+			ctMethod.setBody(body.toString());
+			ctClass.addMethod(ctMethod);
+			ctMethod = new CtMethod(ctObject, "copy",
+					new CtClass[] { ctObject }, ctClass);
+			ctMethod.setBody((policy == CopyPolicy.DEEP) ? "return copy($1, new "
+					+ CopyContext.class.getName() + "());"
+					: "return copy($1, null);");
+			ctClass.addMethod(ctMethod);
+			// define the copier as a neighbor of the copied type
+			Class<?> copierType = ctClass.toClass(type);
+			ctClass.detach();
+			return copierType.getConstructor(FieldCopier.class).newInstance(
+					new FieldCopier(reflectedFields
+							.toArray(new Field[reflectedFields.size()])));
+		} catch (Exception e) {
+			throw new RuntimeException("Error creating copier for class: "
+					+ typeName + '.', e);
+		}
+	}
+
+	/**
+	 * Returns true if the specified field can be assigned by the code of a
+	 * class in the package (and the class loader) of the specified type.
+	 * 
+	 * @param field
+	 * @param type
+	 * @return true if the specified field can be accessed directly
+	 */
+	private static boolean isAccessible(Field field, Class<?> type) {
+		int modifiers = field.getModifiers();
+		if (Modifier.isPrivate(modifiers) || Modifier.isFinal(modifiers)) {
+			return false;
+		}
+		Class<?> declaringType = field.getDeclaringClass();
+		boolean samePackage = (declaringType.getClassLoader() == type
+				.getClassLoader())
+				&& declaringType.getPackageName().equals(type.getPackageName());
+		return samePackage
+				|| (Modifier.isPublic(modifiers) && Modifier
+						.isPublic(declaringType.getModifiers()));
+	}
+
+	/**
+	 * Returns a new class pool for compiling a class generated for the
+	 * specified type: a child of the shared class pool of the class loader of
+	 * the type. The returned class pool must be used by a single generation
+	 * (the generated class is created in it, not in the shared class pool).
+	 * 
+	 * @param type
+	 * @return a new child of the class pool of the class loader of the type
+	 */
+	private static ClassPool getClassPool(Class<?> type) {
+		return new ClassPool(getClassPool(type.getClassLoader()));
+	}
+
+	/**
+	 * Returns the class pool used to compile the factories of the types loaded
+	 * by the specified class loader.
+	 * 
+	 * @param classLoader
+	 * @return the class pool of the specified class loader
+	 */
+	private static synchronized ClassPool getClassPool(ClassLoader classLoader) {
+		if ((classLoader == null)
+				|| (classLoader == FactoryManager.class.getClassLoader())) {
+			return m_classPool;
+		}
+		ClassPool classPool = m_classPools.get(classLoader);
+		if (classPool == null) {
+			classPool = new ClassPool(m_classPool);
+			// LoaderClassPath references the class loader weakly
+			classPool.appendClassPath(new LoaderClassPath(classLoader));
+			m_classPools.put(classLoader, classPool);
+		}
+		return classPool;
+	}
+
+	/**
+	 * Adds the <code>IBulkFactory</code> interface and its fill method to the
+	 * generated factory class.
+	 * 
+	 * @param classPool
+	 * @param ctClass
+	 * @param typeName
+	 */
+	private static void addFillMethod(ClassPool classPool, CtClass ctClass,
+			String typeName) throws Exception {
+		ctClass.addInterface(classPool.get(IBulkFactory.class.getName()));
+		CtMethod ctMethod = new CtMethod(CtClass.voidType, "fill",
+				new CtClass[] { classPool.get("java.lang.Object[]"),
+						CtClass.intType, CtClass.intType }, ctClass);
+		ctMethod.setBody("{ for (int i = $2; i < $3; i++) { $1[i] = new "
+				+ typeName + "(); } }");
+		ctClass.addMethod(ctMethod);
+	}
+
+	/**
+	 * Returns the source code of the constructor call arguments, converting
+	 * the factory method parameters ($1, $2...) to the constructor parameter
+	 * types.
+	 * 
+	 * @param methodParameterTypes
+	 * @param parameterTypes
+	 * @return the source code of the constructor call arguments
+	 */
+	private static String getArgumentsSource(Class<?>[] methodParameterTypes,
+			Class<?>[] parameterTypes) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0) {
+				result.append(", ");
+			}
+			String arg = "$" + (i + 1);
+			Class<?> parameterType = parameterTypes[i];
+			if (methodParameterTypes[i] == parameterType) {
+				result.append(arg);
+			} else if (parameterType.isPrimitive()) {
+				// unbox, Eg. ((java.lang.Integer) $1).intValue()
+				result.append("((").append(
+						GeneratorUtil.toWrapperType(parameterType).getName())
+						.append(") ").append(arg).append(").").append(
+								parameterType.getName()).append("Value()");
+			} else {
+				result.append("(").append(
+						GeneratorUtil.toSourceName(parameterType)).append(
+						") ").append(arg);
+			}
+		}
+		return result.toString();
+	}
+}
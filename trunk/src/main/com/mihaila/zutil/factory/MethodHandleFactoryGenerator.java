@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import com.mihaila.zutil.lang.WrappedInRuntimeException;
+
+/**
+ * Generates factory objects using <code>LambdaMetafactory</code>. The factory
+ * classes are defined as hidden classes nested in the created type, so (unlike
+ * the javassist generated classes) they don't keep any compile time metadata
+ * in memory and they can be unloaded together with the created type. The
+ * constructor call is direct, so it can be inlined by the JIT like a plain
+ * <code>new</code> expression.
+ * <p>
+ * The types from other modules than the module of <code>FactoryManager</code>
+ * (including the types loaded by other class loaders, which belong to their
+ * own unnamed modules) don't grant the full privilege access required by
+ * <code>LambdaMetafactory</code>; their factories are method handle proxies,
+ * which don't keep the created types reachable either, but are slower.
+ */
+public class MethodHandleFactoryGenerator implements IFactoryGenerator {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class)
+	 */
+	// because of (IFactory<T>) cast
+	@SuppressWarnings("unchecked")
+	public <T> IFactory<T> generateFactory(Class<T> type) {
+		return generateFactory(IFactory.class, type);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateCopier(java.lang.Class,
+	 *      com.mihaila.zutil.factory.CopyPolicy)
+	 */
+	public <T> ICopier<T> generateCopier(Class<T> type, CopyPolicy policy) {
+		// the copies are created by a generated factory, the fields are
+		// copied by reflection
+		try {
+			return new ReflectiveCopier<T>(generateFactory(type),
+					new FieldCopier(GeneratorUtil.getCopiedFields(type)),
+					policy);
+		} catch (Exception e) {
+			throw new RuntimeException("Error creating copier for class: "
+					+ type.getName() + '.', e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class,
+	 *      java.lang.Class, java.lang.Class[])
+	 */
+	public <F> F generateFactory(Class<F> factoryInterface, Class<?> type,
+			Class<?>... parameterTypes) {
+		try {
+			Method factoryMethod = GeneratorUtil.getFactoryMethod(
+					factoryInterface, parameterTypes);
+			Class<?>[] methodParameterTypes = factoryMethod
+					.getParameterTypes();
+			// the reference parameters of the factory method are cast (and
+			// unboxed) to the constructor parameter types
+			Class<?>[] instantiatedParameterTypes = new Class<?>[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				instantiatedParameterTypes[i] = (methodParameterTypes[i]
+						.isPrimitive()) ? parameterTypes[i] : GeneratorUtil
+						.toWrapperType(parameterTypes[i]);
+			}
+			// the same constructors as for the other generators
+			GeneratorUtil.getConstructor(type, parameterTypes);
+			// a lookup with private access is needed to generate the factory
+			// class as a nestmate of the created type
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type,
+					MethodHandles.lookup());
+			MethodHandle constructor = lookup.findConstructor(type,
+					MethodType.methodType(void.class, parameterTypes));
+			if ((lookup.lookupModes() & MethodHandles.Lookup.MODULE) == 0) {
+				return MethodHandleProxies.asInterfaceInstance(
+						factoryInterface, constructor.asType(MethodType
+								.methodType(factoryMethod.getReturnType(),
+										methodParameterTypes)));
+			}
+			CallSite callSite = LambdaMetafactory.metafactory(lookup,
+					"newInstance", MethodType.methodType(factoryInterface),
+					MethodType.methodType(factoryMethod.getReturnType(),
+							methodParameterTypes), constructor, MethodType
+							.methodType(type, instantiatedParameterTypes));
+			return factoryInterface.cast(newFactory(callSite.getTarget()));
+		} catch (Exception e) {
+			throw new RuntimeException(
+					"Error creating runtime factory for class: "
+							+ type.getName() + '.', e);
+		}
+	}
+
+	/**
+	 * Calls the factory creator returned by <code>LambdaMetafactory</code>.
+	 * The errors are not wrapped.
+	 * 
+	 * @param factoryCreator
+	 * @return the created factory
+	 */
+	private static Object newFactory(MethodHandle factoryCreator) {
+		try {
+			return factoryCreator.invoke();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			// not thrown by the creators of non capturing lambdas
+			throw new WrappedInRuntimeException(e);
+		}
+	}
+}
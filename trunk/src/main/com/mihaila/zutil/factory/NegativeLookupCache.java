@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded set of keys for which a lookup failed, used by
+ * <code>FactoryManager</code> to avoid repeated <code>Class.forName</code>
+ * calls (and the thrown <code>ClassNotFoundException</code>) for keys that
+ * are not class names. The keys are remembered per class loader (the context
+ * class loader used by the lookup), which is referenced weakly: a key that is
+ * not loadable by a class loader can be loadable by another one. The entries
+ * can optionally expire after a time to live.
+ * <p>
+ * When the cache is full, the thread adding a key evicts entries (the
+ * expired ones and the ones of the unloaded class loaders first) until an
+ * eighth of the cache is free, so the eviction cost is amortized over the
+ * following additions (see <code>CachedCaseConverter</code>).
+ */
+class NegativeLookupCache {
+
+	private static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+	/**
+	 * A key and the class loader for which its lookup failed.
+	 */
+	private static final class Key {
+
+		final String m_name;
+
+		/**
+		 * The class loader (null for the bootstrap class loader).
+		 */
+		final WeakReference<ClassLoader> m_classLoader;
+
+		final int m_hashCode;
+
+		Key(String name, ClassLoader classLoader) {
+			m_name = name;
+			m_classLoader = (classLoader == null) ? null
+					: new WeakReference<ClassLoader>(classLoader);
+			m_hashCode = name.hashCode() * 31
+					+ System.identityHashCode(classLoader);
+		}
+
+		ClassLoader getClassLoader() {
+			return (m_classLoader == null) ? null : m_classLoader.get();
+		}
+
+		/**
+		 * Returns true if the class loader of this key was unloaded.
+		 * 
+		 * @return true if the class loader of this key was unloaded
+		 */
+		boolean isStale() {
+			return (m_classLoader != null) && (m_classLoader.get() == null);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return m_hashCode;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			// the stale keys are equal only to themselves
+			return (m_hashCode == other.m_hashCode)
+					&& m_name.equals(other.m_name)
+					&& ((m_classLoader == null) == (other.m_classLoader == null))
+					&& !isStale()
+					&& (getClassLoader() == other.getClassLoader());
+		}
+	}
+
+	/**
+	 * The cached keys and their expiration time (as System.nanoTime() value,
+	 * or NO_EXPIRATION).
+	 */
+	private final ConcurrentHashMap<Key, Long> m_entries = new ConcurrentHashMap<Key, Long>();
+
+	/**
+	 * Guards the eviction, so only one thread scans the entries.
+	 */
+	private final ReentrantLock m_evictionLock = new ReentrantLock();
+
+	private volatile int m_maxSize;
+
+	private volatile long m_ttlNanos;
+
+	NegativeLookupCache(int maxSize, long ttlNanos) {
+		m_maxSize = maxSize;
+		m_ttlNanos = ttlNanos;
+	}
+
+	int getMaxSize() {
+		return m_maxSize;
+	}
+
+	/**
+	 * Sets the maximum number of cached keys (0 disables the cache).
+	 * 
+	 * @param maxSize
+	 */
+	void setMaxSize(int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Negative size: " + maxSize);
+		}
+		m_maxSize = maxSize;
+		if (maxSize == 0) {
+			m_entries.clear();
+		}
+	}
+
+	long getTtlNanos() {
+		return m_ttlNanos;
+	}
+
+	/**
+	 * Sets the time to live of the cached keys (0 means no expiration). Only
+	 * the keys added later are affected.
+	 * 
+	 * @param ttlNanos
+	 */
+	void setTtlNanos(long ttlNanos) {
+		if (ttlNanos < 0) {
+			throw new IllegalArgumentException("Negative TTL: " + ttlNanos);
+		}
+		m_ttlNanos = ttlNanos;
+	}
+
+	/**
+	 * Returns true if the specified key is cached for the specified class
+	 * loader and not expired.
+	 * 
+	 * @param key
+	 * @param classLoader
+	 * @return true if the specified key is cached and not expired
+	 */
+	boolean contains(String key, ClassLoader classLoader) {
+		if (m_entries.isEmpty()) {
+			return false;
+		}
+		Key entryKey = new Key(key, classLoader);
+		Long expiration = m_entries.get(entryKey);
+		if (expiration == null) {
+			return false;
+		}
+		if ((expiration.longValue() != NO_EXPIRATION)
+				&& (System.nanoTime() - expiration.longValue() >= 0)) {
+			m_entries.remove(entryKey, expiration);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the specified key to the cache, for the specified class loader.
+	 * 
+	 * @param key
+	 * @param classLoader
+	 */
+	void add(String key, ClassLoader classLoader) {
+		int maxSize = m_maxSize;
+		if (maxSize == 0) {
+			return;
+		}
+		long ttlNanos = m_ttlNanos;
+		long expiration = (ttlNanos == 0) ? NO_EXPIRATION : System
+				.nanoTime()
+				+ ttlNanos;
+		if (m_entries.size() >= maxSize) {
+			evict(maxSize);
+		}
+		m_entries.put(new Key(key, classLoader), expiration);
+	}
+
+	/**
+	 * Removes the specified key from the cache, for all the class loaders.
+	 * 
+	 * @param key
+	 */
+	void remove(String key) {
+		if (m_entries.isEmpty()) {
+			return;
+		}
+		Iterator<Key> it = m_entries.keySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().m_name.equals(key)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all the cached keys.
+	 */
+	void clear() {
+		m_entries.clear();
+	}
+
+	/**
+	 * Returns the number of cached keys (including the expired ones not
+	 * evicted yet).
+	 * 
+	 * @return the number of cached keys
+	 */
+	int size() {
+		return m_entries.size();
+	}
+
+	/**
+	 * Removes entries until an eighth of the cache is free: the expired
+	 * entries and the entries of the unloaded class loaders first, then
+	 * arbitrary entries. If another thread is already evicting, returns
+	 * immediately (the cache can then exceed its size for a while).
+	 * 
+	 * @param maxSize
+	 */
+	private void evict(int maxSize) {
+		if (!m_evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			int targetSize = maxSize - Math.max(1, maxSize / 8);
+			long now = System.nanoTime();
+			Iterator<Map.Entry<Key, Long>> it = m_entries.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<Key, Long> entry = it.next();
+				long expiration = entry.getValue().longValue();
+				if (((expiration != NO_EXPIRATION) && (now - expiration >= 0))
+						|| entry.getKey().isStale()) {
+					it.remove();
+				}
+			}
+			Iterator<Key> keyIt = m_entries.keySet().iterator();
+			while ((m_entries.size() > targetSize) && keyIt.hasNext()) {
+				keyIt.next();
+				keyIt.remove();
+			}
+		} finally {
+			m_evictionLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mihaila.zutil.lang.ICallable1Arg;
+
+/**
+ * Recycling factory keeping the released objects in pools. Each thread has a
+ * small free list, used without synchronization; when it is full the
+ * released objects spill into a shared lock-free stack, and when it is empty
+ * the objects are taken from the shared stack. New objects are created by
+ * the wrapped factory only if both pools are empty. The shared stack holds at
+ * most <code>capacity</code> objects, the objects released when it is full
+ * are discarded (left to the garbage collector).
+ * <p>
+ * An optional reset hook is called for every released object before it is
+ * pooled, to clear its state. The hit/miss counters can be used to check the
+ * efficiency of the pool.
+ */
+public class PooledFactory<T> implements IRecyclingFactory<T> {
+
+	/**
+	 * Default size of the per thread free lists.
+	 */
+	public static final int DEFAULT_THREAD_LOCAL_CAPACITY = 16;
+
+	private final IFactory<T> m_factory;
+
+	private final int m_capacity;
+
+	private final int m_threadLocalCapacity;
+
+	private final ICallable1Arg<?, ? super T> m_resetHook;
+
+	private final ThreadLocal<FreeList> m_freeLists = new ThreadLocal<FreeList>() {
+		@Override
+		protected FreeList initialValue() {
+			return new FreeList(m_threadLocalCapacity);
+		}
+	};
+
+	/**
+	 * The top of the shared stack.
+	 */
+	private final AtomicReference<Node> m_top = new AtomicReference<Node>();
+
+	/**
+	 * The number of objects in the shared stack.
+	 */
+	private final AtomicInteger m_size = new AtomicInteger();
+
+	private final LongAdder m_hitCount = new LongAdder();
+
+	private final LongAdder m_missCount = new LongAdder();
+
+	private final LongAdder m_discardCount = new LongAdder();
+
+	/**
+	 * Creates a pooled factory without reset hook.
+	 * 
+	 * @param factory
+	 *            creates the objects when the pools are empty
+	 * @param capacity
+	 *            the maximum number of objects in the shared pool
+	 */
+	public PooledFactory(IFactory<T> factory, int capacity) {
+		this(factory, capacity, DEFAULT_THREAD_LOCAL_CAPACITY, null);
+	}
+
+	/**
+	 * Creates a pooled factory.
+	 * 
+	 * @param factory
+	 *            creates the objects when the pools are empty
+	 * @param capacity
+	 *            the maximum number of objects in the shared pool
+	 * @param threadLocalCapacity
+	 *            the maximum number of objects in each per thread free list
+	 * @param resetHook
+	 *            called for each released object (can be null)
+	 */
+	public PooledFactory(IFactory<T> factory, int capacity,
+			int threadLocalCapacity, ICallable1Arg<?, ? super T> resetHook) {
+		if (factory == null) {
+			throw new NullPointerException("Null factory.");
+		}
+		if ((capacity < 0) || (threadLocalCapacity < 0)) {
+			throw new IllegalArgumentException("Negative capacity.");
+		}
+		m_factory = factory;
+		m_capacity = capacity;
+		m_threadLocalCapacity = threadLocalCapacity;
+		m_resetHook = resetHook;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactory#newInstance()
+	 */
+	// because of (T) cast
+	@SuppressWarnings("unchecked")
+	public T newInstance() {
+		FreeList freeList = m_freeLists.get();
+		if (freeList.m_size > 0) {
+			m_hitCount.increment();
+			return (T) freeList.pop();
+		}
+		Node node = popShared();
+		if (node != null) {
+			m_hitCount.increment();
+			return (T) node.m_object;
+		}
+		m_missCount.increment();
+		return m_factory.newInstance();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IRecyclingFactory#release(java.lang.Object)
+	 */
+	public void release(T object) {
+		if (object == null) {
+			return;
+		}
+		if (m_resetHook != null) {
+			m_resetHook.call(object);
+		}
+		FreeList freeList = m_freeLists.get();
+		if (freeList.m_size < m_threadLocalCapacity) {
+			freeList.push(object);
+		} else if (!pushShared(object)) {
+			m_discardCount.increment();
+		}
+	}
+
+	/**
+	 * Returns the number of <code>newInstance()</code> calls that returned a
+	 * pooled object.
+	 * 
+	 * @return the number of pool hits
+	 */
+	public long getHitCount() {
+		return m_hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of <code>newInstance()</code> calls that created a
+	 * new object.
+	 * 
+	 * @return the number of pool misses
+	 */
+	public long getMissCount() {
+		return m_missCount.sum();
+	}
+
+	/**
+	 * Returns the number of released objects that were not pooled, because
+	 * the pools were full.
+	 * 
+	 * @return the number of discarded objects
+	 */
+	public long getDiscardCount() {
+		return m_discardCount.sum();
+	}
+
+	/**
+	 * Returns the number of objects in the shared pool (the per thread free
+	 * lists are not included).
+	 * 
+	 * @return the number of objects in the shared pool
+	 */
+	public int getSharedPoolSize() {
+		return m_size.get();
+	}
+
+	/**
+	 * Returns the maximum number of objects in the shared pool.
+	 * 
+	 * @return the maximum number of objects in the shared pool
+	 */
+	public int getCapacity() {
+		return m_capacity;
+	}
+
+	/**
+	 * Returns the wrapped factory.
+	 * 
+	 * @return the wrapped factory
+	 */
+	public IFactory<T> getFactory() {
+		return m_factory;
+	}
+
+	/**
+	 * Pushes the object in the shared stack, if it is not full.
+	 * 
+	 * @param object
+	 * @return true if the object was pushed
+	 */
+	private boolean pushShared(Object object) {
+		// reserve a slot first, so the size never exceeds the capacity
+		int size;
+		do {
+			size = m_size.get();
+			if (size >= m_capacity) {
+				return false;
+			}
+		} while (!m_size.compareAndSet(size, size + 1));
+		Node node = new Node(object);
+		Node top;
+		do {
+			top = m_top.get();
+			node.m_next = top;
+		} while (!m_top.compareAndSet(top, node));
+		return true;
+	}
+
+	/**
+	 * Pops a node from the shared stack.
+	 * 
+	 * @return the popped node, or null if the stack is empty
+	 */
+	private Node popShared() {
+		Node top;
+		do {
+			top = m_top.get();
+			if (top == null) {
+				return null;
+			}
+		} while (!m_top.compareAndSet(top, top.m_next));
+		m_size.decrementAndGet();
+		return top;
+	}
+
+	/**
+	 * Node of the shared stack. A new node is created for each push, so the
+	 * compare-and-set operations are not affected by the ABA problem.
+	 */
+	private static final class Node {
+
+		final Object m_object;
+
+		Node m_next;
+
+		Node(Object object) {
+			m_object = object;
+		}
+	}
+
+	/**
+	 * Per thread array-based stack.
+	 */
+	private static final class FreeList {
+
+		final Object[] m_objects;
+
+		int m_size;
+
+		FreeList(int capacity) {
+			m_objects = new Object[capacity];
+		}
+
+		void push(Object object) {
+			m_objects[m_size++] = object;
+		}
+
+		Object pop() {
+			Object object = m_objects[--m_size];
+			m_objects[m_size] = null;
+			return object;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+/**
+ * Factory creating copies of a prototype object, registered by
+ * <code>FactoryManager.setPrototype()</code>.
+ */
+public class PrototypeFactory<T> implements IFactory<T> {
+
+	private final T m_prototype;
+
+	private final ICopier<T> m_copier;
+
+	/**
+	 * @param prototype
+	 *            the copied object (it must not be modified while the factory
+	 *            is used)
+	 * @param copier
+	 */
+	public PrototypeFactory(T prototype, ICopier<T> copier) {
+		if ((prototype == null) || (copier == null)) {
+			throw new NullPointerException("Null prototype or copier.");
+		}
+		m_prototype = prototype;
+		m_copier = copier;
+	}
+
+	/**
+	 * Returns the prototype object.
+	 * 
+	 * @return the prototype object
+	 */
+	public T getPrototype() {
+		return m_prototype;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactory#newInstance()
+	 */
+	public T newInstance() {
+		return m_copier.copy(m_prototype);
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+
+import com.mihaila.zutil.lang.WrappedInRuntimeException;
+
+/**
+ * Creates factory objects that call the default constructor via reflection.
+ * No class is generated, so the factories are cheap to create, but the
+ * <code>newInstance()</code> calls are slower than for the other generators.
+ */
+public class ReflectionFactoryGenerator implements IFactoryGenerator {
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class)
+	 */
+	public <T> IFactory<T> generateFactory(Class<T> type) {
+		try {
+			return new ReflectionFactory<T>(getConstructor(type));
+		} catch (Exception e) {
+			throw new RuntimeException(
+					"Error creating runtime factory for class: "
+							+ type.getName() + '.', e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class,
+	 *      java.lang.Class, java.lang.Class[])
+	 */
+	public <F> F generateFactory(Class<F> factoryInterface, Class<?> type,
+			Class<?>... parameterTypes) {
+		try {
+			GeneratorUtil.getFactoryMethod(factoryInterface, parameterTypes);
+			return factoryInterface.cast(Proxy.newProxyInstance(
+					factoryInterface.getClassLoader(),
+					new Class<?>[] { factoryInterface },
+					new ConstructorInvocationHandler(getConstructor(type,
+							parameterTypes))));
+		} catch (Exception e) {
+			throw new RuntimeException(
+					"Error creating runtime factory for class: "
+							+ type.getName() + '.', e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateCopier(java.lang.Class,
+	 *      com.mihaila.zutil.factory.CopyPolicy)
+	 */
+	public <T> ICopier<T> generateCopier(Class<T> type, CopyPolicy policy) {
+		try {
+			return new ReflectiveCopier<T>(generateFactory(type),
+					new FieldCopier(GeneratorUtil.getCopiedFields(type)),
+					policy);
+		} catch (Exception e) {
+			throw new RuntimeException("Error creating copier for class: "
+					+ type.getName() + '.', e);
+		}
+	}
+
+	/**
+	 * Returns the specified (non private) constructor, made accessible if it
+	 * is not public, as the constructors called by the javassist factories.
+	 * 
+	 * @param type
+	 * @param parameterTypes
+	 * @return the accessible constructor
+	 * @throws NoSuchMethodException
+	 */
+	private static <T> Constructor<T> getConstructor(Class<T> type,
+			Class<?>... parameterTypes) throws NoSuchMethodException {
+		Constructor<T> constructor = GeneratorUtil.getConstructor(type,
+				parameterTypes);
+		if (!Modifier.isPublic(constructor.getModifiers())
+				|| !Modifier.isPublic(type.getModifiers())) {
+			constructor.setAccessible(true);
+		}
+		return constructor;
+	}
+
+	/**
+	 * Calls the specified constructor, unwrapping the exception thrown by it.
+	 * 
+	 * @param constructor
+	 * @param args
+	 * @return the created object
+	 */
+	static <T> T newInstance(Constructor<T> constructor, Object... args) {
+		try {
+			return constructor.newInstance(args);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new WrappedInRuntimeException(cause);
+		} catch (Exception e) {
+			throw new WrappedInRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Factory calling a constructor via reflection.
+	 */
+	static class ReflectionFactory<T> implements IFactory<T> {
+
+		private final Constructor<T> m_constructor;
+
+		ReflectionFactory(Constructor<T> constructor) {
+			m_constructor = constructor;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.IFactory#newInstance()
+		 */
+		public T newInstance() {
+			return ReflectionFactoryGenerator.newInstance(m_constructor);
+		}
+	}
+
+	/**
+	 * Implements the <code>newInstance</code> method of a factory interface
+	 * proxy by calling a constructor via reflection.
+	 */
+	static class ConstructorInvocationHandler implements InvocationHandler {
+
+		private final Constructor<?> m_constructor;
+
+		ConstructorInvocationHandler(Constructor<?> constructor) {
+			m_constructor = constructor;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object,
+		 *      java.lang.reflect.Method, java.lang.Object[])
+		 */
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if (method.getDeclaringClass() != Object.class) {
+				return ReflectionFactoryGenerator.newInstance(m_constructor,
+						args);
+			}
+			// the Object methods use the proxy identity
+			String name = method.getName();
+			if ("equals".equals(name)) {
+				return Boolean.valueOf(proxy == args[0]);
+			} else if ("hashCode".equals(name)) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			} else {
+				return "ReflectionFactory for " + m_constructor;
+			}
+		}
+	}
+}
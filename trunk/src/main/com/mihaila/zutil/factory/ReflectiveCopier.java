@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+/**
+ * Copier creating the copies by a factory and copying all the fields by a
+ * <code>FieldCopier</code>.
+ */
+class ReflectiveCopier<T> implements ICopier<T> {
+
+	private final IFactory<T> m_factory;
+
+	private final FieldCopier m_fieldCopier;
+
+	private final CopyPolicy m_policy;
+
+	ReflectiveCopier(IFactory<T> factory, FieldCopier fieldCopier,
+			CopyPolicy policy) {
+		m_factory = factory;
+		m_fieldCopier = fieldCopier;
+		m_policy = policy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.ICopier#copy(java.lang.Object)
+	 */
+	public T copy(T prototype) {
+		return copy(prototype, (m_policy == CopyPolicy.DEEP) ? new CopyContext()
+				: null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.factory.ICopier#copy(java.lang.Object,
+	 *      com.mihaila.zutil.factory.CopyContext)
+	 */
+	public T copy(T prototype, CopyContext context) {
+		T copy = m_factory.newInstance();
+		if (context != null) {
+			context.put(prototype, copy);
+		}
+		m_fieldCopier.copyFields(prototype, copy, context);
+		return copy;
+	}
+}
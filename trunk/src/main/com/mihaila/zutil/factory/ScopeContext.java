@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Holds the objects of the REQUEST scope. A context is activated in the
+ * current thread by <code>enter()</code> and deactivated by
+ * <code>exit()</code>, which releases its objects:
+ * 
+ * <pre>
+ * ScopeContext context = ScopeContext.enter();
+ * try {
+ * 	// process the request
+ * } finally {
+ * 	context.exit();
+ * }
+ * </pre>
+ * 
+ * The contexts can be nested (the inner context hides the outer one until it
+ * exits). A context is confined to the thread that entered it.
+ */
+public final class ScopeContext {
+
+	private static final ThreadLocal<ScopeContext> m_current = new ThreadLocal<ScopeContext>();
+
+	private final ScopeContext m_outer;
+
+	/**
+	 * The objects of the context, keyed by their scoped factories.
+	 */
+	private final Map<IFactory<?>, Object> m_instances = new IdentityHashMap<IFactory<?>, Object>();
+
+	private ScopeContext(ScopeContext outer) {
+		m_outer = outer;
+	}
+
+	/**
+	 * Activates a new context in the current thread.
+	 * 
+	 * @return the new context
+	 */
+	public static ScopeContext enter() {
+		ScopeContext context = new ScopeContext(m_current.get());
+		m_current.set(context);
+		return context;
+	}
+
+	/**
+	 * Returns the active context of the current thread.
+	 * 
+	 * @return the active context, or null if no context is active
+	 */
+	public static ScopeContext current() {
+		return m_current.get();
+	}
+
+	/**
+	 * Deactivates this context (restoring the outer context, if any) and
+	 * releases its objects.
+	 */
+	public void exit() {
+		if (m_current.get() != this) {
+			throw new IllegalStateException(
+					"The scope context is not active in the current thread.");
+		}
+		if (m_outer == null) {
+			m_current.remove();
+		} else {
+			m_current.set(m_outer);
+		}
+		m_instances.clear();
+	}
+
+	/**
+	 * Returns the object associated with the specified key, creating it by
+	 * the specified factory on the first request.
+	 * 
+	 * @param key
+	 * @param factory
+	 * @return the object associated with the specified key
+	 */
+	// because of (T) cast
+	@SuppressWarnings("unchecked")
+	<T> T getInstance(IFactory<T> key, IFactory<T> factory) {
+		Object instance = m_instances.get(key);
+		if (instance == null) {
+			instance = factory.newInstance();
+			m_instances.put(key, instance);
+		}
+		return (T) instance;
+	}
+}
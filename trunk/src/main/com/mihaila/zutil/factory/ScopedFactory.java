@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+/**
+ * Factory returning the objects of a scope, created on demand by the wrapped
+ * factory. Use <code>newScopedFactory()</code> to create the factory of a
+ * scope.
+ */
+public abstract class ScopedFactory<T> implements IFactory<T> {
+
+	protected final IFactory<T> m_factory;
+
+	/**
+	 * @param factory
+	 *            creates the objects of the scope
+	 */
+	protected ScopedFactory(IFactory<T> factory) {
+		if (factory == null) {
+			throw new NullPointerException("Null factory.");
+		}
+		m_factory = factory;
+	}
+
+	/**
+	 * Returns the factory of the specified scope, wrapping the specified
+	 * factory (which is returned as is for the PROTOTYPE scope).
+	 * 
+	 * @param factory
+	 * @param scope
+	 * @return the factory of the specified scope
+	 */
+	public static <T> IFactory<T> newScopedFactory(IFactory<T> factory,
+			FactoryScope scope) {
+		switch (scope) {
+		case PROTOTYPE:
+			return factory;
+		case SINGLETON:
+			return new SingletonFactory<T>(factory);
+		case THREAD:
+			return new ThreadScopedFactory<T>(factory);
+		case REQUEST:
+			return new RequestScopedFactory<T>(factory);
+		default:
+			throw new IllegalArgumentException("Invalid scope: " + scope);
+		}
+	}
+
+	/**
+	 * Returns the wrapped factory.
+	 * 
+	 * @return the wrapped factory
+	 */
+	public IFactory<T> getFactory() {
+		return m_factory;
+	}
+
+	/**
+	 * Returns the scope of the created objects.
+	 * 
+	 * @return the scope of the created objects
+	 */
+	public abstract FactoryScope getScope();
+
+	/**
+	 * Lazy singleton, created once: the object is read by a volatile read
+	 * (with no locking once it is created), and if it is not created yet, it
+	 * is created under the factory lock (double-checked locking). The threads
+	 * racing on the first request wait for the object created by the first
+	 * one. If the wrapped factory throws an exception, nothing is published
+	 * and the next request creates the object again.
+	 */
+	static final class SingletonFactory<T> extends ScopedFactory<T> {
+
+		private volatile Object m_instance;
+
+		SingletonFactory(IFactory<T> factory) {
+			super(factory);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.IFactory#newInstance()
+		 */
+		// because of (T) cast
+		@SuppressWarnings("unchecked")
+		public T newInstance() {
+			Object instance = m_instance;
+			if (instance == null) {
+				synchronized (this) {
+					instance = m_instance;
+					if (instance == null) {
+						instance = m_factory.newInstance();
+						m_instance = instance;
+					}
+				}
+			}
+			return (T) instance;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.ScopedFactory#getScope()
+		 */
+		@Override
+		public FactoryScope getScope() {
+			return FactoryScope.SINGLETON;
+		}
+	}
+
+	/**
+	 * One object per thread.
+	 */
+	static final class ThreadScopedFactory<T> extends ScopedFactory<T> {
+
+		private final ThreadLocal<T> m_instances = new ThreadLocal<T>() {
+			@Override
+			protected T initialValue() {
+				return m_factory.newInstance();
+			}
+		};
+
+		ThreadScopedFactory(IFactory<T> factory) {
+			super(factory);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.IFactory#newInstance()
+		 */
+		public T newInstance() {
+			return m_instances.get();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.ScopedFactory#getScope()
+		 */
+		@Override
+		public FactoryScope getScope() {
+			return FactoryScope.THREAD;
+		}
+	}
+
+	/**
+	 * One object per <code>ScopeContext</code>.
+	 */
+	static final class RequestScopedFactory<T> extends ScopedFactory<T> {
+
+		RequestScopedFactory(IFactory<T> factory) {
+			super(factory);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.IFactory#newInstance()
+		 */
+		public T newInstance() {
+			ScopeContext context = ScopeContext.current();
+			if (context == null) {
+				throw new IllegalStateException(
+						"No active scope context in the current thread.");
+			}
+			return context.getInstance(this, m_factory);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.ScopedFactory#getScope()
+		 */
+		@Override
+		public FactoryScope getScope() {
+			return FactoryScope.REQUEST;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of <code>FactoryManager.warmUp()</code>: the total time, the
+ * time spent for each type (in the manifest order) and the failures.
+ */
+public final class WarmUpReport {
+
+	private final long m_totalNanos;
+
+	private final Map<String, Long> m_typeNanos;
+
+	private final Map<String, Throwable> m_failures;
+
+	WarmUpReport(long totalNanos, Map<String, Long> typeNanos,
+			Map<String, Throwable> failures) {
+		m_totalNanos = totalNanos;
+		m_typeNanos = Collections
+				.unmodifiableMap(new LinkedHashMap<String, Long>(typeNanos));
+		m_failures = Collections
+				.unmodifiableMap(new LinkedHashMap<String, Throwable>(failures));
+	}
+
+	/**
+	 * Returns the elapsed time of the warm-up, in nanoseconds.
+	 * 
+	 * @return the elapsed time of the warm-up
+	 */
+	public long getTotalNanos() {
+		return m_totalNanos;
+	}
+
+	/**
+	 * Returns the time spent to get the factory of each warmed up type (or
+	 * key), in nanoseconds. The failed types are not included.
+	 * 
+	 * @return the time spent for each type
+	 */
+	public Map<String, Long> getTypeNanos() {
+		return m_typeNanos;
+	}
+
+	/**
+	 * Returns the manifest entries for which no factory could be registered,
+	 * with the cause of the failure.
+	 * 
+	 * @return the failed entries
+	 */
+	public Map<String, Throwable> getFailures() {
+		return m_failures;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append("Factory warm-up: ").append(m_typeNanos.size()).append(
+				" types in ").append(
+				TimeUnit.NANOSECONDS.toMillis(m_totalNanos)).append(" ms, ")
+				.append(m_failures.size()).append(" failures");
+		for (Map.Entry<String, Long> entry : m_typeNanos.entrySet()) {
+			result.append("\n\t").append(entry.getKey()).append(": ").append(
+					TimeUnit.NANOSECONDS.toMicros(entry.getValue())).append(
+					" us");
+		}
+		for (Map.Entry<String, Throwable> entry : m_failures.entrySet()) {
+			result.append("\n\t").append(entry.getKey()).append(": failed (")
+					.append(entry.getValue()).append(")");
+		}
+		return result.toString();
+	}
+}
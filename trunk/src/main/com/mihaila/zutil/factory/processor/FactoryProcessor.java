@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.factory.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+import com.mihaila.zutil.factory.FactoryManager;
+import com.mihaila.zutil.factory.GenerateFactory;
+
+/**
+ * Annotation processor generating <code>IBulkFactory</code> implementations
+ * for the classes annotated with <code>GenerateFactory</code>. For a class
+ * p.Outer.Inner the factory p.Outer_Inner__Factory is generated. At the end
+ * of the processing the (key, factory class name) pairs are written to the
+ * <code>FactoryManager.FACTORY_INDEX_RESOURCE</code> resource, merged with
+ * the entries of the existing resource (an incremental compilation processes
+ * only the recompiled classes).
+ */
+public class FactoryProcessor extends AbstractProcessor {
+
+	private static final String FACTORY_SUFFIX = "__Factory";
+
+	/**
+	 * The factories generated so far, keyed by the registry key.
+	 */
+	private Properties m_index = new Properties();
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see javax.annotation.processing.AbstractProcessor#getSupportedAnnotationTypes()
+	 */
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(GenerateFactory.class.getName());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+	 *      javax.annotation.processing.RoundEnvironment)
+	 */
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations,
+			RoundEnvironment roundEnv) {
+		for (Element element : roundEnv
+				.getElementsAnnotatedWith(GenerateFactory.class)) {
+			if (isValid(element)) {
+				generateFactory((TypeElement) element);
+			}
+		}
+		if (roundEnv.processingOver() && !m_index.isEmpty()) {
+			writeIndex();
+		}
+		return true;
+	}
+
+	/**
+	 * Checks that a factory can be generated for the specified element. An
+	 * error is reported otherwise.
+	 * 
+	 * @param element
+	 * @return true if a factory can be generated for the specified element
+	 */
+	private boolean isValid(Element element) {
+		Messager messager = processingEnv.getMessager();
+		if (element.getKind() != ElementKind.CLASS) {
+			messager.printMessage(Diagnostic.Kind.ERROR,
+					"@GenerateFactory can be used only on classes.", element);
+			return false;
+		}
+		TypeElement typeElement = (TypeElement) element;
+		Set<Modifier> modifiers = typeElement.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT)
+				|| modifiers.contains(Modifier.PRIVATE)) {
+			messager.printMessage(Diagnostic.Kind.ERROR,
+					"@GenerateFactory class must be non-abstract and non-private.",
+					element);
+			return false;
+		}
+		if ((typeElement.getNestingKind() != NestingKind.TOP_LEVEL)
+				&& !modifiers.contains(Modifier.STATIC)) {
+			messager.printMessage(Diagnostic.Kind.ERROR,
+					"@GenerateFactory nested class must be static.", element);
+			return false;
+		}
+		for (ExecutableElement constructor : ElementFilter
+				.constructorsIn(typeElement.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty()
+					&& !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		messager.printMessage(Diagnostic.Kind.ERROR,
+				"@GenerateFactory class must have a non-private default constructor.",
+				element);
+		return false;
+	}
+
+	/**
+	 * Generates the factory source file for the specified class and adds it
+	 * to the index.
+	 * 
+	 * @param typeElement
+	 */
+	private void generateFactory(TypeElement typeElement) {
+		PackageElement packageElement = processingEnv.getElementUtils()
+				.getPackageOf(typeElement);
+		String packageName = packageElement.getQualifiedName().toString();
+		String binaryName = processingEnv.getElementUtils().getBinaryName(
+				typeElement).toString();
+		String typeName = typeElement.getQualifiedName().toString();
+		String factorySimpleName = binaryName.substring(
+				packageName.length() == 0 ? 0 : packageName.length() + 1)
+				.replace('$', '_')
+				+ FACTORY_SUFFIX;
+		String factoryName = (packageName.length() == 0) ? factorySimpleName
+				: packageName + '.' + factorySimpleName;
+		String key = typeElement.getAnnotation(GenerateFactory.class).key();
+		if (key.length() == 0) {
+			key = binaryName;
+		}
+		try {
+			Writer out = processingEnv.getFiler().createSourceFile(
+					factoryName, typeElement).openWriter();
+			try {
+				if (packageName.length() != 0) {
+					out.write("package " + packageName + ";\n\n");
+				}
+				out.write("public final class " + factorySimpleName
+						+ " implements com.mihaila.zutil.factory.IBulkFactory<"
+						+ typeName + "> {\n\n");
+				out.write("\tpublic " + typeName + " newInstance() {\n");
+				out.write("\t\treturn new " + typeName + "();\n");
+				out.write("\t}\n\n");
+				out.write("\tpublic void fill(Object[] array, int from, int to) {\n");
+				out.write("\t\tfor (int i = from; i < to; i++) {\n");
+				out.write("\t\t\tarray[i] = new " + typeName + "();\n");
+				out.write("\t\t}\n");
+				out.write("\t}\n");
+				out.write("}\n");
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Error generating factory " + factoryName + ": " + e,
+					typeElement);
+			return;
+		}
+		m_index.setProperty(key, factoryName);
+	}
+
+	/**
+	 * Writes the factory index resource. The entries of the existing resource
+	 * that were not regenerated are kept; the stale ones are skipped by
+	 * <code>FactoryManager.registerIndexedFactories()</code>.
+	 */
+	private void writeIndex() {
+		Filer filer = processingEnv.getFiler();
+		Properties index = new Properties();
+		try {
+			InputStream in = filer.getResource(StandardLocation.CLASS_OUTPUT,
+					"", FactoryManager.FACTORY_INDEX_RESOURCE).openInputStream();
+			try {
+				index.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// no index written by a previous compilation
+		}
+		index.putAll(m_index);
+		try {
+			OutputStream out = filer.createResource(
+					StandardLocation.CLASS_OUTPUT, "",
+					FactoryManager.FACTORY_INDEX_RESOURCE).openOutputStream();
+			try {
+				index.store(out, "Generated by "
+						+ FactoryProcessor.class.getName());
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Error writing the factory index: " + e);
+		}
+	}
+}
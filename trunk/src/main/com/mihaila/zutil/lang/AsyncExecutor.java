@@ -0,0 +1,773 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.lang;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs <code>ICallable</code>, <code>ICallable1Arg</code> and
+ * <code>ICallable2Args</code> blocks asynchronously (e.g. blocking JDBC calls
+ * fanned out by the hundreds), returning <code>CompletableFuture</code>s.
+ * <p>
+ * The blocks run on a supplied executor, or by default on virtual threads
+ * (one per call) when the JVM supports them (Java 21+), otherwise on a cached
+ * pool of daemon threads. The number of blocks running at once can be
+ * limited: the calls above the limit are queued, with no thread blocked,
+ * and started when a running call completes.
+ * <p>
+ * Cancelling a returned future interrupts the thread running the block (if
+ * <code>mayInterruptIfRunning</code> is true). A call can have a deadline:
+ * when it is reached, the future completes with a
+ * <code>TimeoutException</code> and the running block is interrupted. The
+ * deadline is propagated: the calls submitted by a running block have at
+ * most the deadline of that block, and the block can read the time left by
+ * <code>getRemainingTime()</code> (e.g. to set the timeout of a query).
+ * <p>
+ * Usage example:
+ * 
+ * <pre>
+ * AsyncExecutor executor = new AsyncExecutor(50);
+ * List&lt;ICallable&lt;Customer&gt;&gt; lookups = ...;
+ * List&lt;Customer&gt; customers = executor.invokeAll(lookups, 2, TimeUnit.SECONDS)
+ * 		.join();
+ * </pre>
+ */
+public class AsyncExecutor {
+
+	/**
+	 * The concurrency limit of the executors with no limit.
+	 */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+
+	/**
+	 * The task running on the current thread, if any.
+	 */
+	private static final ThreadLocal<Task<?>> CURRENT_TASK = new ThreadLocal<Task<?>>();
+
+	/**
+	 * The longest timeout, so the deadlines can be compared by subtraction
+	 * (about 146 years).
+	 */
+	private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE >> 1;
+
+	/**
+	 * The default executor, created on first use.
+	 */
+	private static class DefaultExecutorHolder {
+
+		/**
+		 * The virtual thread per task executor (null if the JVM has no
+		 * virtual threads).
+		 */
+		static final Executor VIRTUAL_THREAD_EXECUTOR = newVirtualThreadExecutor();
+
+		static final Executor EXECUTOR = (VIRTUAL_THREAD_EXECUTOR != null) ? VIRTUAL_THREAD_EXECUTOR
+				: newDaemonThreadPool();
+	}
+
+	/**
+	 * The timer completing the futures at their deadline, created on first
+	 * use.
+	 */
+	private static class TimerHolder {
+
+		static final ScheduledThreadPoolExecutor TIMER = newTimer();
+	}
+
+	/**
+	 * A block call: the future of its result, run by the executor.
+	 */
+	private class Task<R> extends CompletableFuture<R> implements Runnable {
+
+		private final ICallable<R> m_callable;
+
+		private final boolean m_hasDeadline;
+
+		/**
+		 * The deadline (a <code>System.nanoTime()</code> value), if any.
+		 */
+		private final long m_deadline;
+
+		/**
+		 * The thread running the block, guarded by the task monitor.
+		 */
+		private Thread m_runner;
+
+		/**
+		 * True if the runner was interrupted by <code>cancel()</code> or
+		 * <code>timeout()</code>, guarded by the task monitor.
+		 */
+		private boolean m_interrupted;
+
+		private ScheduledFuture<?> m_timeout;
+
+		Task(ICallable<R> callable, boolean hasDeadline, long deadline) {
+			m_callable = callable;
+			m_hasDeadline = hasDeadline;
+			m_deadline = deadline;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			try {
+				synchronized (this) {
+					// cancelled or timed out while queued
+					if (isDone()) {
+						return;
+					}
+					m_runner = Thread.currentThread();
+				}
+				Task<?> previousTask = CURRENT_TASK.get();
+				CURRENT_TASK.set(this);
+				try {
+					complete(m_callable.call());
+				} catch (Throwable e) {
+					completeExceptionally(e);
+				} finally {
+					CURRENT_TASK.set(previousTask);
+					synchronized (this) {
+						m_runner = null;
+						// clear the interruption delivered to the block, which
+						// can't happen anymore; an interruption of the thread
+						// by someone else (e.g. the submitter, with a
+						// caller-runs executor) is kept
+						if (m_interrupted) {
+							Thread.interrupted();
+						}
+					}
+				}
+			} finally {
+				taskEnded();
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.CompletableFuture#cancel(boolean)
+		 */
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled && mayInterruptIfRunning) {
+				interruptRunner();
+			}
+			return cancelled;
+		}
+
+		/**
+		 * Completes the future with a <code>TimeoutException</code> and
+		 * interrupts the block, when the deadline is reached.
+		 */
+		void timeout() {
+			if (completeExceptionally(new TimeoutException(
+					"Deadline reached."))) {
+				interruptRunner();
+			}
+		}
+
+		private synchronized void interruptRunner() {
+			if (m_runner != null) {
+				m_interrupted = true;
+				m_runner.interrupt();
+			}
+		}
+
+		/**
+		 * Schedules the timeout of the task, cancelled when the task
+		 * completes. The timer only hands the timeout off to the executor:
+		 * completing the future runs its dependent stages, which must not
+		 * delay the other timeouts on the shared timer thread.
+		 */
+		void scheduleTimeout() {
+			if (!m_hasDeadline) {
+				return;
+			}
+			long delay = m_deadline - System.nanoTime();
+			if (delay <= 0) {
+				timeout();
+				return;
+			}
+			final Runnable timeout = new Runnable() {
+				public void run() {
+					timeout();
+				}
+			};
+			m_timeout = TimerHolder.TIMER.schedule(new Runnable() {
+				public void run() {
+					try {
+						m_executor.execute(timeout);
+					} catch (RejectedExecutionException e) {
+						// the deadline is still enforced
+						timeout.run();
+					}
+				}
+			}, delay, TimeUnit.NANOSECONDS);
+			whenComplete(new BiConsumer<R, Throwable>() {
+				public void accept(R result, Throwable e) {
+					m_timeout.cancel(false);
+				}
+			});
+		}
+	}
+
+	private final Executor m_executor;
+
+	private final int m_maxConcurrency;
+
+	/**
+	 * The permits of the running tasks (null if the concurrency is not
+	 * limited).
+	 */
+	private final Semaphore m_permits;
+
+	/**
+	 * The tasks waiting for a permit.
+	 */
+	private final Queue<Task<?>> m_pendingTasks = new ConcurrentLinkedQueue<Task<?>>();
+
+	/**
+	 * Set while the current thread runs the <code>startPendingTasks()</code>
+	 * loop: the tasks ending inside the loop (run by a same-thread executor)
+	 * leave the pending tasks to the loop, instead of recursing into it.
+	 */
+	private final ThreadLocal<Boolean> m_startingPendingTasks = new ThreadLocal<Boolean>();
+
+	/**
+	 * Creates an executor running the blocks on virtual threads (or on a
+	 * cached pool of daemon threads, on the JVMs with no virtual threads),
+	 * with no concurrency limit.
+	 */
+	public AsyncExecutor() {
+		this(UNLIMITED);
+	}
+
+	/**
+	 * Creates an executor running the blocks on virtual threads (or on a
+	 * cached pool of daemon threads, on the JVMs with no virtual threads).
+	 * 
+	 * @param maxConcurrency
+	 *            the maximum number of blocks running at once
+	 */
+	public AsyncExecutor(int maxConcurrency) {
+		this(DefaultExecutorHolder.EXECUTOR, maxConcurrency);
+	}
+
+	/**
+	 * Creates an executor running the blocks on the specified executor, with
+	 * no concurrency limit.
+	 * 
+	 * @param executor
+	 */
+	public AsyncExecutor(Executor executor) {
+		this(executor, UNLIMITED);
+	}
+
+	/**
+	 * @param executor
+	 *            the executor running the blocks (not shut down by this
+	 *            class)
+	 * @param maxConcurrency
+	 *            the maximum number of blocks running at once
+	 */
+	public AsyncExecutor(Executor executor, int maxConcurrency) {
+		if (executor == null) {
+			throw new NullPointerException("Null executor.");
+		}
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("Invalid concurrency: "
+					+ maxConcurrency);
+		}
+		m_executor = executor;
+		m_maxConcurrency = maxConcurrency;
+		m_permits = (maxConcurrency == UNLIMITED) ? null : new Semaphore(
+				maxConcurrency);
+	}
+
+	/**
+	 * Returns true if the JVM supports virtual threads (the default executor
+	 * then runs each block on a new virtual thread).
+	 * 
+	 * @return true if the JVM supports virtual threads
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return DefaultExecutorHolder.VIRTUAL_THREAD_EXECUTOR != null;
+	}
+
+	/**
+	 * Returns the time left before the deadline of the block running on the
+	 * current thread.
+	 * 
+	 * @param unit
+	 *            the unit of the returned time
+	 * @return the time left (0 if the deadline is past), or
+	 *         <code>Long.MAX_VALUE</code> if the current thread is not running
+	 *         a block with a deadline
+	 */
+	public static long getRemainingTime(TimeUnit unit) {
+		Task<?> task = CURRENT_TASK.get();
+		if ((task == null) || !task.m_hasDeadline) {
+			return Long.MAX_VALUE;
+		}
+		long remaining = task.m_deadline - System.nanoTime();
+		return unit.convert(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the maximum number of blocks running at once.
+	 * 
+	 * @return the concurrency limit, <code>UNLIMITED</code> if there is none
+	 */
+	public int getMaxConcurrency() {
+		return m_maxConcurrency;
+	}
+
+	/**
+	 * Returns the number of calls waiting for a running call to complete,
+	 * because of the concurrency limit.
+	 * 
+	 * @return the number of queued calls
+	 */
+	public int getPendingCount() {
+		return m_pendingTasks.size();
+	}
+
+	/**
+	 * Calls a block asynchronously, with the deadline of the current block
+	 * (if any).
+	 * 
+	 * @param callable
+	 * @return the future of the result
+	 */
+	public <R> CompletableFuture<R> submit(ICallable<R> callable) {
+		return submit(callable, false, 0);
+	}
+
+	/**
+	 * Calls a block asynchronously, with a deadline (or the deadline of the
+	 * current block, if earlier).
+	 * 
+	 * @param callable
+	 * @param timeout
+	 *            the time from now to the deadline (not negative)
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the future of the result
+	 */
+	public <R> CompletableFuture<R> submit(ICallable<R> callable,
+			long timeout, TimeUnit unit) {
+		return submit(callable, true, getDeadline(timeout, unit));
+	}
+
+	/**
+	 * Calls a block with 1 argument asynchronously (see
+	 * <code>submit(ICallable)</code>).
+	 * 
+	 * @param callable
+	 * @param arg
+	 * @return the future of the result
+	 */
+	public <R, A> CompletableFuture<R> submit(
+			final ICallable1Arg<R, A> callable, final A arg) {
+		return submit(new ICallable<R>() {
+			public R call() {
+				return callable.call(arg);
+			}
+		});
+	}
+
+	/**
+	 * Calls a block with 2 arguments asynchronously (see
+	 * <code>submit(ICallable)</code>).
+	 * 
+	 * @param callable
+	 * @param arg0
+	 * @param arg1
+	 * @return the future of the result
+	 */
+	public <R, A0, A1> CompletableFuture<R> submit(
+			final ICallable2Args<R, A0, A1> callable, final A0 arg0,
+			final A1 arg1) {
+		return submit(new ICallable<R>() {
+			public R call() {
+				return callable.call(arg0, arg1);
+			}
+		});
+	}
+
+	/**
+	 * Calls a block with 1 argument for each argument of a collection,
+	 * asynchronously (see <code>invokeAll(Collection)</code>).
+	 * 
+	 * @param callable
+	 * @param args
+	 * @return the future of the results, in the order of the arguments
+	 */
+	public <R, A> CompletableFuture<List<R>> invokeAll(
+			final ICallable1Arg<R, A> callable, Collection<? extends A> args) {
+		List<ICallable<R>> callables = new ArrayList<ICallable<R>>(args
+				.size());
+		for (final A arg : args) {
+			callables.add(new ICallable<R>() {
+				public R call() {
+					return callable.call(arg);
+				}
+			});
+		}
+		return invokeAll(callables);
+	}
+
+	/**
+	 * Calls all the blocks of a collection asynchronously. The returned
+	 * future completes with the list of the results when all the blocks
+	 * complete, or with the exception of the first block failing (the other
+	 * blocks are then cancelled). Cancelling the returned future cancels the
+	 * blocks.
+	 * 
+	 * @param callables
+	 * @return the future of the results, in the order of the blocks
+	 */
+	public <R> CompletableFuture<List<R>> invokeAll(
+			Collection<? extends ICallable<R>> callables) {
+		return combineAll(submitAll(callables, false, 0));
+	}
+
+	/**
+	 * Calls all the blocks of a collection asynchronously, with a common
+	 * deadline (see <code>invokeAll(Collection)</code>).
+	 * 
+	 * @param callables
+	 * @param timeout
+	 *            the time from now to the deadline (not negative)
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the future of the results, in the order of the blocks
+	 */
+	public <R> CompletableFuture<List<R>> invokeAll(
+			Collection<? extends ICallable<R>> callables, long timeout,
+			TimeUnit unit) {
+		return combineAll(submitAll(callables, true, getDeadline(timeout,
+				unit)));
+	}
+
+	/**
+	 * Calls all the blocks of a collection asynchronously. The returned
+	 * future completes with the result of the first block completing
+	 * normally (the other blocks are then cancelled), or with the exception
+	 * of the last block if all of them fail. Cancelling the returned future
+	 * cancels the blocks.
+	 * 
+	 * @param callables
+	 * @return the future of the first result
+	 */
+	public <R> CompletableFuture<R> invokeAny(
+			Collection<? extends ICallable<R>> callables) {
+		return combineAny(submitAll(callables, false, 0));
+	}
+
+	/**
+	 * Calls all the blocks of a collection asynchronously, with a common
+	 * deadline (see <code>invokeAny(Collection)</code>).
+	 * 
+	 * @param callables
+	 * @param timeout
+	 *            the time from now to the deadline (not negative)
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the future of the first result
+	 */
+	public <R> CompletableFuture<R> invokeAny(
+			Collection<? extends ICallable<R>> callables, long timeout,
+			TimeUnit unit) {
+		return combineAny(submitAll(callables, true, getDeadline(timeout,
+				unit)));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "AsyncExecutor(" + m_executor + ", max concurrency: "
+				+ ((m_permits == null) ? "unlimited" : m_maxConcurrency)
+				+ ", pending: " + getPendingCount() + ")";
+	}
+
+	/**
+	 * Returns the deadline at the specified time from now. The timeouts
+	 * longer than <code>MAX_TIMEOUT_NANOS</code> are clamped, so the deadline
+	 * doesn't overflow.
+	 * 
+	 * @param timeout
+	 * @param unit
+	 * @return the deadline (a <code>System.nanoTime()</code> value)
+	 */
+	private static long getDeadline(long timeout, TimeUnit unit) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Invalid timeout: " + timeout);
+		}
+		if (unit == null) {
+			throw new NullPointerException("Null unit.");
+		}
+		return System.nanoTime()
+				+ Math.min(unit.toNanos(timeout), MAX_TIMEOUT_NANOS);
+	}
+
+	/**
+	 * Submits a block, with the earliest of the specified deadline and the
+	 * deadline of the current block.
+	 * 
+	 * @param callable
+	 * @param hasDeadline
+	 * @param deadline
+	 * @return the task of the block
+	 */
+	private <R> Task<R> submit(ICallable<R> callable, boolean hasDeadline,
+			long deadline) {
+		if (callable == null) {
+			throw new NullPointerException("Null callable.");
+		}
+		Task<?> currentTask = CURRENT_TASK.get();
+		if ((currentTask != null)
+				&& currentTask.m_hasDeadline
+				&& (!hasDeadline || (currentTask.m_deadline - deadline < 0))) {
+			hasDeadline = true;
+			deadline = currentTask.m_deadline;
+		}
+		Task<R> task = new Task<R>(callable, hasDeadline, deadline);
+		task.scheduleTimeout();
+		if (m_permits == null) {
+			execute(task);
+		} else {
+			m_pendingTasks.add(task);
+			startPendingTasks();
+		}
+		return task;
+	}
+
+	private <R> List<Task<R>> submitAll(
+			Collection<? extends ICallable<R>> callables, boolean hasDeadline,
+			long deadline) {
+		List<Task<R>> tasks = new ArrayList<Task<R>>(callables.size());
+		for (ICallable<R> callable : callables) {
+			tasks.add(submit(callable, hasDeadline, deadline));
+		}
+		return tasks;
+	}
+
+	private void execute(Task<?> task) {
+		try {
+			m_executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.completeExceptionally(e);
+			taskEnded();
+		}
+	}
+
+	/**
+	 * Releases the permit of an ended (or rejected) task and starts the
+	 * pending tasks.
+	 */
+	private void taskEnded() {
+		if (m_permits != null) {
+			m_permits.release();
+			if (m_startingPendingTasks.get() == null) {
+				startPendingTasks();
+			}
+		}
+	}
+
+	/**
+	 * Starts pending tasks while there are permits. The tasks are queued
+	 * before taking a permit and the permits are released before polling
+	 * the queue, so no task is left in the queue with a free permit. The
+	 * tasks ending while the loop runs on the same thread release their
+	 * permits to the loop (see <code>taskEnded()</code>), so a same-thread
+	 * executor runs the queue iteratively.
+	 */
+	private void startPendingTasks() {
+		boolean outermost = (m_startingPendingTasks.get() == null);
+		if (outermost) {
+			m_startingPendingTasks.set(Boolean.TRUE);
+		}
+		try {
+			while (!m_pendingTasks.isEmpty() && m_permits.tryAcquire()) {
+				Task<?> task = m_pendingTasks.poll();
+				if (task == null) {
+					m_permits.release();
+					continue;
+				}
+				execute(task);
+			}
+		} finally {
+			if (outermost) {
+				m_startingPendingTasks.remove();
+			}
+		}
+	}
+
+	/**
+	 * Combines the futures of <code>invokeAll()</code>.
+	 * 
+	 * @param tasks
+	 * @return the future of all the results
+	 */
+	private static <R> CompletableFuture<List<R>> combineAll(
+			final List<Task<R>> tasks) {
+		final CompletableFuture<List<R>> result = new CompletableFuture<List<R>>();
+		final AtomicInteger remaining = new AtomicInteger(tasks.size());
+		if (tasks.isEmpty()) {
+			result.complete(new ArrayList<R>());
+		}
+		for (Task<R> task : tasks) {
+			task.whenComplete(new BiConsumer<R, Throwable>() {
+				public void accept(R value, Throwable e) {
+					if (e != null) {
+						result.completeExceptionally(e);
+					} else if (remaining.decrementAndGet() == 0) {
+						List<R> values = new ArrayList<R>(tasks.size());
+						for (Task<R> completedTask : tasks) {
+							values.add(completedTask.join());
+						}
+						result.complete(values);
+					}
+				}
+			});
+		}
+		cancelOnCompletion(result, tasks);
+		return result;
+	}
+
+	/**
+	 * Combines the futures of <code>invokeAny()</code>.
+	 * 
+	 * @param tasks
+	 * @return the future of the first result
+	 */
+	private static <R> CompletableFuture<R> combineAny(List<Task<R>> tasks) {
+		final CompletableFuture<R> result = new CompletableFuture<R>();
+		final AtomicInteger remaining = new AtomicInteger(tasks.size());
+		if (tasks.isEmpty()) {
+			result.completeExceptionally(new IllegalArgumentException(
+					"No callable."));
+		}
+		for (Task<R> task : tasks) {
+			task.whenComplete(new BiConsumer<R, Throwable>() {
+				public void accept(R value, Throwable e) {
+					if (e == null) {
+						result.complete(value);
+					} else if (remaining.decrementAndGet() == 0) {
+						result.completeExceptionally(e);
+					}
+				}
+			});
+		}
+		cancelOnCompletion(result, tasks);
+		return result;
+	}
+
+	/**
+	 * Cancels the tasks not completed when a combined future completes
+	 * (normally, by cancellation or with an exception).
+	 * 
+	 * @param result
+	 * @param tasks
+	 */
+	private static <T> void cancelOnCompletion(CompletableFuture<T> result,
+			final List<? extends Task<?>> tasks) {
+		result.whenComplete(new BiConsumer<T, Throwable>() {
+			public void accept(T value, Throwable e) {
+				for (Task<?> task : tasks) {
+					task.cancel(true);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Creates a virtual thread per task executor, looked up by reflection
+	 * (the library is compiled for Java 11).
+	 * 
+	 * @return the executor, or null if the JVM has no virtual threads
+	 */
+	private static Executor newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (Executor) method.invoke(null);
+		} catch (Exception e) {
+			// before Java 21 (or preview features not enabled)
+			return null;
+		}
+	}
+
+	private static Executor newDaemonThreadPool() {
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger m_threadCount = new AtomicInteger();
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "AsyncExecutor-"
+						+ m_threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private static ScheduledThreadPoolExecutor newTimer() {
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"AsyncExecutor-timer");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.lang;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Case converter memoizing the converted strings, for the code converting the
+ * same names over and over (e.g. the column and the property names of a
+ * mapping layer). A repeated conversion is a <code>ConcurrentHashMap</code>
+ * lookup: no lock and no allocation.
+ * <p>
+ * The cache is bounded: when it is full, the entries are evicted by a
+ * second-chance (clock) policy, so the names converted since the previous
+ * eviction pass are kept. The eviction runs on the thread adding the entry,
+ * unless another thread is already evicting (the cache can then exceed its
+ * maximum size by the number of concurrent conversions).
+ * <p>
+ * Usage example:
+ * 
+ * <pre>
+ * private static final CachedCaseConverter COLUMN_TO_PROPERTY = new CachedCaseConverter(
+ * 		CaseFormat.LOWER_CAMEL, 4096);
+ * ...
+ * String propertyName = COLUMN_TO_PROPERTY.convert(columnLabel);
+ * </pre>
+ */
+public class CachedCaseConverter {
+
+	/**
+	 * The default maximum number of cached names.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	/**
+	 * The converted string of a name and its reference bit, set when the
+	 * entry is used and cleared by the eviction pass.
+	 */
+	private static final class Entry {
+
+		final String m_value;
+
+		volatile boolean m_referenced;
+
+		Entry(String value) {
+			m_value = value;
+		}
+	}
+
+	private final CaseFormat m_format;
+
+	private final int m_maxSize;
+
+	private final ConcurrentHashMap<String, Entry> m_entries;
+
+	/**
+	 * Guards the eviction (the clock hand).
+	 */
+	private final ReentrantLock m_evictionLock = new ReentrantLock();
+
+	/**
+	 * The clock hand: the position of the eviction in the entries.
+	 */
+	private Iterator<Map.Entry<String, Entry>> m_hand;
+
+	private final LongAdder m_hitCount = new LongAdder();
+
+	private final LongAdder m_missCount = new LongAdder();
+
+	private final LongAdder m_evictionCount = new LongAdder();
+
+	/**
+	 * Creates a converter caching at most <code>DEFAULT_MAX_SIZE</code>
+	 * names.
+	 * 
+	 * @param format
+	 *            the case format of the converted strings
+	 */
+	public CachedCaseConverter(CaseFormat format) {
+		this(format, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param format
+	 *            the case format of the converted strings
+	 * @param maxSize
+	 *            the maximum number of cached names
+	 */
+	public CachedCaseConverter(CaseFormat format, int maxSize) {
+		if (format == null) {
+			throw new NullPointerException("Null case format.");
+		}
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Invalid size: " + maxSize);
+		}
+		m_format = format;
+		m_maxSize = maxSize;
+		m_entries = new ConcurrentHashMap<String, Entry>(Math.min(maxSize,
+				DEFAULT_MAX_SIZE) * 4 / 3 + 1);
+	}
+
+	/**
+	 * Returns the case format of the converted strings.
+	 * 
+	 * @return the case format of the converted strings
+	 */
+	public CaseFormat getFormat() {
+		return m_format;
+	}
+
+	/**
+	 * Returns the maximum number of cached names.
+	 * 
+	 * @return the maximum number of cached names
+	 */
+	public int getMaxSize() {
+		return m_maxSize;
+	}
+
+	/**
+	 * Converts a string to the case format of the converter (see
+	 * <code>CaseFormat.convert()</code>), returning the cached result of a
+	 * previous conversion if any.
+	 * 
+	 * @param value
+	 * @return the converted string
+	 */
+	public String convert(String value) {
+		if (value == null) {
+			return null;
+		}
+		Entry entry = m_entries.get(value);
+		if (entry != null) {
+			m_hitCount.increment();
+			// don't write the shared entry if the bit is already set
+			if (!entry.m_referenced) {
+				entry.m_referenced = true;
+			}
+			return entry.m_value;
+		}
+		m_missCount.increment();
+		String converted = m_format.convert(value);
+		if (m_entries.size() >= m_maxSize) {
+			evict();
+		}
+		m_entries.putIfAbsent(value, new Entry(converted));
+		return converted;
+	}
+
+	/**
+	 * Returns the number of cached names.
+	 * 
+	 * @return the number of cached names
+	 */
+	public int size() {
+		return m_entries.size();
+	}
+
+	/**
+	 * Removes all the cached names (the statistics are not reset).
+	 */
+	public void clear() {
+		m_entries.clear();
+	}
+
+	/**
+	 * Returns the number of conversions found in the cache.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return m_hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of conversions not found in the cache.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public long getMissCount() {
+		return m_missCount.sum();
+	}
+
+	/**
+	 * Returns the ratio of the conversions found in the cache (0 if there was
+	 * no conversion).
+	 * 
+	 * @return the cache hit rate, between 0 and 1
+	 */
+	public double getHitRate() {
+		long hitCount = m_hitCount.sum();
+		long total = hitCount + m_missCount.sum();
+		return (total == 0) ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * Returns the number of names evicted from the cache.
+	 * 
+	 * @return the number of evicted names
+	 */
+	public long getEvictionCount() {
+		return m_evictionCount.sum();
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counters.
+	 */
+	public void resetStatistics() {
+		m_hitCount.reset();
+		m_missCount.reset();
+		m_evictionCount.reset();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "CachedCaseConverter(" + m_format + ", size: " + size() + "/"
+				+ m_maxSize + ", hit rate: " + getHitRate() + ")";
+	}
+
+	/**
+	 * Evicts entries until an eighth of the cache is free, so the eviction
+	 * (and the iterator allocation) is amortized over many misses. The clock
+	 * hand gives a second chance to the referenced entries: it clears their
+	 * reference bit and evicts them when it meets them again unreferenced.
+	 */
+	private void evict() {
+		if (!m_evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			int targetSize = m_maxSize - Math.max(1, m_maxSize / 8);
+			// two rounds are enough: the first one clears all the bits
+			int steps = 2 * m_entries.size();
+			while ((m_entries.size() > targetSize) && (steps-- > 0)) {
+				if ((m_hand == null) || !m_hand.hasNext()) {
+					m_hand = m_entries.entrySet().iterator();
+					if (!m_hand.hasNext()) {
+						break;
+					}
+				}
+				Entry entry = m_hand.next().getValue();
+				if (entry.m_referenced) {
+					entry.m_referenced = false;
+				} else {
+					m_hand.remove();
+					m_evictionCount.increment();
+				}
+			}
+		} finally {
+			m_evictionLock.unlock();
+		}
+	}
+}
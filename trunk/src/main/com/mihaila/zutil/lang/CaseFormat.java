@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.lang;
+
+/**
+ * The case formats of the <code>StringUtil</code> case conversions (e.g. to
+ * select the conversion of a <code>CachedCaseConverter</code>).
+ */
+public enum CaseFormat {
+
+	/**
+	 * Upper underscore case (Ex. "JUST_A_SIMPLE_STRING").
+	 */
+	UPPER_UNDERSCORE,
+
+	/**
+	 * Lower underscore case (Ex. "just_a_simple_string").
+	 */
+	LOWER_UNDERSCORE,
+
+	/**
+	 * Upper camel case (Ex. "JustASimpleString").
+	 */
+	UPPER_CAMEL,
+
+	/**
+	 * Lower camel case (Ex. "justASimpleString").
+	 */
+	LOWER_CAMEL;
+
+	/**
+	 * Converts a string to this case format, by the corresponding
+	 * <code>StringUtil</code> method.
+	 * 
+	 * @param value
+	 * @return the converted string
+	 */
+	public String convert(String value) {
+		switch (this) {
+		case UPPER_UNDERSCORE:
+			return StringUtil.toUpperUnderscoreCase(value);
+		case LOWER_UNDERSCORE:
+			return StringUtil.toLowerUnderscoreCase(value);
+		case UPPER_CAMEL:
+			return StringUtil.toUpperCamelCase(value);
+		default:
+			return StringUtil.toLowerCamelCase(value);
+		}
+	}
+
+	/**
+	 * Converts a string to this case format, optionally in the Unicode mode of
+	 * the <code>StringUtil</code> conversions.
+	 * 
+	 * @param value
+	 * @param unicode
+	 *            true to convert the letters by the Unicode case mappings,
+	 *            false to convert the latin letters only
+	 * @return the converted string
+	 */
+	public String convert(String value, boolean unicode) {
+		switch (this) {
+		case UPPER_UNDERSCORE:
+			return StringUtil.toUpperUnderscoreCase(value, unicode);
+		case LOWER_UNDERSCORE:
+			return StringUtil.toLowerUnderscoreCase(value, unicode);
+		case UPPER_CAMEL:
+			return StringUtil.toUpperCamelCase(value, unicode);
+		default:
+			return StringUtil.toLowerCamelCase(value, unicode);
+		}
+	}
+
+	/**
+	 * Writes the conversion of a range of a character sequence to this case
+	 * format into a <code>char</code> array, by the corresponding
+	 * <code>StringUtil.writeXxx()</code> method.
+	 * 
+	 * @param out
+	 *            the array where to write the result
+	 * @param offset
+	 *            the index of the first written character
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 * @return the number of written characters
+	 */
+	public int write(char[] out, int offset, CharSequence value, int start,
+			int end) {
+		switch (this) {
+		case UPPER_UNDERSCORE:
+			return StringUtil.writeUpperUnderscoreCase(out, offset, value,
+					start, end);
+		case LOWER_UNDERSCORE:
+			return StringUtil.writeLowerUnderscoreCase(out, offset, value,
+					start, end);
+		case UPPER_CAMEL:
+			return StringUtil.writeUpperCamelCase(out, offset, value, start,
+					end);
+		default:
+			return StringUtil.writeLowerCamelCase(out, offset, value, start,
+					end);
+		}
+	}
+
+	/**
+	 * Returns true for the underscore case formats.
+	 * 
+	 * @return true for the underscore case formats
+	 */
+	public boolean isUnderscoreCase() {
+		return (this == UPPER_UNDERSCORE) || (this == LOWER_UNDERSCORE);
+	}
+}
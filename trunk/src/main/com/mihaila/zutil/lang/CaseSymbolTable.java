@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.lang;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bidirectional table of identifiers in an underscore case format and in a
+ * camel case format (e.g. the column names and the property names of a
+ * mapping layer). Each conversion registers the pair of names, so the
+ * reverse conversion of a converted name is a lookup that returns the
+ * original name, even when the conversions aren't inverse (e.g. in upper
+ * underscore case and lower camel case, "USER_ID" is converted to "uSERID",
+ * which is converted back to "USER_ID", not to "U_S_E_R_I_D").
+ * <p>
+ * The table is unbounded, so it should be used for the finite set of
+ * identifiers of an application (for arbitrary strings, use a
+ * <code>CachedCaseConverter</code>). A name converted from both formats
+ * keeps the first registered pair.
+ */
+public class CaseSymbolTable {
+
+	private final CaseFormat m_underscoreFormat;
+
+	private final CaseFormat m_camelFormat;
+
+	private final ConcurrentHashMap<String, String> m_underscoreToCamel = new ConcurrentHashMap<String, String>();
+
+	private final ConcurrentHashMap<String, String> m_camelToUnderscore = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * @param underscoreFormat
+	 *            the underscore case format of the table
+	 * @param camelFormat
+	 *            the camel case format of the table
+	 */
+	public CaseSymbolTable(CaseFormat underscoreFormat, CaseFormat camelFormat) {
+		if (!underscoreFormat.isUnderscoreCase()) {
+			throw new IllegalArgumentException(
+					"Not an underscore case format: " + underscoreFormat);
+		}
+		if (camelFormat.isUnderscoreCase()) {
+			throw new IllegalArgumentException("Not a camel case format: "
+					+ camelFormat);
+		}
+		m_underscoreFormat = underscoreFormat;
+		m_camelFormat = camelFormat;
+	}
+
+	/**
+	 * Returns the underscore case format of the table.
+	 * 
+	 * @return the underscore case format
+	 */
+	public CaseFormat getUnderscoreFormat() {
+		return m_underscoreFormat;
+	}
+
+	/**
+	 * Returns the camel case format of the table.
+	 * 
+	 * @return the camel case format
+	 */
+	public CaseFormat getCamelFormat() {
+		return m_camelFormat;
+	}
+
+	/**
+	 * Returns the camel case name of the specified name: the registered name
+	 * if any, otherwise its conversion (and the pair is registered).
+	 * 
+	 * @param name
+	 * @return the camel case name
+	 */
+	public String toCamelCase(String name) {
+		if (name == null) {
+			return null;
+		}
+		String camelName = m_underscoreToCamel.get(name);
+		if (camelName == null) {
+			camelName = register(name, m_camelFormat.convert(name),
+					m_underscoreToCamel, m_camelToUnderscore);
+		}
+		return camelName;
+	}
+
+	/**
+	 * Returns the underscore case name of the specified name: the registered
+	 * name if any (the original name of a converted name), otherwise its
+	 * conversion (and the pair is registered).
+	 * 
+	 * @param name
+	 * @return the underscore case name
+	 */
+	public String toUnderscoreCase(String name) {
+		if (name == null) {
+			return null;
+		}
+		String underscoreName = m_camelToUnderscore.get(name);
+		if (underscoreName == null) {
+			underscoreName = register(name, m_underscoreFormat.convert(name),
+					m_camelToUnderscore, m_underscoreToCamel);
+		}
+		return underscoreName;
+	}
+
+	/**
+	 * Returns the camel case names of the specified names (see
+	 * <code>toCamelCase(String)</code>); the names not yet registered are
+	 * converted in one pass.
+	 * 
+	 * @param names
+	 * @return a new array holding the camel case names
+	 */
+	public String[] toCamelCase(String[] names) {
+		return lookupAll(names, m_camelFormat, m_underscoreToCamel,
+				m_camelToUnderscore);
+	}
+
+	/**
+	 * Returns the underscore case names of the specified names (see
+	 * <code>toUnderscoreCase(String)</code>); the names not yet registered are
+	 * converted in one pass.
+	 * 
+	 * @param names
+	 * @return a new array holding the underscore case names
+	 */
+	public String[] toUnderscoreCase(String[] names) {
+		return lookupAll(names, m_underscoreFormat, m_camelToUnderscore,
+				m_underscoreToCamel);
+	}
+
+	/**
+	 * Returns the number of registered pairs of names.
+	 * 
+	 * @return the number of registered pairs
+	 */
+	public int size() {
+		return m_underscoreToCamel.size();
+	}
+
+	/**
+	 * Removes all the registered names.
+	 */
+	public void clear() {
+		m_underscoreToCamel.clear();
+		m_camelToUnderscore.clear();
+	}
+
+	/**
+	 * Registers a name and its conversion, in both directions.
+	 * 
+	 * @param name
+	 * @param converted
+	 * @param map
+	 *            the map of the name
+	 * @param reverseMap
+	 *            the map of the conversion
+	 * @return the registered conversion of the name
+	 */
+	private static String register(String name, String converted,
+			ConcurrentHashMap<String, String> map,
+			ConcurrentHashMap<String, String> reverseMap) {
+		String registered = map.putIfAbsent(name, converted);
+		if (registered != null) {
+			return registered;
+		}
+		reverseMap.putIfAbsent(converted, name);
+		return converted;
+	}
+
+	private static String[] lookupAll(String[] names, CaseFormat format,
+			ConcurrentHashMap<String, String> map,
+			ConcurrentHashMap<String, String> reverseMap) {
+		String[] result = new String[names.length];
+		String[] missing = null;
+		int missingCount = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] == null) {
+				continue;
+			}
+			result[i] = map.get(names[i]);
+			if (result[i] == null) {
+				if (missing == null) {
+					missing = new String[names.length];
+				}
+				missing[i] = names[i];
+				missingCount++;
+			}
+		}
+		if (missingCount > 0) {
+			String[] converted = StringUtil.convertAll(missing, format);
+			for (int i = 0; i < names.length; i++) {
+				if (missing[i] != null) {
+					result[i] = register(missing[i], converted[i], map,
+							reverseMap);
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -22,13 +22,42 @@
 
 package com.mihaila.zutil.lang;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
 /**
  * Various functions related to character processing (in addition to the methods
  * found in <code>java.lang.Character</code> and
  * <code>org.apache.commons.lang.CharUtils</code>).
+ * <p>
+ * The bulk case mappings work in place on <code>char</code> and
+ * <code>byte</code> array ranges and write only the changed characters, so a
+ * range already in the right case is just read. The byte arrays are
+ * processed eight bytes at a time, as <code>long</code> words (SWAR); the
+ * char arrays can't be read as words without <code>Unsafe</code>, and
+ * packing the chars into words is slower than testing them one by one.
  */
 public class CharUtil {
 
+	/**
+	 * Reads and writes eight bytes of a byte array as a <code>long</code>.
+	 */
+	private static final VarHandle LONGS = MethodHandles
+			.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+	/**
+	 * The byte ranges shorter than this are not converted by words.
+	 */
+	private static final int SWAR_MIN_LENGTH = 16;
+
 	/**
 	 * Converts the specified character to upper case if it is a valid latin
 	 * letter, otherwise the same character is returned.
@@ -58,4 +87,139 @@ public class CharUtil {
 			return ch;
 		}
 	}
+
+	/**
+	 * Converts the latin letters of a range of a char array to upper case, in
+	 * place. The range is not written if it has no lower case latin letter.
+	 * 
+	 * @param chars
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 * @return true if a character was changed
+	 */
+	public static boolean toAsciiUpperCase(char[] chars, int start, int end) {
+		return toAsciiCase(chars, start, end, 'a');
+	}
+
+	/**
+	 * Converts the latin letters of a range of a char array to lower case, in
+	 * place. The range is not written if it has no upper case latin letter.
+	 * 
+	 * @param chars
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 * @return true if a character was changed
+	 */
+	public static boolean toAsciiLowerCase(char[] chars, int start, int end) {
+		return toAsciiCase(chars, start, end, 'A');
+	}
+
+	/**
+	 * Converts the latin letters of a range of a byte array (ASCII or an
+	 * ASCII compatible encoding, e.g. ISO-8859-1 or UTF-8) to upper case, in
+	 * place. The range is not written if it has no lower case latin letter.
+	 * 
+	 * @param bytes
+	 * @param start
+	 *            the index of the first converted byte
+	 * @param end
+	 *            the index after the last converted byte
+	 * @return true if a byte was changed
+	 */
+	public static boolean toAsciiUpperCase(byte[] bytes, int start, int end) {
+		return toAsciiCase(bytes, start, end, 'a');
+	}
+
+	/**
+	 * Converts the latin letters of a range of a byte array (ASCII or an
+	 * ASCII compatible encoding, e.g. ISO-8859-1 or UTF-8) to lower case, in
+	 * place. The range is not written if it has no upper case latin letter.
+	 * 
+	 * @param bytes
+	 * @param start
+	 *            the index of the first converted byte
+	 * @param end
+	 *            the index after the last converted byte
+	 * @return true if a byte was changed
+	 */
+	public static boolean toAsciiLowerCase(byte[] bytes, int start, int end) {
+		return toAsciiCase(bytes, start, end, 'A');
+	}
+
+	/**
+	 * Flips the case bit (0x20) of the latin letters between
+	 * <code>first</code> and <code>first + 25</code> of a char array range.
+	 * 
+	 * @param chars
+	 * @param start
+	 * @param end
+	 * @param first
+	 *            'a' for the upper case conversion, 'A' for the lower case
+	 * @return true if a character was changed
+	 */
+	private static boolean toAsciiCase(char[] chars, int start, int end,
+			char first) {
+		Objects.checkFromToIndex(start, end, chars.length);
+		char last = (char) (first + 25);
+		boolean changed = false;
+		for (int i = start; i < end; i++) {
+			char ch = chars[i];
+			if ((ch >= first) && (ch <= last)) {
+				chars[i] = (char) (ch ^ 0x20);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Flips the case bit (0x20) of the latin letters between
+	 * <code>first</code> and <code>first + 25</code> of a byte array range,
+	 * eight bytes at a time: in each byte of a word, adding
+	 * <code>0x80 - first</code> to the low 7 bits sets the high bit if the
+	 * byte is greater or equal to first, adding <code>0x80 - last - 1</code>
+	 * sets it if the byte is greater than last (there is no carry between the
+	 * bytes). The words with no letter to change are not written. The short
+	 * ranges are converted byte by byte.
+	 * 
+	 * @param bytes
+	 * @param start
+	 * @param end
+	 * @param first
+	 *            'a' for the upper case conversion, 'A' for the lower case
+	 * @return true if a byte was changed
+	 */
+	private static boolean toAsciiCase(byte[] bytes, int start, int end,
+			char first) {
+		Objects.checkFromToIndex(start, end, bytes.length);
+		long geFirst = ONES * (0x80 - first);
+		long gtLast = ONES * (0x80 - first - 26);
+		long changed = 0;
+		int i = start;
+		int wordEnd = (end - start < SWAR_MIN_LENGTH) ? start : end - 7;
+		for (; i < wordEnd; i += 8) {
+			long word = (long) LONGS.get(bytes, i);
+			long low = word & LOW_BITS;
+			// the high bit of the non-ASCII bytes clears their letter bit
+			long letters = (low + geFirst) & ~(low + gtLast) & ~word
+					& HIGH_BITS;
+			if (letters != 0) {
+				LONGS.set(bytes, i, word ^ (letters >>> 2));
+				changed |= letters;
+			}
+		}
+		int last = first + 25;
+		for (; i < end; i++) {
+			int b = bytes[i];
+			if ((b >= first) && (b <= last)) {
+				bytes[i] = (byte) (b ^ 0x20);
+				changed = 1;
+			}
+		}
+		return changed != 0;
+	}
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.lang;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lazy holder of the result of an <code>ICallable</code>: the callable is
+ * called by the first <code>call()</code>, and its result is returned by all
+ * the following calls, with a single volatile read.
+ * <p>
+ * The publication is lock-free: the result is published by a compare and set,
+ * so the threads calling <code>call()</code> concurrently before the
+ * publication may all run the callable, but they all return the same
+ * (first published) result. The callable must therefore have no side
+ * effects; the loads that must run once are memoized by a
+ * <code>Memoizer</code>. A callable throwing an exception publishes nothing,
+ * the next call runs it again.
+ * 
+ * @param <R>
+ *            the type of the result
+ */
+public final class LazyValue<R> implements ICallable<R> {
+
+	/**
+	 * The value of the holders with no published result (the result can be
+	 * null).
+	 */
+	private static final Object UNSET = new Object();
+
+	private static final VarHandle VALUE;
+
+	static {
+		try {
+			VALUE = MethodHandles.lookup().findVarHandle(LazyValue.class,
+					"m_value", Object.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final ICallable<R> m_callable;
+
+	private volatile Object m_value = UNSET;
+
+	/**
+	 * @param callable
+	 *            the callable computing the result
+	 */
+	public LazyValue(ICallable<R> callable) {
+		if (callable == null) {
+			throw new NullPointerException("Null callable.");
+		}
+		m_callable = callable;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.mihaila.zutil.lang.ICallable#call()
+	 */
+	public R call() {
+		Object value = m_value;
+		if (value == UNSET) {
+			Object computed = m_callable.call();
+			// the witness value is the result published by another thread
+			Object witness = VALUE.compareAndExchange(this, UNSET, computed);
+			value = (witness == UNSET) ? computed : witness;
+		}
+		// because of (R) cast
+		@SuppressWarnings("unchecked")
+		R result = (R) value;
+		return result;
+	}
+
+	/**
+	 * Returns true if the result has been published.
+	 * 
+	 * @return true if the result has been published
+	 */
+	public boolean isInitialized() {
+		return m_value != UNSET;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		Object value = m_value;
+		return "LazyValue(" + ((value == UNSET) ? "not initialized" : value)
+				+ ")";
+	}
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutil.lang;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memoizing wrapper of an <code>ICallable1Arg</code> loader (e.g. an
+ * expensive lookup): the results are cached by argument, so a repeated call
+ * is a <code>ConcurrentHashMap</code> lookup, with no lock.
+ * <p>
+ * The loads are single-flight: the concurrent calls with the same argument
+ * run the loader once, the other threads wait for its result. A load throwing
+ * an exception is not cached; the exception is thrown to all the threads
+ * waiting for the load, and the next call runs the loader again.
+ * <p>
+ * The cache is bounded: when it is full, the entries are evicted by a
+ * second-chance (clock) policy, an approximation of LRU keeping the entries
+ * used since the previous eviction pass (see <code>CachedCaseConverter</code>).
+ * The entries still loading are never evicted, so a load is not started again
+ * while it runs (the cache can exceed its size while many loads run).
+ * The entries can also expire after a time to live, counted from the end of
+ * their load.
+ * <p>
+ * Usage example:
+ * 
+ * <pre>
+ * private final Memoizer&lt;Customer, Long&gt; m_customers = new Memoizer&lt;Customer, Long&gt;(
+ * 		new ICallable1Arg&lt;Customer, Long&gt;() {
+ * 			public Customer call(Long id) {
+ * 				return m_dao.findCustomer(id);
+ * 			}
+ * 		}, 1000, 10, TimeUnit.MINUTES);
+ * ...
+ * Customer customer = m_customers.call(id);
+ * </pre>
+ * 
+ * @param <R>
+ *            the type of the results
+ * @param <A>
+ *            the type of the arguments (used as map keys)
+ */
+public class Memoizer<R, A> implements ICallable1Arg<R, A> {
+
+	/**
+	 * The default maximum number of cached results.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1024;
+
+	/**
+	 * The load of an argument and its reference bit, set when the entry is
+	 * used and cleared by the eviction pass.
+	 */
+	private static final class Entry<R, A> {
+
+		final FutureTask<R> m_task;
+
+		/**
+		 * The time (<code>System.nanoTime()</code>) the load ended, written
+		 * before the task completes.
+		 */
+		long m_loadedTime;
+
+		volatile boolean m_referenced;
+
+		Entry(final ICallable1Arg<R, A> loader, final A arg) {
+			m_task = new FutureTask<R>(new Callable<R>() {
+				public R call() {
+					R result = loader.call(arg);
+					m_loadedTime = System.nanoTime();
+					return result;
+				}
+			});
+		}
+
+		/**
+		 * Returns the loaded result, waiting for the end of the load if
+		 * needed.
+		 * 
+		 * @return the loaded result
+		 */
+		R get() {
+			try {
+				return m_task.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new WrappedInRuntimeException(cause);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new WrappedInRuntimeException(e);
+			}
+		}
+
+		boolean isExpired(long timeToLive) {
+			return m_task.isDone()
+					&& (System.nanoTime() - m_loadedTime >= timeToLive);
+		}
+	}
+
+	private final ICallable1Arg<R, A> m_loader;
+
+	private final int m_maxSize;
+
+	/**
+	 * The time to live of the entries, in nanoseconds (0 if they don't
+	 * expire).
+	 */
+	private final long m_timeToLive;
+
+	private final ConcurrentHashMap<A, Entry<R, A>> m_entries;
+
+	/**
+	 * Guards the eviction (the clock hand).
+	 */
+	private final ReentrantLock m_evictionLock = new ReentrantLock();
+
+	/**
+	 * The clock hand: the position of the eviction in the entries.
+	 */
+	private Iterator<Map.Entry<A, Entry<R, A>>> m_hand;
+
+	private final LongAdder m_hitCount = new LongAdder();
+
+	private final LongAdder m_missCount = new LongAdder();
+
+	private final LongAdder m_loadFailureCount = new LongAdder();
+
+	private final LongAdder m_totalLoadTime = new LongAdder();
+
+	private final LongAdder m_evictionCount = new LongAdder();
+
+	/**
+	 * Creates a memoizer caching at most <code>DEFAULT_MAX_SIZE</code>
+	 * results, with no expiration.
+	 * 
+	 * @param loader
+	 *            the callable loading the results
+	 */
+	public Memoizer(ICallable1Arg<R, A> loader) {
+		this(loader, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a memoizer whose results don't expire.
+	 * 
+	 * @param loader
+	 *            the callable loading the results
+	 * @param maxSize
+	 *            the maximum number of cached results
+	 */
+	public Memoizer(ICallable1Arg<R, A> loader, int maxSize) {
+		this(loader, maxSize, 0);
+	}
+
+	/**
+	 * @param loader
+	 *            the callable loading the results
+	 * @param maxSize
+	 *            the maximum number of cached results
+	 * @param timeToLive
+	 *            the time a result is cached, from the end of its load
+	 * @param unit
+	 *            the unit of the time to live
+	 */
+	public Memoizer(ICallable1Arg<R, A> loader, int maxSize,
+			long timeToLive, TimeUnit unit) {
+		this(loader, maxSize, unit.toNanos(timeToLive));
+		if (timeToLive <= 0) {
+			throw new IllegalArgumentException("Invalid time to live: "
+					+ timeToLive);
+		}
+	}
+
+	private Memoizer(ICallable1Arg<R, A> loader, int maxSize, long timeToLive) {
+		if (loader == null) {
+			throw new NullPointerException("Null loader.");
+		}
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Invalid size: " + maxSize);
+		}
+		m_loader = loader;
+		m_maxSize = maxSize;
+		m_timeToLive = timeToLive;
+		m_entries = new ConcurrentHashMap<A, Entry<R, A>>(Math.min(maxSize,
+				DEFAULT_MAX_SIZE) * 4 / 3 + 1);
+	}
+
+	/**
+	 * Returns the maximum number of cached results.
+	 * 
+	 * @return the maximum number of cached results
+	 */
+	public int getMaxSize() {
+		return m_maxSize;
+	}
+
+	/**
+	 * Returns the time to live of the results.
+	 * 
+	 * @param unit
+	 *            the unit of the returned time
+	 * @return the time to live of the results, 0 if they don't expire
+	 */
+	public long getTimeToLive(TimeUnit unit) {
+		return unit.convert(m_timeToLive, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the cached result for the argument, or loads it (once, for all
+	 * the concurrent calls with an equal argument).
+	 * 
+	 * @param arg
+	 *            the argument passed to the loader (not null)
+	 * @return the result of the loader
+	 * @throws RuntimeException
+	 *             the exception thrown by the loader (a checked exception is
+	 *             wrapped in a <code>WrappedInRuntimeException</code>)
+	 */
+	public R call(A arg) {
+		if (arg == null) {
+			throw new NullPointerException("Null argument.");
+		}
+		for (;;) {
+			Entry<R, A> entry = m_entries.get(arg);
+			if (entry == null) {
+				if (m_entries.size() >= m_maxSize) {
+					evict();
+				}
+				Entry<R, A> newEntry = new Entry<R, A>(m_loader, arg);
+				entry = m_entries.putIfAbsent(arg, newEntry);
+				if (entry == null) {
+					return load(arg, newEntry);
+				}
+			}
+			if ((m_timeToLive != 0) && entry.isExpired(m_timeToLive)) {
+				if (m_entries.remove(arg, entry)) {
+					m_evictionCount.increment();
+				}
+				continue;
+			}
+			m_hitCount.increment();
+			// don't write the shared entry if the bit is already set
+			if (!entry.m_referenced) {
+				entry.m_referenced = true;
+			}
+			return entry.get();
+		}
+	}
+
+	/**
+	 * Runs the load of a new entry, on the calling thread.
+	 * 
+	 * @param arg
+	 * @param entry
+	 * @return the loaded result
+	 */
+	private R load(A arg, Entry<R, A> entry) {
+		m_missCount.increment();
+		long startTime = System.nanoTime();
+		entry.m_task.run();
+		m_totalLoadTime.add(System.nanoTime() - startTime);
+		try {
+			return entry.get();
+		} catch (RuntimeException e) {
+			loadFailed(arg, entry);
+			throw e;
+		} catch (Error e) {
+			loadFailed(arg, entry);
+			throw e;
+		}
+	}
+
+	private void loadFailed(A arg, Entry<R, A> entry) {
+		m_loadFailureCount.increment();
+		m_entries.remove(arg, entry);
+	}
+
+	/**
+	 * Removes the cached result of an argument; a load in progress is not
+	 * interrupted.
+	 * 
+	 * @param arg
+	 */
+	public void invalidate(A arg) {
+		m_entries.remove(arg);
+	}
+
+	/**
+	 * Returns the number of cached results (including the loads in progress
+	 * and the expired results not removed yet).
+	 * 
+	 * @return the number of cached results
+	 */
+	public int size() {
+		return m_entries.size();
+	}
+
+	/**
+	 * Removes all the cached results (the statistics are not reset).
+	 */
+	public void clear() {
+		m_entries.clear();
+	}
+
+	/**
+	 * Returns the number of calls finding their argument in the cache
+	 * (including the calls waiting for a load in progress).
+	 * 
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return m_hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of calls running the loader.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public long getMissCount() {
+		return m_missCount.sum();
+	}
+
+	/**
+	 * Returns the ratio of the calls finding their argument in the cache (0
+	 * if there was no call).
+	 * 
+	 * @return the cache hit rate, between 0 and 1
+	 */
+	public double getHitRate() {
+		long hitCount = m_hitCount.sum();
+		long total = hitCount + m_missCount.sum();
+		return (total == 0) ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * Returns the number of loads that threw an exception.
+	 * 
+	 * @return the number of failed loads
+	 */
+	public long getLoadFailureCount() {
+		return m_loadFailureCount.sum();
+	}
+
+	/**
+	 * Returns the total time spent in the loader, successful or not.
+	 * 
+	 * @param unit
+	 *            the unit of the returned time
+	 * @return the total load time
+	 */
+	public long getTotalLoadTime(TimeUnit unit) {
+		return unit.convert(m_totalLoadTime.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the average time of a load, in nanoseconds (0 if there was no
+	 * load).
+	 * 
+	 * @return the average load time, in nanoseconds
+	 */
+	public double getAverageLoadTime() {
+		long loadCount = m_missCount.sum();
+		return (loadCount == 0) ? 0 : (double) m_totalLoadTime.sum()
+				/ loadCount;
+	}
+
+	/**
+	 * Returns the number of results evicted from the cache, because it was
+	 * full or because they expired.
+	 * 
+	 * @return the number of evicted results
+	 */
+	public long getEvictionCount() {
+		return m_evictionCount.sum();
+	}
+
+	/**
+	 * Resets the hit, miss, load and eviction counters.
+	 */
+	public void resetStatistics() {
+		m_hitCount.reset();
+		m_missCount.reset();
+		m_loadFailureCount.reset();
+		m_totalLoadTime.reset();
+		m_evictionCount.reset();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Memoizer(" + m_loader + ", size: " + size() + "/"
+				+ m_maxSize + ", hit rate: " + getHitRate() + ")";
+	}
+
+	/**
+	 * Evicts entries until an eighth of the cache is free (see
+	 * <code>CachedCaseConverter</code>); the expired entries met by the clock
+	 * hand are evicted even if they are referenced.
+	 */
+	private void evict() {
+		if (!m_evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			int targetSize = m_maxSize - Math.max(1, m_maxSize / 8);
+			// two rounds are enough: the first one clears all the bits
+			int steps = 2 * m_entries.size();
+			while ((m_entries.size() > targetSize) && (steps-- > 0)) {
+				if ((m_hand == null) || !m_hand.hasNext()) {
+					m_hand = m_entries.entrySet().iterator();
+					if (!m_hand.hasNext()) {
+						break;
+					}
+				}
+				Map.Entry<A, Entry<R, A>> mapEntry = m_hand.next();
+				Entry<R, A> entry = mapEntry.getValue();
+				if (!entry.m_task.isDone()) {
+					// evicting a running load would start it again
+					continue;
+				}
+				if (entry.m_referenced
+						&& ((m_timeToLive == 0) || !entry
+								.isExpired(m_timeToLive))) {
+					entry.m_referenced = false;
+				} else if (m_entries.remove(mapEntry.getKey(), entry)) {
+					// removed only if the key was not reloaded meanwhile (the
+					// iterator would remove the new entry)
+					m_evictionCount.increment();
+				}
+			}
+		} finally {
+			m_evictionLock.unlock();
+		}
+	}
+}
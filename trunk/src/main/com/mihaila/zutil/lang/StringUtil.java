@@ -22,13 +22,91 @@
 
 package com.mihaila.zutil.lang;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Various functions related to string processing (in addition to the methods
  * found in <code>java.lang.String</code> and
  * <code>org.apache.commons.lang.StrUtils</code>).
+ * <p>
+ * The code converting the same names repeatedly (e.g. the column names of
+ * every row) can memoize the case conversions by a
+ * <code>CachedCaseConverter</code>. The <code>writeXxx()</code> variants of
+ * the conversions append the result to a buffer (an <code>Appendable</code>
+ * or a <code>char</code> array), with no intermediate string, and
+ * <code>convertAll()</code> converts many names (e.g. the column labels of a
+ * result set) in one pass.
+ * <p>
+ * The case conversions change only the latin letters (<code>a-z</code> and
+ * <code>A-Z</code>) by default. In Unicode mode (the <code>toXxx(String,
+ * boolean)</code> methods), the letters of any script are converted, code
+ * point by code point, by the locale independent case mappings of
+ * <code>java.lang.Character</code> (the letters starting the camel case words
+ * are converted to title case); the strings with no non-ASCII character are
+ * converted by the same loops as in the default mode.
  */
 public class StringUtil {
 
+	/**
+	 * The minimum number of names converted in parallel by
+	 * <code>convertAll()</code>.
+	 */
+	public static final int PARALLEL_CONVERSION_THRESHOLD = 8192;
+
+	/**
+	 * The number of names converted by a fork-join task.
+	 */
+	private static final int CONVERSION_TASK_SIZE = 2048;
+
+	/**
+	 * Converts a range of names in a fork-join pool.
+	 */
+	private static class ConversionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] m_values;
+
+		private final String[] m_result;
+
+		private final CaseFormat m_format;
+
+		private final int m_from;
+
+		private final int m_to;
+
+		ConversionTask(String[] values, String[] result, CaseFormat format,
+				int from, int to) {
+			m_values = values;
+			m_result = result;
+			m_format = format;
+			m_from = from;
+			m_to = to;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (m_to - m_from <= CONVERSION_TASK_SIZE) {
+				convertRange(m_values, m_result, m_format, m_from, m_to);
+				return;
+			}
+			int middle = (m_from + m_to) >>> 1;
+			invokeAll(new ConversionTask(m_values, m_result, m_format,
+					m_from, middle), new ConversionTask(m_values, m_result,
+					m_format, middle, m_to));
+		}
+	}
+
 	/**
 	 * Converts a string to upper underscore case (Ex. "justASimple_String"
 	 * becomes "JUST_A_SIMPLE_STRING"). This function is not idempotent (Eg.
@@ -38,7 +116,21 @@ public class StringUtil {
 	 * @return the upper underscore case string
 	 */
 	public static String toUpperUnderscoreCase(String value) {
-		return toUnderscoreCaseHelper(value, true);
+		return toUnderscoreCaseHelper(value, true, false);
+	}
+
+	/**
+	 * Converts a string to upper underscore case, optionally converting the non-ASCII
+	 * letters too (see <code>toUpperUnderscoreCase(String)</code>).
+	 * 
+	 * @param value
+	 * @param unicode
+	 *            true to convert the letters by the Unicode case mappings,
+	 *            false to convert the latin letters only
+	 * @return the upper underscore case string
+	 */
+	public static String toUpperUnderscoreCase(String value, boolean unicode) {
+		return toUnderscoreCaseHelper(value, true, unicode);
 	}
 
 	/**
@@ -49,7 +141,21 @@ public class StringUtil {
 	 * @return the upper underscore case string
 	 */
 	public static String toLowerUnderscoreCase(String value) {
-		return toUnderscoreCaseHelper(value, false);
+		return toUnderscoreCaseHelper(value, false, false);
+	}
+
+	/**
+	 * Converts a string to lower underscore case, optionally converting the non-ASCII
+	 * letters too (see <code>toLowerUnderscoreCase(String)</code>).
+	 * 
+	 * @param value
+	 * @param unicode
+	 *            true to convert the letters by the Unicode case mappings,
+	 *            false to convert the latin letters only
+	 * @return the lower underscore case string
+	 */
+	public static String toLowerUnderscoreCase(String value, boolean unicode) {
+		return toUnderscoreCaseHelper(value, false, unicode);
 	}
 
 	/**
@@ -60,7 +166,21 @@ public class StringUtil {
 	 * @return the upper underscore case string
 	 */
 	public static String toUpperCamelCase(String value) {
-		return toCamelCaseHelper(value, true);
+		return toCamelCaseHelper(value, true, false);
+	}
+
+	/**
+	 * Converts a string to upper camel case, optionally converting the non-ASCII
+	 * letters too (see <code>toUpperCamelCase(String)</code>).
+	 * 
+	 * @param value
+	 * @param unicode
+	 *            true to convert the letters by the Unicode case mappings,
+	 *            false to convert the latin letters only
+	 * @return the upper camel case string
+	 */
+	public static String toUpperCamelCase(String value, boolean unicode) {
+		return toCamelCaseHelper(value, true, unicode);
 	}
 
 	/**
@@ -71,7 +191,317 @@ public class StringUtil {
 	 * @return the upper underscore case string
 	 */
 	public static String toLowerCamelCase(String value) {
-		return toCamelCaseHelper(value, false);
+		return toCamelCaseHelper(value, false, false);
+	}
+
+	/**
+	 * Converts a string to lower camel case, optionally converting the non-ASCII
+	 * letters too (see <code>toLowerCamelCase(String)</code>).
+	 * 
+	 * @param value
+	 * @param unicode
+	 *            true to convert the letters by the Unicode case mappings,
+	 *            false to convert the latin letters only
+	 * @return the lower camel case string
+	 */
+	public static String toLowerCamelCase(String value, boolean unicode) {
+		return toCamelCaseHelper(value, false, unicode);
+	}
+
+	/**
+	 * Appends the upper underscore case conversion of a character sequence (see
+	 * <code>toUpperUnderscoreCase()</code>) to the specified
+	 * <code>Appendable</code> object, with no intermediate string.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 *            the converted characters
+	 */
+	public static void writeUpperUnderscoreCase(Appendable out,
+			CharSequence value) {
+		writeUnderscoreCase(out, value, 0, value.length(), true);
+	}
+
+	/**
+	 * Appends the upper underscore case conversion of a range of a character
+	 * sequence to the specified <code>Appendable</code> object.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 */
+	public static void writeUpperUnderscoreCase(Appendable out,
+			CharSequence value, int start, int end) {
+		writeUnderscoreCase(out, value, start, end, true);
+	}
+
+	/**
+	 * Writes the upper underscore case conversion of a range of a character
+	 * sequence into a <code>char</code> array.
+	 * 
+	 * @param out
+	 *            the array where to write the result
+	 * @param offset
+	 *            the index of the first written character
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 * @return the number of written characters
+	 * @throws IndexOutOfBoundsException
+	 *             if the result doesn't fit in the array (at most <code>2 *
+	 *             (end - start)</code> characters are written)
+	 */
+	public static int writeUpperUnderscoreCase(char[] out, int offset,
+			CharSequence value, int start, int end) {
+		return writeUnderscoreCase(out, offset, value, start, end, true);
+	}
+
+	/**
+	 * Appends the lower underscore case conversion of a character sequence (see
+	 * <code>toLowerUnderscoreCase()</code>) to the specified
+	 * <code>Appendable</code> object, with no intermediate string.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 *            the converted characters
+	 */
+	public static void writeLowerUnderscoreCase(Appendable out,
+			CharSequence value) {
+		writeUnderscoreCase(out, value, 0, value.length(), false);
+	}
+
+	/**
+	 * Appends the lower underscore case conversion of a range of a character
+	 * sequence to the specified <code>Appendable</code> object.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 */
+	public static void writeLowerUnderscoreCase(Appendable out,
+			CharSequence value, int start, int end) {
+		writeUnderscoreCase(out, value, start, end, false);
+	}
+
+	/**
+	 * Writes the lower underscore case conversion of a range of a character
+	 * sequence into a <code>char</code> array.
+	 * 
+	 * @param out
+	 *            the array where to write the result
+	 * @param offset
+	 *            the index of the first written character
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 * @return the number of written characters
+	 * @throws IndexOutOfBoundsException
+	 *             if the result doesn't fit in the array (at most <code>2 *
+	 *             (end - start)</code> characters are written)
+	 */
+	public static int writeLowerUnderscoreCase(char[] out, int offset,
+			CharSequence value, int start, int end) {
+		return writeUnderscoreCase(out, offset, value, start, end, false);
+	}
+
+	/**
+	 * Appends the upper camel case conversion of a character sequence (see
+	 * <code>toUpperCamelCase()</code>) to the specified <code>Appendable</code>
+	 * object, with no intermediate string.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 *            the converted characters
+	 */
+	public static void writeUpperCamelCase(Appendable out, CharSequence value) {
+		writeCamelCase(out, value, 0, value.length(), true);
+	}
+
+	/**
+	 * Appends the upper camel case conversion of a range of a character
+	 * sequence to the specified <code>Appendable</code> object.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 */
+	public static void writeUpperCamelCase(Appendable out, CharSequence value,
+			int start, int end) {
+		writeCamelCase(out, value, start, end, true);
+	}
+
+	/**
+	 * Writes the upper camel case conversion of a range of a character sequence
+	 * into a <code>char</code> array.
+	 * 
+	 * @param out
+	 *            the array where to write the result
+	 * @param offset
+	 *            the index of the first written character
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 * @return the number of written characters
+	 * @throws IndexOutOfBoundsException
+	 *             if the result doesn't fit in the array (at most <code>end -
+	 *             start</code> characters are written)
+	 */
+	public static int writeUpperCamelCase(char[] out, int offset,
+			CharSequence value, int start, int end) {
+		return writeCamelCase(out, offset, value, start, end, true);
+	}
+
+	/**
+	 * Appends the lower camel case conversion of a character sequence (see
+	 * <code>toLowerCamelCase()</code>) to the specified <code>Appendable</code>
+	 * object, with no intermediate string.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 *            the converted characters
+	 */
+	public static void writeLowerCamelCase(Appendable out, CharSequence value) {
+		writeCamelCase(out, value, 0, value.length(), false);
+	}
+
+	/**
+	 * Appends the lower camel case conversion of a range of a character
+	 * sequence to the specified <code>Appendable</code> object.
+	 * 
+	 * @param out
+	 *            the Appendable where to append the result
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 */
+	public static void writeLowerCamelCase(Appendable out, CharSequence value,
+			int start, int end) {
+		writeCamelCase(out, value, start, end, false);
+	}
+
+	/**
+	 * Writes the lower camel case conversion of a range of a character sequence
+	 * into a <code>char</code> array.
+	 * 
+	 * @param out
+	 *            the array where to write the result
+	 * @param offset
+	 *            the index of the first written character
+	 * @param value
+	 * @param start
+	 *            the index of the first converted character
+	 * @param end
+	 *            the index after the last converted character
+	 * @return the number of written characters
+	 * @throws IndexOutOfBoundsException
+	 *             if the result doesn't fit in the array (at most <code>end -
+	 *             start</code> characters are written)
+	 */
+	public static int writeLowerCamelCase(char[] out, int offset,
+			CharSequence value, int start, int end) {
+		return writeCamelCase(out, offset, value, start, end, false);
+	}
+
+	/**
+	 * Converts an array of strings to the specified case format (the null
+	 * elements remain null). The conversions are written into a single
+	 * scratch buffer; the strings not changed by the conversion are returned
+	 * as they are. The arrays of at least
+	 * <code>PARALLEL_CONVERSION_THRESHOLD</code> strings are converted in
+	 * parallel, in the common fork-join pool.
+	 * 
+	 * @param values
+	 * @param format
+	 * @return a new array holding the converted strings
+	 */
+	public static String[] convertAll(String[] values, CaseFormat format) {
+		String[] result = new String[values.length];
+		if (values.length >= PARALLEL_CONVERSION_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(
+					new ConversionTask(values, result, format, 0,
+							values.length));
+		} else {
+			convertRange(values, result, format, 0, values.length);
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a list of strings to the specified case format (see
+	 * <code>convertAll(String[], CaseFormat)</code>).
+	 * 
+	 * @param values
+	 * @param format
+	 * @return a fixed-size list holding the converted strings
+	 */
+	public static List<String> convertAll(List<String> values,
+			CaseFormat format) {
+		return Arrays.asList(convertAll(values
+				.toArray(new String[values.size()]), format));
+	}
+
+	/**
+	 * Converts a range of an array of strings, reusing a scratch buffer.
+	 * 
+	 * @param values
+	 * @param result
+	 * @param format
+	 * @param from
+	 * @param to
+	 */
+	private static void convertRange(String[] values, String[] result,
+			CaseFormat format, int from, int to) {
+		char[] buffer = new char[64];
+		for (int i = from; i < to; i++) {
+			String value = values[i];
+			if (value == null) {
+				continue;
+			}
+			// the underscore case conversions at most double the length
+			int maxLength = 2 * value.length();
+			if (buffer.length < maxLength) {
+				buffer = new char[Math.max(maxLength, 2 * buffer.length)];
+			}
+			int count = format.write(buffer, 0, value, 0, value.length());
+			result[i] = equals(value, buffer, count) ? value : new String(
+					buffer, 0, count);
+		}
+	}
+
+	private static boolean equals(String value, char[] chars, int count) {
+		if (value.length() != count) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (value.charAt(i) != chars[i]) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -79,9 +509,11 @@ public class StringUtil {
 	 * 
 	 * @param value
 	 * @param upperCase
+	 * @param unicode
 	 * @return
 	 */
-	private static String toUnderscoreCaseHelper(String value, boolean upperCase) {
+	private static String toUnderscoreCaseHelper(String value,
+			boolean upperCase, boolean unicode) {
 		if (value == null) {
 			return null;
 		}
@@ -91,19 +523,8 @@ public class StringUtil {
 			estimatedSize = 8;
 		}
 		StringBuilder result = new StringBuilder(estimatedSize);
-		boolean underscoreWritten = true;
-		for (int i = 0; i < value.length(); i++) {
-			char ch = value.charAt(i);
-			if ((ch >= 'A') && (ch <= 'Z')) {
-				if (!underscoreWritten) {
-					result.append('_');
-				}
-
-			}
-			result.append((upperCase) ? CharUtil.toAsciiUpperCase(ch)
-					: CharUtil.toAsciiLowerCase(ch));
-			underscoreWritten = (ch == '_');
-		}
+		appendUnderscoreCase(result, value, 0, value.length(), upperCase,
+				unicode);
 		return result.toString();
 	}
 
@@ -112,9 +533,11 @@ public class StringUtil {
 	 * 
 	 * @param value
 	 * @param upperCase
+	 * @param unicode
 	 * @return
 	 */
-	private static String toCamelCaseHelper(String value, boolean upperCase) {
+	private static String toCamelCaseHelper(String value, boolean upperCase,
+			boolean unicode) {
 		if (value == null) {
 			return null;
 		}
@@ -126,6 +549,18 @@ public class StringUtil {
 				.toAsciiUpperCase(firstChar) : CharUtil
 				.toAsciiLowerCase(firstChar);
 		if (value.indexOf('_') == -1) {
+			if (unicode && (firstChar >= 0x80)) {
+				int firstCodePoint = value.codePointAt(0);
+				int firstCodePointCorrected = toCamelCaseStart(
+						firstCodePoint, upperCase);
+				if (firstCodePoint == firstCodePointCorrected) {
+					return value;
+				}
+				return new StringBuilder(value.length()).appendCodePoint(
+						firstCodePointCorrected).append(value,
+						Character.charCount(firstCodePoint), value.length())
+						.toString();
+			}
 			if (firstChar != firstCharCorrected) {
 				return firstCharCorrected + value.substring(1);
 			} else {
@@ -133,21 +568,279 @@ public class StringUtil {
 			}
 		}
 		StringBuilder result = new StringBuilder(value.length());
-		result.append(firstCharCorrected);
+		appendCamelCase(result, value, 0, value.length(), upperCase, unicode);
+		return result.toString();
+	}
+
+	/**
+	 * Converts the first code point of a camel case word, in Unicode mode.
+	 * 
+	 * @param codePoint
+	 * @param upperCase
+	 * @return the title case code point (upper case) or the lower case code
+	 *         point
+	 */
+	private static int toCamelCaseStart(int codePoint, boolean upperCase) {
+		return (upperCase) ? Character.toTitleCase(codePoint) : Character
+				.toLowerCase(codePoint);
+	}
+
+	/**
+	 * Helper function for the underscore case functions writing to an
+	 * <code>Appendable</code>. The <code>StringBuilder</code> objects are
+	 * written by a dedicated loop (no <code>IOException</code> and no
+	 * interface calls).
+	 * 
+	 * @param out
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @param upperCase
+	 */
+	private static void writeUnderscoreCase(Appendable out,
+			CharSequence value, int start, int end, boolean upperCase) {
+		Objects.checkFromToIndex(start, end, value.length());
+		if (out instanceof StringBuilder) {
+			appendUnderscoreCase((StringBuilder) out, value, start, end,
+					upperCase, false);
+			return;
+		}
+		try {
+			boolean underscoreWritten = true;
+			for (int i = start; i < end; i++) {
+				char ch = value.charAt(i);
+				if ((ch >= 'A') && (ch <= 'Z') && !underscoreWritten) {
+					out.append('_');
+				}
+				out.append((upperCase) ? CharUtil.toAsciiUpperCase(ch)
+						: CharUtil.toAsciiLowerCase(ch));
+				underscoreWritten = (ch == '_');
+			}
+		} catch (IOException e) {
+			throw new WrappedInRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Appends the underscore case conversion to a <code>StringBuilder</code>.
+	 * In lower case, the runs of characters that are not changed are appended
+	 * in bulk. In Unicode mode, the rest of the range is converted by code
+	 * points from the first non-ASCII character.
+	 * 
+	 * @param out
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @param upperCase
+	 * @param unicode
+	 */
+	private static void appendUnderscoreCase(StringBuilder out,
+			CharSequence value, int start, int end, boolean upperCase,
+			boolean unicode) {
+		boolean underscoreWritten = true;
+		if (upperCase) {
+			for (int i = start; i < end; i++) {
+				char ch = value.charAt(i);
+				if (unicode && (ch >= 0x80)) {
+					appendUnicodeUnderscoreCase(out, value, i, end, true,
+							underscoreWritten);
+					return;
+				}
+				if ((ch >= 'A') && (ch <= 'Z') && !underscoreWritten) {
+					out.append('_');
+				}
+				out.append(CharUtil.toAsciiUpperCase(ch));
+				underscoreWritten = (ch == '_');
+			}
+			return;
+		}
+		int runStart = start;
+		for (int i = start; i < end; i++) {
+			char ch = value.charAt(i);
+			if ((ch >= 'A') && (ch <= 'Z')) {
+				out.append(value, runStart, i);
+				if (!underscoreWritten) {
+					out.append('_');
+				}
+				out.append(CharUtil.toAsciiLowerCase(ch));
+				runStart = i + 1;
+			} else if (unicode && (ch >= 0x80)) {
+				out.append(value, runStart, i);
+				appendUnicodeUnderscoreCase(out, value, i, end, false,
+						underscoreWritten);
+				return;
+			}
+			underscoreWritten = (ch == '_');
+		}
+		out.append(value, runStart, end);
+	}
+
+	/**
+	 * Appends the underscore case conversion of the rest of a range in
+	 * Unicode mode: an underscore is inserted before the upper and title case
+	 * letters (unless following an underscore) and all the code points are
+	 * converted to the specified case.
+	 * 
+	 * @param out
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @param upperCase
+	 * @param underscoreWritten
+	 *            true at the start of the range or after an underscore
+	 */
+	private static void appendUnicodeUnderscoreCase(StringBuilder out,
+			CharSequence value, int start, int end, boolean upperCase,
+			boolean underscoreWritten) {
+		for (int i = start; i < end;) {
+			int codePoint = Character.codePointAt(value, i);
+			if (!underscoreWritten
+					&& (Character.isUpperCase(codePoint) || Character
+							.isTitleCase(codePoint))) {
+				out.append('_');
+			}
+			out.appendCodePoint((upperCase) ? Character
+					.toUpperCase(codePoint) : Character
+					.toLowerCase(codePoint));
+			underscoreWritten = (codePoint == '_');
+			i += Character.charCount(codePoint);
+		}
+	}
+
+	private static int writeUnderscoreCase(char[] out, int offset,
+			CharSequence value, int start, int end, boolean upperCase) {
+		Objects.checkFromToIndex(start, end, value.length());
+		int pos = offset;
+		boolean underscoreWritten = true;
+		for (int i = start; i < end; i++) {
+			char ch = value.charAt(i);
+			if ((ch >= 'A') && (ch <= 'Z') && !underscoreWritten) {
+				out[pos++] = '_';
+			}
+			out[pos++] = (upperCase) ? CharUtil.toAsciiUpperCase(ch)
+					: CharUtil.toAsciiLowerCase(ch);
+			underscoreWritten = (ch == '_');
+		}
+		return pos - offset;
+	}
+
+	/**
+	 * Helper function for the camel case functions writing to an
+	 * <code>Appendable</code>: the first character is converted to the
+	 * specified case, the underscores are removed and the characters
+	 * following them are converted to upper case.
+	 * 
+	 * @param out
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @param upperCase
+	 */
+	private static void writeCamelCase(Appendable out, CharSequence value,
+			int start, int end, boolean upperCase) {
+		Objects.checkFromToIndex(start, end, value.length());
+		if (out instanceof StringBuilder) {
+			appendCamelCase((StringBuilder) out, value, start, end, upperCase,
+					false);
+			return;
+		}
+		if (start == end) {
+			return;
+		}
+		try {
+			char firstChar = value.charAt(start);
+			out.append((upperCase) ? CharUtil.toAsciiUpperCase(firstChar)
+					: CharUtil.toAsciiLowerCase(firstChar));
+			boolean nextIsUpperCase = false;
+			for (int i = start + 1; i < end; i++) {
+				char ch = value.charAt(i);
+				if (ch == '_') {
+					nextIsUpperCase = true;
+				} else if (nextIsUpperCase) {
+					out.append(CharUtil.toAsciiUpperCase(ch));
+					nextIsUpperCase = false;
+				} else {
+					out.append(ch);
+				}
+			}
+		} catch (IOException e) {
+			throw new WrappedInRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Appends the camel case conversion to a <code>StringBuilder</code>. The
+	 * runs of characters between the underscores are appended in bulk. In
+	 * Unicode mode, the non-ASCII characters starting the words are converted
+	 * by code points (the other characters are not changed).
+	 * 
+	 * @param out
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @param upperCase
+	 * @param unicode
+	 */
+	private static void appendCamelCase(StringBuilder out,
+			CharSequence value, int start, int end, boolean upperCase,
+			boolean unicode) {
+		if (start == end) {
+			return;
+		}
+		char firstChar = value.charAt(start);
+		int runStart = start + 1;
+		if (unicode && (firstChar >= 0x80)) {
+			int firstCodePoint = Character.codePointAt(value, start);
+			out.appendCodePoint(toCamelCaseStart(firstCodePoint, upperCase));
+			runStart = start + Character.charCount(firstCodePoint);
+		} else {
+			out.append((upperCase) ? CharUtil.toAsciiUpperCase(firstChar)
+					: CharUtil.toAsciiLowerCase(firstChar));
+		}
 		boolean nextIsUpperCase = false;
-		for (int i = 1; i < value.length(); i++) {
+		for (int i = runStart; i < end; i++) {
 			char ch = value.charAt(i);
 			if (ch == '_') {
+				out.append(value, runStart, i);
+				runStart = i + 1;
 				nextIsUpperCase = true;
-			} else {
-				if (nextIsUpperCase) {
-					result.append(CharUtil.toAsciiUpperCase(ch));
-					nextIsUpperCase = false;
+			} else if (nextIsUpperCase) {
+				if (unicode && (ch >= 0x80)) {
+					int codePoint = Character.codePointAt(value, i);
+					out.appendCodePoint(Character.toTitleCase(codePoint));
+					i += Character.charCount(codePoint) - 1;
 				} else {
-					result.append(ch);
+					out.append(CharUtil.toAsciiUpperCase(ch));
 				}
+				runStart = i + 1;
+				nextIsUpperCase = false;
 			}
 		}
-		return result.toString();
+		out.append(value, runStart, end);
+	}
+
+	private static int writeCamelCase(char[] out, int offset,
+			CharSequence value, int start, int end, boolean upperCase) {
+		Objects.checkFromToIndex(start, end, value.length());
+		if (start == end) {
+			return 0;
+		}
+		int pos = offset;
+		char firstChar = value.charAt(start);
+		out[pos++] = (upperCase) ? CharUtil.toAsciiUpperCase(firstChar)
+				: CharUtil.toAsciiLowerCase(firstChar);
+		boolean nextIsUpperCase = false;
+		for (int i = start + 1; i < end; i++) {
+			char ch = value.charAt(i);
+			if (ch == '_') {
+				nextIsUpperCase = true;
+			} else if (nextIsUpperCase) {
+				out[pos++] = CharUtil.toAsciiUpperCase(ch);
+				nextIsUpperCase = false;
+			} else {
+				out[pos++] = ch;
+			}
+		}
+		return pos - offset;
 	}
 }
@@ -39,6 +39,7 @@ import java.sql.Statement;
 import java.sql.Struct;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 /**
  * Generic Wrapper for a <code>java.sql.Connection</code> objects.
@@ -71,6 +72,15 @@ public class ConnectionWrapper implements Connection {
 		return m_connection;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.sql.Connection#abort(java.util.concurrent.Executor)
+	 */
+	public void abort(Executor executor) throws SQLException {
+		m_connection.abort(executor);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -243,6 +253,24 @@ public class ConnectionWrapper implements Connection {
 		return m_connection.getMetaData();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.sql.Connection#getNetworkTimeout()
+	 */
+	public int getNetworkTimeout() throws SQLException {
+		return m_connection.getNetworkTimeout();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.sql.Connection#getSchema()
+	 */
+	public String getSchema() throws SQLException {
+		return m_connection.getSchema();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -481,6 +509,17 @@ public class ConnectionWrapper implements Connection {
 		m_connection.setHoldability(holdability);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.sql.Connection#setNetworkTimeout(java.util.concurrent.Executor,
+	 *      int)
+	 */
+	public void setNetworkTimeout(Executor executor, int milliseconds)
+			throws SQLException {
+		m_connection.setNetworkTimeout(executor, milliseconds);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -508,6 +547,15 @@ public class ConnectionWrapper implements Connection {
 		return m_connection.setSavepoint(name);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.sql.Connection#setSchema(java.lang.String)
+	 */
+	public void setSchema(String schema) throws SQLException {
+		m_connection.setSchema(schema);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -25,6 +25,8 @@ package com.mihaila.zutil.sql;
 import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
@@ -93,6 +95,15 @@ public class DataSourceWrapper implements DataSource {
 		return m_dataSource.getLogWriter();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see javax.sql.CommonDataSource#getParentLogger()
+	 */
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return m_dataSource.getParentLogger();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
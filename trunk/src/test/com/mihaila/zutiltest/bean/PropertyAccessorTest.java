@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutiltest.bean;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.mihaila.zutil.bean.BeanProperty;
+import com.mihaila.zutil.bean.IPropertyAccessor;
+import com.mihaila.zutil.bean.PropertyAccessorManager;
+
+public class PropertyAccessorTest {
+
+	public static class Person {
+
+		private String m_name;
+
+		private int m_age;
+
+		private boolean m_active;
+
+		private String m_url;
+
+		private String m_password;
+
+		private long[] m_scores;
+
+		public String getName() {
+			return m_name;
+		}
+
+		public void setName(String name) {
+			m_name = name;
+		}
+
+		public int getAge() {
+			return m_age;
+		}
+
+		public void setAge(int age) {
+			m_age = age;
+		}
+
+		public void setAge(String age) {
+			m_age = Integer.parseInt(age);
+		}
+
+		public boolean isActive() {
+			return m_active;
+		}
+
+		public boolean getActive() {
+			return m_active;
+		}
+
+		public void setActive(boolean active) {
+			m_active = active;
+		}
+
+		public String getURL() {
+			return m_url;
+		}
+
+		public void setURL(String url) {
+			m_url = url;
+		}
+
+		public int getId() {
+			return 7;
+		}
+
+		public void setPassword(String password) {
+			m_password = password;
+		}
+
+		public String password() {
+			return m_password;
+		}
+
+		public long[] getScores() {
+			return m_scores;
+		}
+
+		public void setScores(long[] scores) {
+			m_scores = scores;
+		}
+	}
+
+	static class Hidden {
+
+		private double m_ratio;
+
+		public double getRatio() {
+			return m_ratio;
+		}
+
+		public void setRatio(double ratio) {
+			m_ratio = ratio;
+		}
+	}
+
+	@Test
+	public void testProperties() {
+		BeanProperty[] properties = PropertyAccessorManager
+				.getProperties(Person.class);
+		String[] names = new String[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			names[i] = properties[i].getName();
+		}
+		Assert.assertEquals(names, new String[] { "URL", "active", "age",
+				"id", "name", "password", "scores" });
+		IPropertyAccessor<Person> accessor = PropertyAccessorManager
+				.getAccessor(Person.class);
+		Assert.assertSame(PropertyAccessorManager.getAccessor(Person.class),
+				accessor);
+		Assert.assertTrue(accessor.getClass().getName().contains(
+				"__RuntimeAccessor"));
+		BeanProperty age = accessor.getProperty(accessor
+				.getPropertyIndex("age"));
+		Assert.assertEquals(age.getType(), int.class);
+		Assert.assertEquals(age.getWriteMethod().getParameterTypes()[0],
+				int.class);
+		Assert.assertFalse(accessor.getProperty(
+				accessor.getPropertyIndex("id")).isWritable());
+		Assert.assertFalse(accessor.getProperty(
+				accessor.getPropertyIndex("password")).isReadable());
+		Assert.assertEquals(accessor.getPropertyIndex("missing"), -1);
+		// isActive() is preferred to getActive()
+		Assert.assertEquals(accessor.getProperty(
+				accessor.getPropertyIndex("active")).getReadMethod().getName(),
+				"isActive");
+	}
+
+	@Test
+	public void testAccessors() {
+		testAccessorHelper(PropertyAccessorManager.getAccessor(Person.class));
+		testAccessorHelper(PropertyAccessorManager
+				.newReflectionAccessor(Person.class));
+
+		// the accessors of the non-public classes are generated too
+		IPropertyAccessor<Hidden> accessor = PropertyAccessorManager
+				.getAccessor(Hidden.class);
+		Assert.assertTrue(accessor.getClass().getName().contains(
+				"__RuntimeAccessor"));
+		Hidden hidden = new Hidden();
+		accessor.setValue(hidden, 0, Double.valueOf(0.5));
+		Assert.assertEquals(accessor.getValue(hidden, "ratio"), Double
+				.valueOf(0.5));
+	}
+
+	private void testAccessorHelper(IPropertyAccessor<Person> accessor) {
+		Person person = new Person();
+		long[] scores = new long[] { 1, 2 };
+		accessor.setValue(person, "name", "John");
+		accessor.setValue(person, accessor.getPropertyIndex("age"), Integer
+				.valueOf(42));
+		accessor.setValue(person, "active", Boolean.TRUE);
+		accessor.setValue(person, "URL", "http://www.mihaila.com");
+		accessor.setValue(person, "password", "secret");
+		accessor.setValue(person, "scores", scores);
+		Assert.assertEquals(person.getName(), "John");
+		Assert.assertEquals(person.getAge(), 42);
+		Assert.assertTrue(person.isActive());
+		Assert.assertEquals(person.password(), "secret");
+		Assert.assertEquals(accessor.getValue(person, "name"), "John");
+		Assert.assertEquals(accessor.getValue(person, accessor
+				.getPropertyIndex("age")), Integer.valueOf(42));
+		Assert.assertEquals(accessor.getValue(person, "active"),
+				Boolean.TRUE);
+		Assert.assertEquals(accessor.getValue(person, "URL"),
+				"http://www.mihaila.com");
+		Assert.assertEquals(accessor.getValue(person, "id"), Integer
+				.valueOf(7));
+		Assert.assertSame(accessor.getValue(person, "scores"), scores);
+
+		assertIllegalArgument(accessor, person, "id", true);
+		assertIllegalArgument(accessor, person, "password", false);
+		assertIllegalArgument(accessor, person, "missing", false);
+		try {
+			accessor.getValue(person, accessor.getPropertyCount());
+			Assert.fail("Index out of range.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void assertIllegalArgument(
+			IPropertyAccessor<Person> accessor, Person person, String name,
+			boolean write) {
+		try {
+			if (write) {
+				accessor.setValue(person, name, Integer.valueOf(1));
+			} else {
+				accessor.getValue(person, name);
+			}
+			Assert.fail("Property: " + name);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -22,12 +22,60 @@
 
 package com.mihaila.zutiltest.factory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
 import org.testng.Assert;
+import org.testng.SkipException;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.mihaila.zutil.factory.CopyContext;
+import com.mihaila.zutil.factory.CopyPolicy;
+import com.mihaila.zutil.factory.FactoryBinding;
+import com.mihaila.zutil.factory.FactoryHandle;
 import com.mihaila.zutil.factory.FactoryManager;
+import com.mihaila.zutil.factory.FactoryScope;
+import com.mihaila.zutil.factory.FactoryStatistics;
+import com.mihaila.zutil.factory.GenerateFactory;
+import com.mihaila.zutil.factory.IBulkFactory;
+import com.mihaila.zutil.factory.ICopier;
 import com.mihaila.zutil.factory.IFactory;
+import com.mihaila.zutil.factory.IFactory1Arg;
+import com.mihaila.zutil.factory.IFactory1IntArg;
+import com.mihaila.zutil.factory.IFactory2Args;
+import com.mihaila.zutil.factory.IFactoryGenerator;
+import com.mihaila.zutil.factory.PooledFactory;
+import com.mihaila.zutil.factory.ScopeContext;
+import com.mihaila.zutil.factory.ScopedFactory;
+import com.mihaila.zutil.factory.WarmUpReport;
+import com.mihaila.zutil.lang.ICallable1Arg;
 
 public class FactoryRegistryTest {
 
@@ -35,10 +83,197 @@ public class FactoryRegistryTest {
 
 	}
 
+	static class PrivateConstructor {
+		private PrivateConstructor() {
+		}
+	}
+
+	public static class AsyncFailure {
+	}
+
+	static class FailingFactoryGenerator implements IFactoryGenerator {
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class)
+		 */
+		public <T> IFactory<T> generateFactory(Class<T> type) {
+			throw new RuntimeException("Generation failure.");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateFactory(java.lang.Class,
+		 *      java.lang.Class, java.lang.Class[])
+		 */
+		public <F> F generateFactory(Class<F> factoryInterface, Class<?> type,
+				Class<?>... parameterTypes) {
+			throw new RuntimeException("Generation failure.");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see com.mihaila.zutil.factory.IFactoryGenerator#generateCopier(java.lang.Class,
+		 *      com.mihaila.zutil.factory.CopyPolicy)
+		 */
+		public <T> ICopier<T> generateCopier(Class<T> type, CopyPolicy policy) {
+			throw new RuntimeException("Generation failure.");
+		}
+	}
+
 	static class B {
 		public boolean flag;
 	}
 
+	public static class D {
+
+		public final Object value;
+
+		public D(int value) {
+			this.value = "int " + value;
+		}
+
+		public D(long value) {
+			this.value = "long " + value;
+		}
+
+		public D(double value) {
+			this.value = "double " + value;
+		}
+
+		public D(String value, int count) {
+			this.value = value + count;
+		}
+	}
+
+	@GenerateFactory
+	public static class C {
+
+	}
+
+	public interface Service {
+
+		String getName();
+	}
+
+	public static class ServiceA implements Service {
+
+		public String getName() {
+			return "A";
+		}
+	}
+
+	public static class ServiceB implements Service {
+
+		public String getName() {
+			return "B";
+		}
+	}
+
+	public static class Node {
+
+		public int value;
+
+		String name;
+
+		private long secret;
+
+		public final int[] numbers = new int[2];
+
+		public Node next;
+
+		public List<String> tags = new ArrayList<String>();
+
+		public List<int[]> ranges = new ArrayList<int[]>();
+
+		public long getSecret() {
+			return secret;
+		}
+
+		public void setSecret(long secret) {
+			this.secret = secret;
+		}
+	}
+
+	public static class SubNode extends Node {
+
+		protected double weight;
+	}
+
+	public static class Unloadable {
+
+	}
+
+	/**
+	 * Loads the specified class from its bytes (the other classes are loaded
+	 * by the parent class loader).
+	 */
+	static class IsolatedClassLoader extends ClassLoader {
+
+		private final String m_name;
+
+		private final byte[] m_bytes;
+
+		IsolatedClassLoader(ClassLoader parent, String name, byte[] bytes) {
+			super(parent);
+			m_name = name;
+			m_bytes = bytes;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.ClassLoader#loadClass(java.lang.String, boolean)
+		 */
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			if (!name.equals(m_name)) {
+				return super.loadClass(name, resolve);
+			}
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> klass = findLoadedClass(name);
+				if (klass == null) {
+					klass = defineClass(name, m_bytes, 0, m_bytes.length);
+				}
+				return klass;
+			}
+		}
+	}
+
+	/**
+	 * Counts the attempts to load the specified class (the classes are loaded
+	 * by the parent class loader).
+	 */
+	static class CountingClassLoader extends ClassLoader {
+
+		private final String m_name;
+
+		volatile int m_loadCount;
+
+		CountingClassLoader(String name) {
+			super(FactoryRegistryTest.class.getClassLoader());
+			m_name = name;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.lang.ClassLoader#loadClass(java.lang.String, boolean)
+		 */
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			if (name.equals(m_name)) {
+				m_loadCount++;
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+
 	static class FactoryB implements IFactory<B> {
 
 		/*
@@ -91,6 +326,25 @@ public class FactoryRegistryTest {
 		Assert.assertSame(b.flag, true);
 	}
 
+	@Test
+	public void testClassCacheConsistency() {
+		IFactory<B> factoryB = FactoryManager.getFactoryAuto(B.class);
+		Assert.assertFalse(FactoryManager.newInstance(B.class).flag);
+
+		// overwritten using the String key
+		FactoryManager.setFactory(B.class.getName(), new FactoryB());
+		Assert.assertTrue(FactoryManager.newInstance(B.class).flag);
+
+		// removed with a null value
+		FactoryManager.setFactory(B.class, null);
+		Assert.assertNull(FactoryManager.getFactory(B.class));
+
+		FactoryManager.setFactory(B.class, factoryB);
+		Assert.assertSame(FactoryManager.getFactory(B.class), factoryB);
+		FactoryManager.clear();
+		Assert.assertNull(FactoryManager.getFactory(B.class));
+	}
+
 	@Test
 	public void testNonClassNameKey() {
 		B b = (B) FactoryManager.newInstance("test");
@@ -101,6 +355,69 @@ public class FactoryRegistryTest {
 		Assert.assertNotNull(b);
 	}
 
+	@Test
+	public void testPooledFactory() {
+		PooledFactory<B> pooledFactory = FactoryManager.setPooledFactory(
+				B.class, 1, new ICallable1Arg<Object, B>() {
+					public Object call(B b) {
+						b.flag = false;
+						return null;
+					}
+				});
+		B b = FactoryManager.newInstance(B.class);
+		Assert.assertEquals(pooledFactory.getMissCount(), 1);
+		b.flag = true;
+		Assert.assertTrue(FactoryManager.release(B.class, b));
+		B b2 = FactoryManager.newInstance(B.class);
+		Assert.assertSame(b2, b);
+		Assert.assertFalse(b2.flag);
+		Assert.assertEquals(pooledFactory.getHitCount(), 1);
+
+		// fill the thread local free list, then the shared pool
+		int count = PooledFactory.DEFAULT_THREAD_LOCAL_CAPACITY + 2;
+		for (int i = 0; i < count; i++) {
+			FactoryManager.release(B.class, new B());
+		}
+		Assert.assertEquals(pooledFactory.getSharedPoolSize(), 1);
+		Assert.assertEquals(pooledFactory.getDiscardCount(), 1);
+
+		Assert.assertFalse(FactoryManager.release(A.class, new A()));
+	}
+
+	@Test
+	public void testNegativeLookupCache() {
+		String key = "com.mihaila.zutiltest.factory.Missing";
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		CountingClassLoader classLoader = new CountingClassLoader(key);
+		CountingClassLoader otherClassLoader = new CountingClassLoader(key);
+		thread.setContextClassLoader(classLoader);
+		try {
+			Assert.assertNull(FactoryManager.newInstance(key));
+			Assert.assertNull(FactoryManager.getFactoryAuto(key));
+			// the second lookup doesn't try to load the class
+			Assert.assertEquals(classLoader.m_loadCount, 1);
+
+			// the key is remembered per class loader
+			thread.setContextClassLoader(otherClassLoader);
+			Assert.assertNull(FactoryManager.getFactoryAuto(key));
+			Assert.assertNull(FactoryManager.getFactoryAuto(key));
+			Assert.assertEquals(otherClassLoader.m_loadCount, 1);
+			thread.setContextClassLoader(classLoader);
+			Assert.assertNull(FactoryManager.getFactoryAuto(key));
+			Assert.assertEquals(classLoader.m_loadCount, 1);
+
+			FactoryManager.setFactory(key, new FactoryB());
+			Assert.assertNotNull(FactoryManager.newInstance(key));
+			FactoryManager.setFactory(key, null);
+			Assert.assertNull(FactoryManager.newInstance(key));
+			// the registration removed the key from the cache
+			Assert.assertEquals(classLoader.m_loadCount, 2);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+
 	@Test
 	public void testGenerateRuntimeFactory() {
 		IFactory<A> factoryA = FactoryManager.generateRuntimeFactory(A.class);
@@ -109,4 +426,787 @@ public class FactoryRegistryTest {
 		Assert.assertNotNull(factoryA2);
 		Assert.assertNotSame(factoryA, factoryA2);
 	}
+
+	@Test
+	public void testIndexedFactories() throws Exception {
+		Assert.assertNull(FactoryManager.getFactory(C.class));
+		Assert.assertTrue(FactoryManager.registerIndexedFactories(getClass()
+				.getClassLoader()) > 0);
+		IFactory<C> factoryC = FactoryManager.getFactory(C.class);
+		Assert.assertEquals(factoryC.getClass().getName(),
+				"com.mihaila.zutiltest.factory.FactoryRegistryTest_C__Factory");
+		Assert.assertNotNull(factoryC.newInstance());
+
+		// the entries that cannot be instantiated are skipped
+		File dir = File.createTempFile("index", "");
+		dir.delete();
+		File file = new File(dir, FactoryManager.FACTORY_INDEX_RESOURCE);
+		URLClassLoader classLoader = null;
+		try {
+			file.getParentFile().mkdirs();
+			Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+					"ISO-8859-1");
+			try {
+				writer.write("missing=no.such.Type__Factory\n");
+				writer.write("notAFactory=" + A.class.getName() + "\n");
+				writer.write("c=" + factoryC.getClass().getName() + "\n");
+			} finally {
+				writer.close();
+			}
+			classLoader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+					FactoryRegistryTest.class.getClassLoader());
+			int count = FactoryManager.registerIndexedFactories(getClass()
+					.getClassLoader());
+			Assert.assertEquals(FactoryManager
+					.registerIndexedFactories(classLoader), count + 1);
+			Assert.assertNull(FactoryManager.getFactory("missing"));
+			Assert.assertNull(FactoryManager.getFactory("notAFactory"));
+			Assert.assertNotNull(FactoryManager.getFactory("c"));
+		} finally {
+			FactoryManager.setFactory("c", null);
+			if (classLoader != null) {
+				classLoader.close();
+			}
+			deleteTempFile(dir, file);
+		}
+	}
+
+	@Test
+	public void testConcurrentGeneration() throws Exception {
+		final int numThreads = 16;
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			Future<?>[] results = new Future<?>[numThreads];
+			for (int i = 0; i < numThreads; i++) {
+				results[i] = executor.submit(new Callable<IFactory<B>>() {
+					public IFactory<B> call() throws Exception {
+						startSignal.await();
+						return FactoryManager.getFactoryAuto(B.class);
+					}
+				});
+			}
+			startSignal.countDown();
+			IFactory<B> factoryB = FactoryManager.getFactoryAuto(B.class);
+			for (Future<?> result : results) {
+				Assert.assertSame(result.get(), factoryB);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFactoryHandles() {
+		FactoryHandle<A> handleA = FactoryManager.register(A.class);
+		Assert.assertSame(FactoryManager.getHandle(A.class), handleA);
+		Assert.assertNotNull(FactoryManager.newInstance(handleA));
+
+		FactoryHandle<B> handleB = FactoryManager.register("testB",
+				new FactoryB());
+		Assert.assertNotSame(handleB, handleA);
+		Assert.assertTrue(FactoryManager.newInstance(handleB).flag);
+		FactoryManager.setFactory("testB", null);
+		Assert.assertNull(FactoryManager.newInstance(handleB));
+		FactoryManager.setFactory("testB", new FactoryB());
+		Assert.assertTrue(FactoryManager.newInstance(handleB).flag);
+
+		// the handles remain valid after clear
+		FactoryManager.clear();
+		Assert.assertNull(FactoryManager.newInstance(handleB));
+		Assert.assertNotNull(FactoryManager.newInstance(handleA));
+		Assert.assertSame(FactoryManager.register(A.class), handleA);
+	}
+
+	@Test
+	public void testConcurrentHandleRegistration() throws Exception {
+		final IFactory<B> oldFactory = new IFactory<B>() {
+			public B newInstance() {
+				return new B();
+			}
+		};
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			for (int i = 0; i < 2000; i++) {
+				final String key = "testHandle" + i;
+				FactoryManager.setFactory(key, oldFactory);
+				final CyclicBarrier barrier = new CyclicBarrier(2);
+				Future<FactoryHandle<?>> result = executor
+						.submit(new Callable<FactoryHandle<?>>() {
+							public FactoryHandle<?> call() throws Exception {
+								barrier.await();
+								return FactoryManager.getHandle(key);
+							}
+						});
+				barrier.await();
+				FactoryManager.setFactory(key, new FactoryB());
+				// the handle doesn't keep the replaced factory
+				Assert.assertTrue(((B) FactoryManager.newInstance(result
+						.get())).flag, key);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testBulkInstantiation() {
+		A[] array = FactoryManager.newInstances(A.class, 3);
+		Assert.assertEquals(array.length, 3);
+		Assert.assertNotNull(array[2]);
+		Assert.assertNotSame(array[0], array[1]);
+		Assert
+				.assertTrue(FactoryManager.getFactory(A.class) instanceof IBulkFactory<?>);
+
+		// not a bulk factory
+		FactoryManager.setFactory(B.class, new FactoryB());
+		B[] arrayB = new B[4];
+		Assert.assertTrue(FactoryManager.fill(B.class, arrayB, 1, 3));
+		Assert.assertNull(arrayB[0]);
+		Assert.assertTrue(arrayB[1].flag);
+		Assert.assertTrue(arrayB[2].flag);
+		Assert.assertNull(arrayB[3]);
+
+		FactoryManager.registerIndexedFactories(getClass().getClassLoader());
+		C[] arrayC = new C[2];
+		FactoryManager.fill(FactoryManager.getFactory(C.class), arrayC, 0, 2);
+		Assert.assertNotNull(arrayC[1]);
+		Assert
+				.assertTrue(FactoryManager.getFactory(C.class) instanceof IBulkFactory<?>);
+	}
+
+	@Test
+	public void testConstructorFactories() {
+		Assert.assertEquals(FactoryManager.getFactory1IntArg(D.class)
+				.newInstance(1).value, "int 1");
+		Assert.assertEquals(FactoryManager.getFactory1LongArg(D.class)
+				.newInstance(2).value, "long 2");
+		Assert.assertEquals(FactoryManager.getFactory1DoubleArg(D.class)
+				.newInstance(3).value, "double 3.0");
+		IFactory1Arg<D, Integer> factory1Arg = FactoryManager
+				.getFactory1Arg(D.class, int.class);
+		Assert.assertEquals(factory1Arg.newInstance(4).value, "int 4");
+		Assert.assertSame(FactoryManager.getFactory1Arg(D.class, int.class),
+				factory1Arg);
+
+		String[] names = { FactoryManager.GENERATOR_JAVASSIST,
+				FactoryManager.GENERATOR_METHOD_HANDLE,
+				FactoryManager.GENERATOR_REFLECTION };
+		for (String name : names) {
+			IFactoryGenerator generator = FactoryManager
+					.newFactoryGenerator(name);
+			@SuppressWarnings("unchecked")
+			IFactory2Args<D, String, Integer> factory2Args = generator
+					.generateFactory(IFactory2Args.class, D.class,
+							String.class, int.class);
+			Assert.assertEquals(factory2Args.newInstance("a", 5).value, "a5");
+			IFactory1IntArg<?> factory1IntArg = generator.generateFactory(
+					IFactory1IntArg.class, D.class, int.class);
+			Assert.assertEquals(((D) factory1IntArg.newInstance(6)).value,
+					"int 6");
+		}
+	}
+
+	@Test
+	public void testScopedFactories() throws Exception {
+		FactoryManager.setScope(A.class, FactoryScope.SINGLETON);
+		final A a = FactoryManager.newInstance(A.class);
+		Assert.assertSame(FactoryManager.newInstance(A.class), a);
+		Assert.assertSame(FactoryManager.newInstance(A.class.getName()), a);
+
+		FactoryManager.setFactory(B.class, new FactoryB(), FactoryScope.THREAD);
+		final B b = FactoryManager.newInstance(B.class);
+		Assert.assertTrue(b.flag);
+		Assert.assertSame(FactoryManager.newInstance(B.class), b);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Boolean> future = executor.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					return (FactoryManager.newInstance(A.class) == a)
+							&& (FactoryManager.newInstance(B.class) != b);
+				}
+			});
+			Assert.assertTrue(future.get());
+		} finally {
+			executor.shutdown();
+		}
+
+		FactoryManager.setScope(A.class, FactoryScope.REQUEST);
+		try {
+			FactoryManager.newInstance(A.class);
+			Assert.fail("No scope context.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		ScopeContext context = ScopeContext.enter();
+		try {
+			A requestA = FactoryManager.newInstance(A.class);
+			Assert.assertNotSame(requestA, a);
+			Assert.assertSame(FactoryManager.newInstance(A.class), requestA);
+			ScopeContext innerContext = ScopeContext.enter();
+			try {
+				Assert.assertNotSame(FactoryManager.newInstance(A.class),
+						requestA);
+			} finally {
+				innerContext.exit();
+			}
+			Assert.assertSame(FactoryManager.newInstance(A.class), requestA);
+		} finally {
+			context.exit();
+		}
+		Assert.assertNull(ScopeContext.current());
+
+		FactoryManager.setScope(A.class, FactoryScope.PROTOTYPE);
+		Assert.assertNotSame(FactoryManager.newInstance(A.class),
+				FactoryManager.newInstance(A.class));
+	}
+
+	@Test
+	public void testSingletonContention() throws Exception {
+		final int numThreads = 8;
+		final AtomicInteger constructionCount = new AtomicInteger();
+		final IFactory<A> singletonFactory = ScopedFactory.newScopedFactory(
+				new IFactory<A>() {
+					public A newInstance() {
+						constructionCount.incrementAndGet();
+						try {
+							// widen the race window
+							Thread.sleep(50);
+						} catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						return new A();
+					}
+				}, FactoryScope.SINGLETON);
+		final CountDownLatch startSignal = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<A>> results = new ArrayList<Future<A>>();
+			for (int i = 0; i < numThreads; i++) {
+				results.add(executor.submit(new Callable<A>() {
+					public A call() throws Exception {
+						startSignal.await();
+						return singletonFactory.newInstance();
+					}
+				}));
+			}
+			startSignal.countDown();
+			A a = singletonFactory.newInstance();
+			for (Future<A> result : results) {
+				Assert.assertSame(result.get(), a);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(constructionCount.get(), 1);
+	}
+
+	@Test
+	public void testAsyncGeneration() throws Exception {
+		IFactoryGenerator defaultGenerator = FactoryManager
+				.getFactoryGenerator();
+		FactoryManager.setFactoryGenerator(FactoryManager
+				.newFactoryGenerator(FactoryManager.GENERATOR_JAVASSIST));
+		FactoryManager.setAsyncGeneration(true);
+		try {
+			Assert.assertNotNull(FactoryManager.newInstance(A.class));
+			Assert.assertNotNull(FactoryManager.getFactory(A.class));
+			for (int i = 0; (i < 200)
+					&& (FactoryManager.getPendingAsyncGenerations() > 0); i++) {
+				Thread.sleep(10);
+			}
+			// the reflective factory was replaced by the generated one
+			Assert.assertTrue(FactoryManager.getFactory(A.class) instanceof IBulkFactory<?>);
+			Assert.assertNotNull(FactoryManager.newInstance(A.class));
+
+			// an explicitly registered factory is not replaced
+			FactoryManager.clear();
+			FactoryManager.newInstance(B.class);
+			FactoryManager.setFactory(B.class, new FactoryB());
+			for (int i = 0; (i < 200)
+					&& (FactoryManager.getPendingAsyncGenerations() > 0); i++) {
+				Thread.sleep(10);
+			}
+			Assert.assertTrue(FactoryManager.newInstance(B.class).flag);
+
+			// a failed generation removes the fallback factory, so the next
+			// lookups fail as in the synchronous mode
+			FactoryManager.setFactoryGenerator(new FailingFactoryGenerator());
+			FactoryManager.resetStatistics();
+			Assert.assertNotNull(FactoryManager.newInstance(AsyncFailure.class));
+			for (int i = 0; (i < 200)
+					&& (FactoryManager.getPendingAsyncGenerations() > 0); i++) {
+				Thread.sleep(10);
+			}
+			Assert.assertEquals(FactoryManager.getStatistics()
+					.getGenerationFailureCount(), 1);
+			try {
+				FactoryManager.newInstance(AsyncFailure.class);
+				Assert.fail();
+			} catch (RuntimeException e) {
+				Assert.assertEquals(e.getMessage(), "Generation failure.");
+			}
+
+			// no fallback factory for a constructor the generator can't call
+			FactoryManager.setFactoryGenerator(FactoryManager
+					.newFactoryGenerator(FactoryManager.GENERATOR_JAVASSIST));
+			try {
+				FactoryManager.newInstance(PrivateConstructor.class);
+				Assert.fail();
+			} catch (RuntimeException e) {
+				// expected
+			}
+		} finally {
+			FactoryManager.setAsyncGeneration(false);
+			FactoryManager.setFactoryGenerator(defaultGenerator);
+		}
+	}
+
+	@Test
+	public void testWarmUp() throws Exception {
+		FactoryManager.setWarmUpRecording(true);
+		try {
+			FactoryManager.newInstance(A.class);
+			FactoryManager.newInstance(B.class);
+		} finally {
+			FactoryManager.setWarmUpRecording(false);
+		}
+		FactoryManager.newInstance(Unloadable.class);
+		StringWriter manifest = new StringWriter();
+		FactoryManager.writeWarmUpManifest(manifest);
+		Assert.assertTrue(manifest.toString().contains(A.class.getName()));
+		Assert.assertTrue(manifest.toString().contains(B.class.getName()));
+		Assert.assertFalse(manifest.toString().contains(
+				Unloadable.class.getName()));
+
+		File dir = File.createTempFile("warmup", "");
+		dir.delete();
+		File file = new File(dir, FactoryManager.WARM_UP_MANIFEST_RESOURCE);
+		URLClassLoader classLoader = null;
+		try {
+			file.getParentFile().mkdirs();
+			Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+					"UTF-8");
+			try {
+				writer.write(manifest.toString());
+				writer.write(D.class.getName() + "\n");
+				writer.write("no.such.Type\n");
+			} finally {
+				writer.close();
+			}
+			classLoader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+					FactoryRegistryTest.class.getClassLoader());
+			FactoryManager.clear();
+			FactoryManager.setAutoGenerateFactories(false);
+			WarmUpReport report = FactoryManager.warmUp(classLoader);
+			Assert.assertEquals(report.getTypeNanos().keySet().size(), 2);
+			Assert.assertTrue(report.getTypeNanos().containsKey(
+					A.class.getName()));
+			// D has no default constructor
+			Assert.assertEquals(report.getFailures().size(), 2);
+			Assert.assertTrue(report.getFailures().get("no.such.Type") instanceof ClassNotFoundException);
+			Assert.assertNotNull(FactoryManager.getFactory(A.class));
+			Assert.assertNotNull(FactoryManager.newInstance(B.class));
+		} finally {
+			if (classLoader != null) {
+				classLoader.close();
+			}
+			deleteTempFile(dir, file);
+		}
+	}
+
+	@Test
+	public void testStatistics() throws Exception {
+		FactoryManager.resetStatistics();
+		FactoryManager.newInstance(A.class);
+		FactoryManager.newInstance(A.class);
+		FactoryManager.newInstance(FactoryManager.getHandle(A.class));
+		FactoryManager.newInstances(B.class, 5);
+		FactoryManager.getFactoryAuto("no.such.Type");
+		FactoryManager.getFactory(A.class);
+		FactoryStatistics statistics = FactoryManager.getStatistics();
+		Assert.assertEquals(statistics.getInstantiationCounts().get(
+				A.class.getName()), Long.valueOf(3));
+		Assert.assertEquals(statistics.getInstantiationCounts().get(
+				B.class.getName()), Long.valueOf(5));
+		// sorted by count
+		Assert.assertEquals(statistics.getInstantiationCounts().keySet()
+				.iterator().next(), B.class.getName());
+		Assert.assertEquals(statistics.getGenerationCount(), 2);
+		// the cached factories of the type and of the handle are hits too
+		Assert.assertEquals(statistics.getHitCount(), 3);
+		Assert.assertEquals(statistics.getMissCount(), 3);
+		Assert.assertEquals(statistics.getMissedKeys().get("no.such.Type"),
+				Long.valueOf(1));
+		long histogramCount = 0;
+		for (long count : statistics.getGenerationLatencyHistogram()) {
+			histogramCount += count;
+		}
+		Assert.assertEquals(histogramCount, 2);
+		Assert.assertTrue(statistics.getMaxGenerationNanos() > 0);
+
+		ObjectName name = FactoryManager.registerMXBean();
+		try {
+			Assert.assertEquals(ManagementFactory.getPlatformMBeanServer()
+					.getAttribute(name, "GenerationCount"), Long.valueOf(2));
+			Assert.assertEquals(ManagementFactory.getPlatformMBeanServer()
+					.getAttribute(name, "HitCount"), Long.valueOf(3));
+		} finally {
+			FactoryManager.unregisterMXBean();
+		}
+
+		FactoryManager.setStatisticsEnabled(false);
+		try {
+			FactoryManager.newInstance(A.class);
+			FactoryManager.newInstance(C.class);
+		} finally {
+			FactoryManager.setStatisticsEnabled(true);
+		}
+		statistics = FactoryManager.getStatistics();
+		Assert.assertEquals(statistics.getInstantiationCounts().get(
+				A.class.getName()), Long.valueOf(3));
+		Assert.assertEquals(statistics.getGenerationCount(), 2);
+
+		// the key lookups use the cached factory and counter
+		FactoryManager.resetStatistics();
+		FactoryManager.newInstance(A.class.getName());
+		FactoryManager.newInstance(A.class.getName());
+		FactoryManager.setFactory(B.class, new FactoryB());
+		Assert.assertTrue(((B) FactoryManager.newInstance(B.class.getName())).flag);
+		statistics = FactoryManager.getStatistics();
+		Assert.assertEquals(statistics.getInstantiationCounts().get(
+				A.class.getName()), Long.valueOf(2));
+		Assert.assertEquals(statistics.getInstantiationCounts().get(
+				B.class.getName()), Long.valueOf(1));
+		Assert.assertEquals(statistics.getHitCount(), 3);
+	}
+
+	@Test
+	public void testBindings() throws Throwable {
+		FactoryBinding<Service> binding = FactoryManager.bind(Service.class,
+				ServiceA.class);
+		MethodHandle invoker = binding.getInvoker();
+		Assert.assertEquals(((Service) invoker.invokeExact()).getName(), "A");
+		Assert.assertEquals(((Service) FactoryManager.newInstance(Service.class
+				.getName())).getName(), "A");
+		Assert.assertEquals(FactoryManager.newInstance(Service.class)
+				.getName(), "A");
+		Assert.assertSame(FactoryManager.getBinding(Service.class), binding);
+
+		// rebinding changes the target of the same invoker
+		Assert.assertSame(FactoryManager.bind(Service.class, ServiceB.class),
+				binding);
+		Assert.assertSame(binding.getImplementation(), ServiceB.class);
+		Assert.assertEquals(((Service) invoker.invokeExact()).getName(), "B");
+		Assert.assertEquals(FactoryManager.newInstance(Service.class)
+				.getName(), "B");
+
+		// so does registering another factory for the interface name
+		FactoryManager.setFactory(Service.class, new IFactory<Service>() {
+			public Service newInstance() {
+				return new Service() {
+					public String getName() {
+						return "custom";
+					}
+				};
+			}
+		});
+		Assert.assertNull(binding.getImplementation());
+		Assert.assertEquals(((Service) invoker.invokeExact()).getName(),
+				"custom");
+
+		FactoryManager.clear();
+		Assert.assertNull((Service) invoker.invokeExact());
+		FactoryManager.bind(Service.class, ServiceA.class);
+		Assert.assertEquals(((Service) invoker.invokeExact()).getName(), "A");
+		try {
+			// because of the unchecked call
+			@SuppressWarnings( { "unchecked", "rawtypes" })
+			FactoryBinding<?> invalid = FactoryManager.bind((Class) Service.class,
+					A.class);
+			Assert.fail("Invalid binding: " + invalid);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testPartitionedBindings() throws Throwable {
+		String name = Unloadable.class.getName();
+		WeakReference<ClassLoader> classLoader = bindAndDiscard(name,
+				readClassBytes(name));
+		for (int i = 0; (i < 10) && (classLoader.get() != null); i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		// the binding doesn't retain the interface class loader; System.gc()
+		// doesn't guarantee its collection, so a miss skips the test
+		if (classLoader.get() != null) {
+			throw new SkipException("The class loader was not collected.");
+		}
+	}
+
+	private static WeakReference<ClassLoader> bindAndDiscard(String name,
+			byte[] bytes) throws Throwable {
+		ClassLoader classLoader = new IsolatedClassLoader(
+				FactoryRegistryTest.class.getClassLoader(), name, bytes);
+		Class<?> klass = classLoader.loadClass(name);
+		// because of the unchecked call
+		@SuppressWarnings( { "unchecked", "rawtypes" })
+		FactoryBinding<?> binding = FactoryManager.bind((Class) klass, klass);
+		Assert.assertSame(binding.getInvoker().invoke().getClass(), klass);
+		Assert.assertSame(FactoryManager.getBinding(klass), binding);
+		Assert.assertNull(FactoryManager.getBinding(Unloadable.class));
+		// the registry by name is not affected
+		Assert.assertNull(FactoryManager.getFactory(name));
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		thread.setContextClassLoader(classLoader);
+		try {
+			Assert.assertSame(FactoryManager.newInstance(name).getClass(),
+					klass);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+		FactoryManager.clear();
+		Assert.assertNull(binding.getInvoker().invoke());
+		return new WeakReference<ClassLoader>(classLoader);
+	}
+
+	@Test
+	public void testCopiers() {
+		SubNode prototype = new SubNode();
+		prototype.value = 1;
+		prototype.name = "first";
+		prototype.setSecret(2);
+		prototype.numbers[1] = 3;
+		prototype.weight = 4.5;
+		prototype.tags.add("tag");
+		prototype.ranges.add(new int[] { 7, 8 });
+		prototype.next = new SubNode();
+		prototype.next.value = 6;
+		prototype.next.next = prototype;
+		String[] names = { FactoryManager.GENERATOR_JAVASSIST,
+				FactoryManager.GENERATOR_METHOD_HANDLE,
+				FactoryManager.GENERATOR_REFLECTION };
+		for (String name : names) {
+			IFactoryGenerator generator = FactoryManager
+					.newFactoryGenerator(name);
+			ICopier<SubNode> copier = generator.generateCopier(SubNode.class,
+					CopyPolicy.SHALLOW);
+			SubNode copy = copier.copy(prototype);
+			Assert.assertNotSame(copy, prototype);
+			Assert.assertEquals(copy.value, 1);
+			Assert.assertEquals(copy.name, "first");
+			Assert.assertEquals(copy.getSecret(), 2);
+			Assert.assertEquals(copy.weight, 4.5);
+			Assert.assertSame(copy.numbers, prototype.numbers);
+			Assert.assertSame(copy.next, prototype.next);
+			Assert.assertSame(copy.tags, prototype.tags);
+
+			copier = generator.generateCopier(SubNode.class, CopyPolicy.DEEP);
+			copy = copier.copy(prototype);
+			Assert.assertEquals(copy.getSecret(), 2);
+			Assert.assertEquals(copy.weight, 4.5);
+			Assert.assertNotSame(copy.numbers, prototype.numbers);
+			Assert.assertEquals(copy.numbers[1], 3);
+			Assert.assertNotSame(copy.tags, prototype.tags);
+			Assert.assertEquals(copy.tags, prototype.tags);
+			// the collection elements are copied too
+			Assert.assertNotSame(copy.ranges.get(0), prototype.ranges.get(0));
+			Assert.assertEquals(copy.ranges.get(0)[1], 8);
+			Assert.assertNotSame(copy.next, prototype.next);
+			Assert.assertEquals(copy.next.value, 6);
+			// the cycle is preserved
+			Assert.assertSame(copy.next.next, copy);
+		}
+
+		Assert.assertSame(FactoryManager.getCopier(SubNode.class,
+				CopyPolicy.DEEP), FactoryManager.getCopier(SubNode.class,
+				CopyPolicy.DEEP));
+
+		// the JDK maps without a clone method are copied into new instances
+		ConcurrentHashMap<String, int[]> map = new ConcurrentHashMap<String, int[]>();
+		map.put("key", new int[] { 9 });
+		Map<?, ?> mapCopy = (Map<?, ?>) new CopyContext().copy(map);
+		Assert.assertTrue(mapCopy instanceof ConcurrentHashMap<?, ?>);
+		Assert.assertNotSame(mapCopy.get("key"), map.get("key"));
+		// the mutable JDK objects that can't be copied are not shared
+		try {
+			new CopyContext().copy(new StringBuilder());
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new CopyContext().copy(Collections.unmodifiableList(prototype.tags));
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		FactoryManager.setPrototype(Node.class, prototype, CopyPolicy.SHALLOW);
+		Node node = FactoryManager.newInstance(Node.class);
+		Assert.assertTrue(node instanceof SubNode);
+		Assert.assertNotSame(node, prototype);
+		Assert.assertEquals(node.value, 1);
+		Assert.assertNotSame(FactoryManager.newInstance(Node.class), node);
+	}
+
+	@Test
+	public void testFactoryGenerators() {
+		String[] names = { FactoryManager.GENERATOR_JAVASSIST,
+				FactoryManager.GENERATOR_METHOD_HANDLE,
+				FactoryManager.GENERATOR_REFLECTION };
+		for (String name : names) {
+			IFactoryGenerator generator = FactoryManager
+					.newFactoryGenerator(name);
+			IFactory<A> factoryA = generator.generateFactory(A.class);
+			Assert.assertNotNull(factoryA.newInstance());
+			Assert.assertNotSame(factoryA.newInstance(), factoryA
+					.newInstance());
+			// the same constructors are accepted by all the generators
+			try {
+				generator.generateFactory(PrivateConstructor.class);
+				Assert.fail(name);
+			} catch (RuntimeException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testClassUnloading() throws Exception {
+		String name = Unloadable.class.getName();
+		byte[] bytes = readClassBytes(name);
+		IFactoryGenerator defaultGenerator = FactoryManager
+				.getFactoryGenerator();
+		boolean cleared;
+		long metaspaceGrowth = 0;
+		try {
+			// warm up, so the baseline includes the generators' own classes
+			loadAndDiscard(name, bytes, 100);
+			long baseline = getMetaspaceUsage();
+			List<WeakReference<ClassLoader>> classLoaders = loadAndDiscard(
+					name, bytes, 1000);
+			for (int i = 0; (i < 10) && !isCleared(classLoaders); i++) {
+				System.gc();
+				Thread.sleep(50);
+			}
+			cleared = isCleared(classLoaders);
+			if (cleared && (baseline >= 0)) {
+				metaspaceGrowth = getMetaspaceUsage() - baseline;
+			}
+		} finally {
+			FactoryManager.setFactoryGenerator(defaultGenerator);
+		}
+		// the types of the FactoryManager class loader are still registered
+		// by name
+		Assert.assertNotNull(FactoryManager.newInstance(name));
+		Assert.assertNotNull(FactoryManager.getFactory(name));
+		// System.gc() doesn't guarantee the collection of the class loaders
+		// (and of their metaspace), so a miss skips the test
+		if (!cleared) {
+			throw new SkipException("The class loaders were not collected.");
+		}
+		// a leaked class loader retains at least a few KB
+		if (metaspaceGrowth >= 2000000) {
+			throw new SkipException(
+					"The metaspace of the class loaders was not reclaimed: "
+							+ metaspaceGrowth + " bytes.");
+		}
+	}
+
+	private static List<WeakReference<ClassLoader>> loadAndDiscard(
+			String name, byte[] bytes, int count) throws Exception {
+		String[] generatorNames = { FactoryManager.GENERATOR_JAVASSIST,
+				FactoryManager.GENERATOR_METHOD_HANDLE,
+				FactoryManager.GENERATOR_REFLECTION };
+		List<WeakReference<ClassLoader>> classLoaders = new ArrayList<WeakReference<ClassLoader>>();
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		for (int i = 0; i < count; i++) {
+			FactoryManager.setFactoryGenerator(FactoryManager
+					.newFactoryGenerator(generatorNames[i
+							% generatorNames.length]));
+			ClassLoader classLoader = new IsolatedClassLoader(
+					FactoryRegistryTest.class.getClassLoader(), name, bytes);
+			Class<?> klass = classLoader.loadClass(name);
+			Assert.assertNotSame(klass, Unloadable.class);
+			Object object = FactoryManager.newInstance(klass);
+			Assert.assertSame(object.getClass(), klass);
+			// the registry by name is not affected
+			Assert.assertNull(FactoryManager.getFactory(name));
+			// the type handle doesn't resolve the name
+			@SuppressWarnings("unchecked")
+			FactoryHandle<Object> handle = (FactoryHandle<Object>) FactoryManager
+					.getHandle(klass);
+			Assert.assertSame(FactoryManager.getHandle(klass), handle);
+			Assert.assertSame(FactoryManager.newInstance(handle).getClass(),
+					klass);
+			thread.setContextClassLoader(classLoader);
+			try {
+				Assert.assertSame(FactoryManager.newInstance(name).getClass(),
+						klass);
+				Assert.assertSame(FactoryManager.newInstance(
+						FactoryManager.getHandle(name)).getClass(), klass);
+			} finally {
+				thread.setContextClassLoader(contextClassLoader);
+			}
+			classLoaders.add(new WeakReference<ClassLoader>(classLoader));
+		}
+		return classLoaders;
+	}
+
+	private static boolean isCleared(
+			List<WeakReference<ClassLoader>> classLoaders) {
+		for (WeakReference<ClassLoader> reference : classLoaders) {
+			if (reference.get() != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long getMetaspaceUsage() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if ("Metaspace".equals(pool.getName())) {
+				return pool.getUsage().getUsed();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Deletes the specified file and its parent directories, up to the
+	 * specified temporary directory (included).
+	 * 
+	 * @param dir
+	 * @param file
+	 */
+	private static void deleteTempFile(File dir, File file) {
+		for (File f = file; !f.equals(dir); f = f.getParentFile()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private static byte[] readClassBytes(String name) throws IOException {
+		InputStream in = FactoryRegistryTest.class.getClassLoader()
+				.getResourceAsStream(name.replace('.', '/') + ".class");
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) > 0) {
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
 }
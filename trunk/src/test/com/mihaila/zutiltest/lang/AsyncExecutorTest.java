@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutiltest.lang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.mihaila.zutil.lang.AsyncExecutor;
+import com.mihaila.zutil.lang.ICallable;
+import com.mihaila.zutil.lang.ICallable1Arg;
+import com.mihaila.zutil.lang.ICallable2Args;
+
+public class AsyncExecutorTest {
+
+	/**
+	 * Runs the blocks on the submitting thread.
+	 */
+	private static final Executor DIRECT_EXECUTOR = new Executor() {
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	/**
+	 * Block waiting on a latch, counting down another latch when it is
+	 * interrupted.
+	 */
+	private static class BlockingCallable implements ICallable<String> {
+
+		final CountDownLatch m_started = new CountDownLatch(1);
+
+		final CountDownLatch m_release = new CountDownLatch(1);
+
+		final CountDownLatch m_interrupted = new CountDownLatch(1);
+
+		public String call() {
+			m_started.countDown();
+			try {
+				m_release.await();
+				return "released";
+			} catch (InterruptedException e) {
+				m_interrupted.countDown();
+				return "interrupted";
+			}
+		}
+
+		/**
+		 * Returns true if the block was interrupted, or was cancelled before
+		 * running.
+		 */
+		boolean isStopped() throws InterruptedException {
+			return (m_started.getCount() == 1)
+					|| m_interrupted.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testSubmit() {
+		AsyncExecutor executor = new AsyncExecutor();
+		Assert.assertEquals(executor.submit(new ICallable<String>() {
+			public String call() {
+				return "a";
+			}
+		}).join(), "a");
+		Assert.assertEquals(executor.submit(
+				new ICallable1Arg<String, String>() {
+					public String call(String arg) {
+						return arg + "b";
+					}
+				}, "a").join(), "ab");
+		Assert.assertEquals(executor.submit(
+				new ICallable2Args<String, String, Integer>() {
+					public String call(String arg0, Integer arg1) {
+						return arg0 + arg1;
+					}
+				}, "a", 1).join(), "a1");
+		Assert.assertEquals(AsyncExecutor.getRemainingTime(TimeUnit.SECONDS),
+				Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testConcurrencyLimit() {
+		AsyncExecutor executor = new AsyncExecutor(2);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger overLimitCount = new AtomicInteger();
+		List<ICallable<Integer>> callables = new ArrayList<ICallable<Integer>>();
+		for (int i = 0; i < 10; i++) {
+			final int index = i;
+			callables.add(new ICallable<Integer>() {
+				public Integer call() {
+					if (running.incrementAndGet() > 2) {
+						overLimitCount.incrementAndGet();
+					}
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+					running.decrementAndGet();
+					return index;
+				}
+			});
+		}
+		List<Integer> results = executor.invokeAll(callables).join();
+		Assert.assertEquals(results, Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8,
+				9));
+		Assert.assertEquals(overLimitCount.get(), 0);
+		Assert.assertEquals(executor.getPendingCount(), 0);
+	}
+
+	@Test
+	public void testCancellation() throws Exception {
+		AsyncExecutor executor = new AsyncExecutor(1);
+		BlockingCallable blocking = new BlockingCallable();
+		CompletableFuture<String> future = executor.submit(blocking);
+		Assert.assertTrue(blocking.m_started.await(5, TimeUnit.SECONDS));
+		// queued behind the blocking call, cancelled before running
+		CompletableFuture<String> queued = executor.submit(blocking);
+		Assert.assertEquals(executor.getPendingCount(), 1);
+		Assert.assertTrue(queued.cancel(true));
+		Assert.assertTrue(future.cancel(true));
+		Assert.assertTrue(blocking.m_interrupted.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(future.isCancelled());
+
+		// the permit of the cancelled calls is released
+		Assert.assertEquals(executor.submit(new ICallable<String>() {
+			public String call() {
+				return "next";
+			}
+		}).get(5, TimeUnit.SECONDS), "next");
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		AsyncExecutor executor = new AsyncExecutor();
+		BlockingCallable blocking = new BlockingCallable();
+		CompletableFuture<String> future = executor.submit(blocking, 50,
+				TimeUnit.MILLISECONDS);
+		final AtomicReference<String> stageThread = new AtomicReference<String>();
+		final CountDownLatch stageDone = new CountDownLatch(1);
+		future.whenComplete(new BiConsumer<String, Throwable>() {
+			public void accept(String result, Throwable e) {
+				stageThread.set(Thread.currentThread().getName());
+				stageDone.countDown();
+			}
+		});
+		try {
+			future.join();
+			Assert.fail("Timeout expected.");
+		} catch (CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof TimeoutException);
+		}
+		Assert.assertTrue(blocking.isStopped());
+		// the dependent stages don't run on the shared timer thread
+		Assert.assertTrue(stageDone.await(5, TimeUnit.SECONDS));
+		Assert.assertNotEquals(stageThread.get(), "AsyncExecutor-timer");
+
+		// the deadline is propagated to the nested calls
+		final AsyncExecutor nestedExecutor = new AsyncExecutor();
+		long remaining = executor.submit(new ICallable<Long>() {
+			public Long call() {
+				return nestedExecutor.submit(new ICallable<Long>() {
+					public Long call() {
+						return AsyncExecutor
+								.getRemainingTime(TimeUnit.MILLISECONDS);
+					}
+				}, 1, TimeUnit.HOURS).join();
+			}
+		}, 10, TimeUnit.SECONDS).join();
+		Assert.assertTrue((remaining > 0) && (remaining <= 10000));
+
+		// the far deadlines don't overflow
+		Assert.assertEquals(executor.submit(new ICallable<String>() {
+			public String call() {
+				return "far";
+			}
+		}, Long.MAX_VALUE, TimeUnit.DAYS).get(5, TimeUnit.SECONDS), "far");
+		try {
+			executor.submit(blocking, -1, TimeUnit.SECONDS);
+			Assert.fail("Exception expected.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDirectExecutor() {
+		// the interruption of the submitter is kept
+		AsyncExecutor executor = new AsyncExecutor(DIRECT_EXECUTOR);
+		Thread.currentThread().interrupt();
+		Assert.assertEquals(executor.submit(new ICallable<String>() {
+			public String call() {
+				return "a";
+			}
+		}).join(), "a");
+		Assert.assertTrue(Thread.interrupted());
+
+		// the queued calls are run iteratively, not recursively
+		final AsyncExecutor limitedExecutor = new AsyncExecutor(
+				DIRECT_EXECUTOR, 1);
+		final AtomicInteger callCount = new AtomicInteger();
+		final List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+		limitedExecutor.submit(new ICallable<Integer>() {
+			public Integer call() {
+				for (int i = 0; i < 100000; i++) {
+					futures.add(limitedExecutor.submit(new ICallable<Integer>() {
+						public Integer call() {
+							return callCount.incrementAndGet();
+						}
+					}));
+				}
+				// queued behind this call
+				Assert.assertEquals(limitedExecutor.getPendingCount(), 100000);
+				return 0;
+			}
+		}).join();
+		Assert.assertEquals(callCount.get(), 100000);
+		Assert.assertEquals(futures.get(99999).join().intValue(), 100000);
+		Assert.assertEquals(limitedExecutor.getPendingCount(), 0);
+	}
+
+	@Test
+	public void testInvokeAny() throws Exception {
+		AsyncExecutor executor = new AsyncExecutor();
+		BlockingCallable blocking = new BlockingCallable();
+		List<ICallable<String>> callables = new ArrayList<ICallable<String>>();
+		callables.add(blocking);
+		callables.add(new ICallable<String>() {
+			public String call() {
+				throw new IllegalStateException("Failing call.");
+			}
+		});
+		callables.add(new ICallable<String>() {
+			public String call() {
+				return "fast";
+			}
+		});
+		Assert.assertEquals(executor.invokeAny(callables).join(), "fast");
+		// the other calls are cancelled
+		Assert.assertTrue(blocking.isStopped());
+
+		try {
+			executor.invokeAll(callables.subList(1, 3)).join();
+			Assert.fail("Exception expected.");
+		} catch (CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		try {
+			executor.invokeAny(callables.subList(1, 2)).join();
+			Assert.fail("Exception expected.");
+		} catch (CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2007 Cornel Mihaila (http://www.mihaila.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.package zutil;
+ */
+
+package com.mihaila.zutiltest.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.mihaila.zutil.lang.ICallable;
+import com.mihaila.zutil.lang.ICallable1Arg;
+import com.mihaila.zutil.lang.LazyValue;
+import com.mihaila.zutil.lang.Memoizer;
+
+public class MemoizerTest {
+
+	/**
+	 * Loader counting its calls, returning null for 0 and failing for
+	 * negative arguments.
+	 */
+	private static class CountingLoader implements
+			ICallable1Arg<String, Integer> {
+
+		final AtomicInteger m_callCount = new AtomicInteger();
+
+		public String call(Integer arg) {
+			m_callCount.incrementAndGet();
+			if (arg < 0) {
+				throw new IllegalArgumentException("Negative: " + arg);
+			}
+			return (arg == 0) ? null : "value" + arg;
+		}
+	}
+
+	@Test
+	public void testMemoizer() {
+		CountingLoader loader = new CountingLoader();
+		Memoizer<String, Integer> memoizer = new Memoizer<String, Integer>(
+				loader, 8);
+		Assert.assertEquals(memoizer.call(1), "value1");
+		Assert.assertEquals(memoizer.call(1), "value1");
+		Assert.assertNull(memoizer.call(0));
+		Assert.assertNull(memoizer.call(0));
+		Assert.assertEquals(loader.m_callCount.get(), 2);
+		Assert.assertEquals(memoizer.getHitCount(), 2);
+		Assert.assertEquals(memoizer.getMissCount(), 2);
+		Assert.assertEquals(memoizer.getHitRate(), 0.5);
+		Assert.assertTrue(memoizer.getAverageLoadTime() > 0);
+
+		// the failed loads are not cached
+		for (int i = 0; i < 2; i++) {
+			try {
+				memoizer.call(-1);
+				Assert.fail("Loader exception expected.");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		Assert.assertEquals(memoizer.getLoadFailureCount(), 2);
+		Assert.assertEquals(memoizer.size(), 2);
+
+		memoizer.invalidate(1);
+		Assert.assertEquals(memoizer.call(1), "value1");
+		Assert.assertEquals(loader.m_callCount.get(), 5);
+
+		// the clock eviction keeps the cache bounded
+		for (int i = 1; i <= 100; i++) {
+			memoizer.call(i);
+		}
+		Assert.assertTrue(memoizer.size() <= 8);
+		Assert.assertTrue(memoizer.getEvictionCount() >= 92);
+		memoizer.clear();
+		Assert.assertEquals(memoizer.size(), 0);
+	}
+
+	@Test
+	public void testMemoizerTimeToLive() throws Exception {
+		CountingLoader loader = new CountingLoader();
+		Memoizer<String, Integer> memoizer = new Memoizer<String, Integer>(
+				loader, 8, 200, TimeUnit.MILLISECONDS);
+		memoizer.call(1);
+		memoizer.call(1);
+		Assert.assertEquals(loader.m_callCount.get(), 1);
+		Thread.sleep(300);
+		Assert.assertEquals(memoizer.call(1), "value1");
+		Assert.assertEquals(loader.m_callCount.get(), 2);
+		Assert.assertEquals(memoizer.getEvictionCount(), 1);
+	}
+
+	@Test
+	public void testMemoizerSingleFlight() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger callCount = new AtomicInteger();
+		final Memoizer<Object, String> memoizer = new Memoizer<Object, String>(
+				new ICallable1Arg<Object, String>() {
+					public Object call(String arg) {
+						callCount.incrementAndGet();
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						return new Object();
+					}
+				});
+		final Object[] results = new Object[8];
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < results.length; i++) {
+			final int index = i;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					results[index] = memoizer.call("key");
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		// let the threads reach the memoizer
+		while (memoizer.getHitCount() + memoizer.getMissCount() < results
+				.length) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(callCount.get(), 1);
+		for (Object result : results) {
+			Assert.assertSame(result, results[0]);
+		}
+	}
+
+	@Test
+	public void testMemoizerEvictionDuringLoad() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger slowCallCount = new AtomicInteger();
+		final Memoizer<String, Integer> memoizer = new Memoizer<String, Integer>(
+				new ICallable1Arg<String, Integer>() {
+					public String call(Integer arg) {
+						if (arg == 0) {
+							slowCallCount.incrementAndGet();
+							started.countDown();
+							try {
+								release.await();
+							} catch (InterruptedException e) {
+								throw new IllegalStateException(e);
+							}
+						}
+						return "value" + arg;
+					}
+				}, 4);
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				memoizer.call(0);
+			}
+		};
+		thread.start();
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+		// evict under pressure while the load of 0 is blocked
+		for (int i = 1; i < 20; i++) {
+			memoizer.call(i);
+		}
+		Assert.assertTrue(memoizer.size() <= 4);
+		Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				memoizer.call(0);
+			}
+		};
+		waiter.start();
+		release.countDown();
+		thread.join();
+		waiter.join();
+		Assert.assertEquals(slowCallCount.get(), 1);
+		Assert.assertEquals(memoizer.call(0), "value0");
+	}
+
+	@Test
+	public void testLazyValue() {
+		final AtomicInteger callCount = new AtomicInteger();
+		LazyValue<Object> lazy = new LazyValue<Object>(new ICallable<Object>() {
+			public Object call() {
+				if (callCount.incrementAndGet() == 1) {
+					throw new IllegalStateException("First call.");
+				}
+				return new Object();
+			}
+		});
+		try {
+			lazy.call();
+			Assert.fail("Callable exception expected.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		Assert.assertFalse(lazy.isInitialized());
+		Object value = lazy.call();
+		Assert.assertTrue(lazy.isInitialized());
+		Assert.assertSame(lazy.call(), value);
+		Assert.assertEquals(callCount.get(), 2);
+
+		LazyValue<String> nullValue = new LazyValue<String>(
+				new ICallable<String>() {
+					public String call() {
+						callCount.incrementAndGet();
+						return null;
+					}
+				});
+		Assert.assertNull(nullValue.call());
+		Assert.assertNull(nullValue.call());
+		Assert.assertEquals(callCount.get(), 3);
+	}
+}
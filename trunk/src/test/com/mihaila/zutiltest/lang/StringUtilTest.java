@@ -22,9 +22,17 @@
 
 package com.mihaila.zutiltest.lang;
 
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.mihaila.zutil.lang.CachedCaseConverter;
+import com.mihaila.zutil.lang.CharUtil;
+import com.mihaila.zutil.lang.CaseFormat;
+import com.mihaila.zutil.lang.CaseSymbolTable;
 import com.mihaila.zutil.lang.StringUtil;
 
 
@@ -56,5 +64,224 @@ public class StringUtilTest {
 		Assert.assertEquals(upperCamelCase, expUpperCamelCase);
 		Assert.assertEquals(lowerCamelCase, expLowerCamelCase);
 
+		// the Appendable and char[] variants, on a range of a larger sequence
+		String framed = "[" + value + "]";
+		int end = framed.length() - 1;
+		StringBuilder builder = new StringBuilder("x");
+		StringUtil.writeUpperUnderscoreCase(builder, value);
+		StringUtil.writeLowerUnderscoreCase(builder, framed, 1, end);
+		StringUtil.writeUpperCamelCase(builder, framed, 1, end);
+		StringUtil.writeLowerCamelCase(builder, value);
+		Assert.assertEquals(builder.toString(), "x" + upperUnderscoreCase
+				+ lowerUnderscoreCase + upperCamelCase + lowerCamelCase);
+		StringWriter writer = new StringWriter();
+		StringUtil.writeUpperUnderscoreCase(writer, framed, 1, end);
+		StringUtil.writeLowerUnderscoreCase(writer, value);
+		StringUtil.writeUpperCamelCase(writer, value);
+		StringUtil.writeLowerCamelCase(writer, framed, 1, end);
+		Assert.assertEquals(writer.toString(), upperUnderscoreCase
+				+ lowerUnderscoreCase + upperCamelCase + lowerCamelCase);
+		char[] chars = new char[2 * value.length() + 1];
+		int count = StringUtil.writeUpperUnderscoreCase(chars, 1, framed, 1,
+				end);
+		Assert.assertEquals(new String(chars, 1, count), upperUnderscoreCase);
+		count = StringUtil.writeLowerUnderscoreCase(chars, 1, framed, 1, end);
+		Assert.assertEquals(new String(chars, 1, count), lowerUnderscoreCase);
+		count = StringUtil.writeUpperCamelCase(chars, 1, framed, 1, end);
+		Assert.assertEquals(new String(chars, 1, count), upperCamelCase);
+		count = StringUtil.writeLowerCamelCase(chars, 1, framed, 1, end);
+		Assert.assertEquals(new String(chars, 1, count), lowerCamelCase);
+	}
+
+	@Test
+	public void testUnicodeCaseFunctions() {
+		// the ASCII strings are converted as in the default mode
+		for (String value : new String[] { "justASimple_String",
+				"ABC_abc__1a", "aBc", "DEf", "", "_x" }) {
+			for (CaseFormat format : CaseFormat.values()) {
+				Assert.assertEquals(format.convert(value, true), format
+						.convert(value));
+			}
+		}
+		Assert.assertNull(StringUtil.toLowerCamelCase(null, true));
+
+		String value = "stra\u00dfe\u00dcber\u00c7a_\u00e9lan";
+		Assert.assertEquals(StringUtil.toLowerUnderscoreCase(value),
+				"stra\u00dfe\u00dcber\u00c7a_\u00e9lan");
+		Assert.assertEquals(StringUtil.toLowerUnderscoreCase(value, true),
+				"stra\u00dfe_\u00fcber_\u00e7a_\u00e9lan");
+		// simple case mappings: no "SS" for the sharp s
+		Assert.assertEquals(StringUtil.toUpperUnderscoreCase(value, true),
+				"STRA\u00dfE_\u00dcBER_\u00c7A_\u00c9LAN");
+		Assert.assertEquals(StringUtil.toUpperCamelCase(value, true),
+				"Stra\u00dfe\u00dcber\u00c7a\u00c9lan");
+		Assert.assertEquals(StringUtil.toLowerCamelCase(value, true),
+				"stra\u00dfe\u00dcber\u00c7a\u00c9lan");
+		Assert.assertEquals(StringUtil.toLowerCamelCase(value),
+				"stra\u00dfe\u00dcber\u00c7a\u00e9lan");
+
+		// the conversion continues by code points after an underscore
+		Assert.assertEquals(StringUtil.toUpperUnderscoreCase(
+				"userId_\u00c9t\u00e9Ok", true), "USER_ID_\u00c9T\u00c9_OK");
+
+		// supplementary code points (Deseret) and title case letters
+		Assert.assertEquals(StringUtil.toLowerUnderscoreCase(
+				"a\ud801\udc00b", true), "a_\ud801\udc28b");
+		Assert.assertEquals(StringUtil.toUpperCamelCase(
+				"\ud801\udc28a_\ud801\udc28", true),
+				"\ud801\udc00a\ud801\udc00");
+		Assert.assertEquals(StringUtil.toLowerUnderscoreCase("a\u01c5", true),
+				"a_\u01c6");
+		Assert.assertEquals(StringUtil.toUpperCamelCase("\u01c6_\u01c6",
+				true), "\u01c5\u01c5");
+
+		// the unchanged strings are returned as they are
+		String unchanged = "\u00e9t\u00e9";
+		Assert.assertSame(StringUtil.toLowerCamelCase(unchanged, true),
+				unchanged);
+	}
+
+	@Test
+	public void testConvertAll() {
+		String[] names = new String[] { "justASimple_String", null,
+				"ABC_abc__1a", "aBc", "DEf", "", "simple" };
+		for (CaseFormat format : CaseFormat.values()) {
+			String[] converted = StringUtil.convertAll(names, format);
+			for (int i = 0; i < names.length; i++) {
+				Assert.assertEquals(converted[i], format.convert(names[i]));
+			}
+			List<String> convertedList = StringUtil.convertAll(Arrays
+					.asList(names), format);
+			Assert.assertEquals(convertedList, Arrays.asList(converted));
+		}
+		// the unchanged names are not copied
+		Assert.assertSame(StringUtil.convertAll(names,
+				CaseFormat.LOWER_CAMEL)[6], names[6]);
+
+		// a batch converted in parallel
+		String[] batch = new String[StringUtil.PARALLEL_CONVERSION_THRESHOLD * 3 + 1];
+		for (int i = 0; i < batch.length; i++) {
+			batch[i] = "COLUMN_NAME_" + i;
+		}
+		String[] converted = StringUtil.convertAll(batch,
+				CaseFormat.UPPER_CAMEL);
+		for (int i = 0; i < batch.length; i++) {
+			Assert.assertEquals(converted[i], "COLUMNNAME" + i);
+		}
+	}
+
+	@Test
+	public void testCaseSymbolTable() {
+		CaseSymbolTable table = new CaseSymbolTable(
+				CaseFormat.UPPER_UNDERSCORE, CaseFormat.LOWER_CAMEL);
+		Assert.assertEquals(table.toCamelCase("USER_ID"), "uSERID");
+		// the reverse mapping returns the original name
+		Assert.assertEquals(table.toUnderscoreCase("uSERID"), "USER_ID");
+		Assert.assertEquals(table.toUnderscoreCase("userName"), "USER_NAME");
+		Assert.assertEquals(table.toCamelCase("USER_NAME"), "userName");
+		Assert.assertEquals(table.size(), 2);
+		Assert.assertEquals(table.toCamelCase(new String[] { "USER_ID", null,
+				"LAST_LOGIN" }), new String[] { "uSERID", null, "lASTLOGIN" });
+		Assert.assertEquals(table.toUnderscoreCase(new String[] {
+				"lASTLOGIN", "userName", "firstName" }), new String[] {
+				"LAST_LOGIN", "USER_NAME", "FIRST_NAME" });
+		Assert.assertEquals(table.size(), 4);
+		try {
+			new CaseSymbolTable(CaseFormat.LOWER_CAMEL, CaseFormat.UPPER_CAMEL);
+			Assert.fail("Camel case underscore format.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBulkAsciiCase() {
+		// every char/byte value, with the letters at all the word positions
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 256; i++) {
+			builder.append((char) i).append("aZ`{@[");
+		}
+		builder.append("\u0101\u00e9\uffff");
+		String value = builder.toString();
+		for (int start = 0; start < 9; start++) {
+			int end = value.length() - start;
+			String range = value.substring(start, end);
+			StringBuilder upper = new StringBuilder(value.substring(0, start));
+			StringBuilder lower = new StringBuilder(value.substring(0, start));
+			for (int i = 0; i < range.length(); i++) {
+				upper.append(CharUtil.toAsciiUpperCase(range.charAt(i)));
+				lower.append(CharUtil.toAsciiLowerCase(range.charAt(i)));
+			}
+			upper.append(value.substring(end));
+			lower.append(value.substring(end));
+
+			char[] chars = value.toCharArray();
+			Assert.assertTrue(CharUtil.toAsciiUpperCase(chars, start, end));
+			Assert.assertEquals(new String(chars), upper.toString());
+			Assert.assertFalse(CharUtil.toAsciiUpperCase(chars, start, end));
+			Assert.assertTrue(CharUtil.toAsciiLowerCase(chars, start, end));
+			Assert.assertEquals(new String(chars), lower.toString());
+
+			byte[] bytes = toBytes(value);
+			Assert.assertTrue(CharUtil.toAsciiUpperCase(bytes, start, end));
+			Assert.assertEquals(bytes, toBytes(upper.toString()));
+			Assert.assertFalse(CharUtil.toAsciiUpperCase(bytes, start, end));
+			Assert.assertTrue(CharUtil.toAsciiLowerCase(bytes, start, end));
+			Assert.assertEquals(bytes, toBytes(lower.toString()));
+		}
+		// the short ranges, converted without words
+		for (int length = 1; length < 24; length++) {
+			String range = value.substring(400, 400 + length);
+			byte[] bytes = toBytes(range);
+			CharUtil.toAsciiUpperCase(bytes, 0, length);
+			Assert.assertEquals(bytes, toBytes(range.toUpperCase()));
+		}
+		Assert.assertFalse(CharUtil.toAsciiLowerCase(new char[] { 'a', '1',
+				'_' }, 0, 3));
+	}
+
+	/**
+	 * Returns the low bytes of the chars of a string.
+	 */
+	private static byte[] toBytes(String value) {
+		byte[] bytes = new byte[value.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) value.charAt(i);
+		}
+		return bytes;
+	}
+
+	@Test
+	public void testCachedCaseConverter() {
+		String[] names = new String[] { "justASimple_String", "ABC_abc__1a",
+				"aBc", "DEf", "" };
+		for (CaseFormat format : CaseFormat.values()) {
+			CachedCaseConverter converter = new CachedCaseConverter(format);
+			for (int i = 0; i < 2; i++) {
+				for (String name : names) {
+					Assert.assertEquals(converter.convert(name), format
+							.convert(name));
+				}
+			}
+			Assert.assertNull(converter.convert(null));
+			Assert.assertEquals(converter.getMissCount(), names.length);
+			Assert.assertEquals(converter.getHitCount(), names.length);
+			Assert.assertEquals(converter.getHitRate(), 0.5);
+		}
+
+		// the cache is bounded, and the names in use are not evicted
+		CachedCaseConverter converter = new CachedCaseConverter(
+				CaseFormat.LOWER_CAMEL, 8);
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(converter.convert("HOT_NAME"), "hOTNAME");
+			Assert.assertEquals(converter.convert("COLUMN_" + i), "cOLUMN"
+					+ i);
+			Assert.assertTrue(converter.size() <= 8);
+		}
+		Assert.assertEquals(converter.getMissCount(), 101);
+		Assert.assertEquals(converter.getHitCount(), 99);
+		Assert.assertTrue(converter.getEvictionCount() >= 92);
+		converter.resetStatistics();
+		Assert.assertEquals(converter.getHitRate(), 0.0);
 	}
 }